@@ -0,0 +1,68 @@
+package planner.bench;
+
+import org.openjdk.jmh.annotations.*;
+import planner.*;
+import planner.cli.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks Allocator.allocate for different numbers of events and venues
+ * and different tightness of the corridor capacities.
+ *
+ * The default strategy is BACKTRACKING, since EXHAUSTIVE enumerates every
+ * safe allocation and only finishes on the smallest workloads; run it with
+ * e.g. -p strategy=EXHAUSTIVE -p events=5 -p venues=10. Adversarial
+ * workloads grow exponentially harder with the number of events; try them
+ * with e.g. -p adversarial=true -p events=8.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AllocatorBenchmark {
+
+    @Param({ "5", "10", "20" })
+    public int events;
+
+    @Param({ "10", "50" })
+    public int venues;
+
+    @Param({ "LOOSE", "TIGHT" })
+    public Feasibility feasibility;
+
+    @Param({ "false" })
+    public boolean adversarial;
+
+    @Param({ "BACKTRACKING" })
+    public AllocationStrategy strategy;
+
+    // the workload being allocated
+    private Workload workload;
+    // the options to allocate with
+    private AllocationOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setSeed(2002);
+        generator.setVenues(venues);
+        generator.setEvents(Math.min(events, venues));
+        generator.setCorridors(4 * venues);
+        generator.setFeasibility(feasibility);
+        generator.setAdversarial(adversarial);
+        workload = generator.generate();
+        options = new AllocationOptions();
+        options.setStrategy(strategy);
+    }
+
+    @Benchmark
+    public Map<Event, Venue> allocate() {
+        return Allocator.allocate(workload.getEvents(), workload.getVenues(),
+                options);
+    }
+
+}
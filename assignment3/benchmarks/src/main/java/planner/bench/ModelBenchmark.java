@@ -0,0 +1,77 @@
+package planner.bench;
+
+import org.openjdk.jmh.annotations.*;
+import planner.*;
+import planner.cli.*;
+import planner.gui.EventAllocatorModel;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks EventAllocatorModel.addEvent on top of allocations of different
+ * numbers of events.
+ *
+ * Each invocation adds an event and then undoes it, so that the allocation
+ * is the same for every invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelBenchmark {
+
+    @Param({ "10", "1000" })
+    public int allocated;
+
+    // the model the event is added to
+    private EventAllocatorModel model;
+    // the event to add
+    private Event event;
+    // the venue to add the event at
+    private Venue venue;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, FormatException {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setSeed(2002);
+        generator.setVenues(allocated + 1);
+        generator.setEvents(allocated + 1);
+        generator.setCorridors(4 * allocated);
+        Workload workload = generator.generate();
+        File venueFile = File.createTempFile("venues", ".txt");
+        File eventFile = File.createTempFile("events", ".txt");
+        try {
+            workload.write(venueFile.getPath(), eventFile.getPath());
+            model = new EventAllocatorModel();
+            model.loadVenues(venueFile.getPath());
+        } finally {
+            venueFile.delete();
+            eventFile.delete();
+        }
+
+        // allocate every event but the last to a venue it fits safely
+        List<Venue> venues = model.getVenues();
+        List<Event> events = workload.getEvents();
+        Map<Event, Venue> allocation = Allocator.allocate(events, venues,
+                new AllocationOptions());
+        event = events.get(events.size() - 1);
+        venue = allocation.get(event);
+        for (Event other : events) {
+            if (other != event) {
+                model.addEvent(other, allocation.get(other));
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean addEvent() {
+        boolean added = model.addEvent(event, venue);
+        model.undo();
+        return added;
+    }
+
+}
@@ -0,0 +1,70 @@
+package planner.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import planner.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the Traffic operations used to build and check the traffic of
+ * an allocation, for different numbers of corridors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrafficBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int corridors;
+
+    // the corridors that the traffic is on
+    private Corridor[] network;
+    // traffic on every corridor
+    private Traffic traffic;
+    // a second traffic on every corridor, to be added to the first
+    private Traffic extra;
+    // the corridor updated by the next call to updateTraffic
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(2002);
+        network = new Corridor[corridors];
+        traffic = new Traffic();
+        extra = new Traffic();
+        for (int c = 0; c < corridors; c++) {
+            network[c] = new Corridor(new Location("l" + c), new Location("m"
+                    + c), 1000);
+            traffic.updateTraffic(network[c], 1 + random.nextInt(100));
+            extra.updateTraffic(network[c], 1 + random.nextInt(100));
+        }
+    }
+
+    @Benchmark
+    public Traffic addTraffic() {
+        Traffic result = new Traffic(traffic);
+        result.addTraffic(extra);
+        return result;
+    }
+
+    @Benchmark
+    public boolean isSafe() {
+        return traffic.isSafe();
+    }
+
+    @Benchmark
+    public void updateTraffic(Blackhole blackhole) {
+        Corridor corridor = network[next];
+        next = (next + 1) % corridors;
+        // add and take away so that the traffic stays the same
+        traffic.updateTraffic(corridor, 1);
+        traffic.updateTraffic(corridor, -1);
+        blackhole.consume(traffic);
+    }
+
+}
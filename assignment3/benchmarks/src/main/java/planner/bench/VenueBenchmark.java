@@ -0,0 +1,47 @@
+package planner.bench;
+
+import org.openjdk.jmh.annotations.*;
+import planner.*;
+import planner.cli.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks Venue.getTraffic for venues with different numbers of corridors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VenueBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int corridors;
+
+    // a venue with traffic on the given number of corridors
+    private Venue venue;
+    // an event that the venue can host
+    private Event event;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setSeed(2002);
+        generator.setVenues(1);
+        generator.setEvents(1);
+        generator.setLocations(Math.max(corridors, 2));
+        generator.setCorridors(corridors);
+        generator.setCorridorsPerVenue(corridors);
+        Workload workload = generator.generate();
+        venue = workload.getVenues().get(0);
+        event = workload.getEvents().get(0);
+    }
+
+    @Benchmark
+    public Traffic getTraffic() {
+        return venue.getTraffic(event);
+    }
+
+}
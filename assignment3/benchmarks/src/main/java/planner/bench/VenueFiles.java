@@ -0,0 +1,46 @@
+package planner.bench;
+
+import planner.*;
+import planner.cli.Workload;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Writes large venue files for the benchmarks.
+ */
+final class VenueFiles {
+
+    private VenueFiles() {
+    }
+
+    /**
+     * Writes venues in the format read by VenueReader, repeating them with
+     * new names until the file is at least the given number of bytes. Each
+     * venue is written at least once.
+     *
+     * @param venues the venues to write
+     * @param bytes the smallest size of the file
+     * @param file the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    static void write(List<Venue> venues, long bytes, File file)
+            throws IOException {
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(
+                new FileWriter(file)))) {
+            for (int copy = 0; copy == 0 || file.length() < bytes; copy++) {
+                List<Venue> renamed = new ArrayList<>();
+                for (Venue venue : venues) {
+                    renamed.add(new Venue(venue.getName() + "#" + copy, venue
+                            .getCapacity(), venue.getCapacityTraffic()));
+                }
+                Workload.writeVenues(renamed, out);
+                out.flush();
+                if (venues.isEmpty()) {
+                    break;
+                }
+            }
+        }
+    }
+
+}
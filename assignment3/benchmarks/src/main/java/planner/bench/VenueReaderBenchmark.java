@@ -0,0 +1,56 @@
+package planner.bench;
+
+import org.openjdk.jmh.annotations.*;
+import planner.*;
+import planner.cli.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks VenueReader.read on generated venue files of different sizes.
+ *
+ * The files are written to the temporary directory before the benchmark and
+ * deleted after it. The largest file takes several minutes per iteration;
+ * choose sizes with e.g. -p megabytes=1,16.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class VenueReaderBenchmark {
+
+    @Param({ "1", "16", "256", "1024" })
+    public int megabytes;
+
+    // the venue file being read
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("venues", ".txt");
+        file.deleteOnExit();
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setSeed(2002);
+        generator.setVenues(1000);
+        generator.setEvents(0);
+        generator.setCorridors(5000);
+        generator.setCorridorsPerVenue(8);
+        VenueFiles.write(generator.generate().getVenues(), megabytes * 1024L
+                * 1024L, file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public List<Venue> read() throws IOException, FormatException {
+        return VenueReader.read(file.getPath());
+    }
+
+}
@@ -0,0 +1,177 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * An immutable allocation of events to venues, stored as an array mapping the
+ * index of each event in a list of events to the index of its venue in a list
+ * of venues, or -1 if the event is not allocated.
+ * </p>
+ *
+ * <p>
+ * The allocation is also a map from each allocated event to its venue, whose
+ * entries are only created as they are iterated over. Many allocations of the
+ * same events and venues share the lists and the index from events to their
+ * positions, so that each only takes up its array. The map cannot be modified
+ * through the java.util.Map interface.
+ * </p>
+ */
+public final class Allocation extends AbstractMap<Event, Venue> {
+
+    // the events and venues that the indices refer to
+    private final List<Event> events;
+    private final List<Venue> venues;
+    // the index of each event, shared with the other allocations of events
+    private final Map<Event, Integer> eventIds;
+    // the index of the venue of each event, or -1 if it is not allocated
+    private final int[] venueOf;
+    // the number of allocated events
+    private final int size;
+    // the hash code of the map, or 0 until it is computed
+    private int hash;
+
+    /*
+     * invariant:
+     *
+     * events != null && venues != null && venueOf.length == events.size() &&
+     *
+     * eventIds.get(events.get(e)) == e for each index e of events &&
+     *
+     * each venueOf[e] is -1 or a valid index of venues &&
+     *
+     * size is the number of e with venueOf[e] >= 0
+     */
+
+    /**
+     * Creates the allocation of events to venues given by venueOf, which is
+     * not copied, where eventIds gives the index of each event.
+     *
+     * @require events != null && venues != null && !events.contains(null) &&
+     *          events does not contain duplicate events &&
+     *          eventIds.get(events.get(e)) == e for each e && eventIds has no
+     *          other keys && venueOf.length == events.size() && each
+     *          venueOf[e] is -1 or a valid index of venues && none of the
+     *          arguments are modified afterwards
+     */
+    Allocation(List<Event> events, Map<Event, Integer> eventIds,
+            List<Venue> venues, int[] venueOf) {
+        this.events = events;
+        this.eventIds = eventIds;
+        this.venues = venues;
+        this.venueOf = venueOf;
+        int count = 0;
+        for (int venue : venueOf) {
+            if (venue >= 0) {
+                count++;
+            }
+        }
+        size = count;
+    }
+
+    /**
+     * Returns the index of the venue of the event at the given index of the
+     * events.
+     *
+     * @param event
+     *            the index of the event
+     * @return the index of its venue, or -1 if the event is not allocated
+     * @throws IndexOutOfBoundsException
+     *             if event is not a valid index of the events
+     */
+    public int getVenueIndex(int event) {
+        return venueOf[event];
+    }
+
+    @Override
+    public Venue get(Object key) {
+        Integer e = eventIds.get(key);
+        if (e == null || venueOf[e] < 0) {
+            return null;
+        }
+        return venues.get(venueOf[e]);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<Event, Venue>> entrySet() {
+        return new AbstractSet<Map.Entry<Event, Venue>>() {
+            @Override
+            public Iterator<Map.Entry<Event, Venue>> iterator() {
+                return new Iterator<Map.Entry<Event, Venue>>() {
+                    // the index of the next allocated event
+                    private int next = skip(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < venueOf.length;
+                    }
+
+                    @Override
+                    public Map.Entry<Event, Venue> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Map.Entry<Event, Venue> entry =
+                                new AbstractMap.SimpleImmutableEntry<>(events
+                                        .get(next), venues.get(venueOf[next]));
+                        next = skip(next + 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object instanceof Allocation) {
+            Allocation other = (Allocation) object;
+            if (other.events == events && other.venues == venues) {
+                return Arrays.equals(venueOf, other.venueOf);
+            }
+        }
+        return super.equals(object);
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) {
+            int result = 0;
+            for (int e = 0; e < venueOf.length; e++) {
+                if (venueOf[e] >= 0) {
+                    result += events.get(e).hashCode()
+                            ^ venues.get(venueOf[e]).hashCode();
+                }
+            }
+            hash = result;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the index of the first allocated event at or after the given
+     * index, or the number of events if there is none.
+     */
+    private int skip(int e) {
+        while (e < venueOf.length && venueOf[e] < 0) {
+            e++;
+        }
+        return e;
+    }
+
+}
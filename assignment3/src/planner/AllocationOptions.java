@@ -0,0 +1,255 @@
+package planner;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * A mutable set of options for how the Allocator searches for a safe
+ * allocation of events to venues.
+ * </p>
+ *
+ * <p>
+ * By default the BACKTRACKING strategy is used on a single thread, without
+ * collecting metrics, and with no limit on time or nodes.
+ * </p>
+ */
+public class AllocationOptions {
+
+    // the way to search for an allocation
+    private AllocationStrategy strategy;
+    // the number of threads to search with
+    private int threads;
+    // whether to collect the metrics of the search
+    private boolean collectMetrics;
+    // the time the search may take in nanoseconds, or zero for no limit
+    private long timeLimitNanos;
+    // the number of nodes the search may expand, or zero for no limit
+    private long nodeBudget;
+    // the token that stops the search once cancelled, or null for none
+    private CancellationToken cancellationToken;
+    // the seed of the random choices of randomised strategies
+    private long seed;
+    // the number of failed states the search may remember, or zero for none
+    private int nogoodCacheSize;
+
+    /*
+     * invariant: strategy != null && threads > 0 && timeLimitNanos >= 0 &&
+     * nodeBudget >= 0 && nogoodCacheSize >= 0
+     */
+
+    /**
+     * Creates the default options: the BACKTRACKING strategy on one thread.
+     */
+    public AllocationOptions() {
+        strategy = AllocationStrategy.BACKTRACKING;
+        threads = 1;
+    }
+
+    /**
+     * Returns the way to search for an allocation.
+     *
+     * @return the strategy to search with
+     */
+    public AllocationStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Sets the way to search for an allocation.
+     *
+     * @param strategy
+     *            the strategy to search with
+     * @throws NullPointerException
+     *             if strategy is null
+     */
+    public void setStrategy(AllocationStrategy strategy) {
+        if (strategy == null) {
+            throw new NullPointerException("strategy cannot be null");
+        }
+        this.strategy = strategy;
+    }
+
+    /**
+     * Returns the number of threads to search with.
+     *
+     * @return the number of threads to search with
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads to search with. Strategies which can't be
+     * run in parallel ignore this.
+     *
+     * @param threads
+     *            the number of threads to search with
+     * @throws IllegalArgumentException
+     *             if threads is less than or equal to zero
+     */
+    public void setThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException(
+                    "The number of threads must be greater than zero.");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Returns whether the metrics of the search are collected.
+     *
+     * @return true iff the search collects metrics
+     */
+    public boolean isCollectMetrics() {
+        return collectMetrics;
+    }
+
+    /**
+     * Sets whether the metrics of the search are collected, to be returned in
+     * the AllocationResult and added to the totals published through JMX as
+     * planner:type=Allocator. Searches that don't collect metrics don't count
+     * anything.
+     *
+     * @param collectMetrics
+     *            whether to collect metrics
+     */
+    public void setCollectMetrics(boolean collectMetrics) {
+        this.collectMetrics = collectMetrics;
+    }
+
+    /**
+     * Returns the time the search may take, in nanoseconds.
+     *
+     * @return the time limit in nanoseconds, or zero if there is none
+     */
+    public long getTimeLimitNanos() {
+        return timeLimitNanos;
+    }
+
+    /**
+     * Sets the time the search may take, after which it stops with the status
+     * BUDGET_EXHAUSTED. The deadline is this long after the search starts.
+     * The EXHAUSTIVE strategy can't be stopped, and ignores this.
+     *
+     * @param time
+     *            the time the search may take, or zero for no limit
+     * @param unit
+     *            the unit of time
+     * @throws IllegalArgumentException
+     *             if time is negative
+     * @throws NullPointerException
+     *             if unit is null
+     */
+    public void setTimeLimit(long time, TimeUnit unit) {
+        if (time < 0) {
+            throw new IllegalArgumentException(
+                    "The time limit cannot be negative.");
+        }
+        timeLimitNanos = unit.toNanos(time);
+    }
+
+    /**
+     * Returns the number of nodes the search may expand.
+     *
+     * @return the node budget, or zero if there is none
+     */
+    public long getNodeBudget() {
+        return nodeBudget;
+    }
+
+    /**
+     * Sets the number of partial allocations the search may expand, after
+     * which it stops with the status BUDGET_EXHAUSTED. Parallel searches share
+     * the budget. The EXHAUSTIVE strategy can't be stopped, and ignores this.
+     *
+     * @param nodeBudget
+     *            the number of nodes the search may expand, or zero for no
+     *            limit
+     * @throws IllegalArgumentException
+     *             if nodeBudget is negative
+     */
+    public void setNodeBudget(long nodeBudget) {
+        if (nodeBudget < 0) {
+            throw new IllegalArgumentException(
+                    "The node budget cannot be negative.");
+        }
+        this.nodeBudget = nodeBudget;
+    }
+
+    /**
+     * Returns the token that stops the search once it is cancelled.
+     *
+     * @return the cancellation token, or null if there is none
+     */
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    /**
+     * Sets the token that stops the search, with the status BUDGET_EXHAUSTED,
+     * once it is cancelled. The EXHAUSTIVE strategy can't be stopped, and
+     * ignores this.
+     *
+     * @param cancellationToken
+     *            the cancellation token, or null for none
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Returns the seed of the random choices of randomised strategies.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the seed of the random choices of randomised strategies, such as
+     * LOCAL_SEARCH, so that a search can be repeated. Each thread of a
+     * parallel search uses a different seed derived from this one. Other
+     * strategies ignore this.
+     *
+     * @param seed
+     *            the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the number of states with no safe allocation that the search
+     * may remember.
+     *
+     * @return the size of the nogood cache, or zero if there is none
+     */
+    public int getNogoodCacheSize() {
+        return nogoodCacheSize;
+    }
+
+    /**
+     * Sets the number of states with no safe allocation that the BACKTRACKING
+     * strategy may remember, so as not to search them again when they are
+     * reached by placing events in another order. Each
+     * state takes up about 40 bytes, and each thread of a parallel search has
+     * its own cache. Once the cache is full, the states that have not been
+     * reached again for the longest are forgotten. Other strategies ignore
+     * this.
+     *
+     * @param nogoodCacheSize
+     *            the number of states to remember, or zero to not remember
+     *            any
+     * @throws IllegalArgumentException
+     *             if nogoodCacheSize is negative
+     */
+    public void setNogoodCacheSize(int nogoodCacheSize) {
+        if (nogoodCacheSize < 0) {
+            throw new IllegalArgumentException(
+                    "The nogood cache size cannot be negative.");
+        }
+        this.nogoodCacheSize = nogoodCacheSize;
+    }
+
+}
@@ -0,0 +1,110 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * The outcome of a search for a safe allocation of events to venues.
+ */
+public class AllocationResult {
+
+    // how the search ended
+    private final AllocationStatus status;
+    // the safe allocation found, or null if there is none
+    private final Map<Event, Venue> allocation;
+    // the largest safe allocation of some of the events found
+    private final Map<Event, Venue> partialAllocation;
+    // why there is no safe allocation, if it was found before searching
+    private final Infeasibility infeasibility;
+    // the metrics of the search, or null if they weren't collected
+    private final SearchMetrics metrics;
+
+    /*
+     * invariant:
+     *
+     * status != null && partialAllocation != null &&
+     *
+     * (allocation != null iff status == FOUND) &&
+     *
+     * (allocation != null implies partialAllocation.equals(allocation)) &&
+     *
+     * (infeasibility != null implies status == INFEASIBLE)
+     */
+
+    /**
+     * Creates the result of a search.
+     *
+     * @require status != null && partialAllocation != null && (allocation !=
+     *          null iff status == FOUND) && allocation is null or a safe
+     *          allocation equal to partialAllocation && (infeasibility !=
+     *          null implies status == INFEASIBLE)
+     */
+    AllocationResult(AllocationStatus status, Map<Event, Venue> allocation,
+            Map<Event, Venue> partialAllocation, Infeasibility infeasibility,
+            SearchMetrics metrics) {
+        this.status = status;
+        this.allocation = allocation instanceof Allocation ? allocation
+                : allocation == null ? null : Collections.unmodifiableMap(
+                        allocation);
+        this.partialAllocation = partialAllocation instanceof Allocation
+                ? partialAllocation : Collections.unmodifiableMap(
+                        partialAllocation);
+        this.infeasibility = infeasibility;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns how the search ended.
+     *
+     * @return FOUND if a safe allocation was found, INFEASIBLE if there is
+     *         none, and BUDGET_EXHAUSTED if the search stopped before it
+     *         could tell
+     */
+    public AllocationStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the safe allocation that was found.
+     *
+     * @return an unmodifiable map from each event to its venue, which is an
+     *         Allocation giving the index of the venue of each event, or
+     *         null unless the status is FOUND
+     */
+    public Map<Event, Venue> getAllocation() {
+        return allocation;
+    }
+
+    /**
+     * Returns the safe allocation of the most events that the search found.
+     * Events that are not in the allocation were not placed.
+     *
+     * @return an unmodifiable map from some of the events to the venues they
+     *         can be safely allocated to together, which is the whole
+     *         allocation if one was found
+     */
+    public Map<Event, Venue> getPartialAllocation() {
+        return partialAllocation;
+    }
+
+    /**
+     * Returns why there is no safe allocation, if the checks made before
+     * searching could tell.
+     *
+     * @return the cause of the problem having no safe allocation, or null if
+     *         it wasn't found before searching
+     */
+    public Infeasibility getInfeasibility() {
+        return infeasibility;
+    }
+
+    /**
+     * Returns the metrics of the search, if they were collected.
+     *
+     * @return the metrics of the search, or null unless the options asked
+     *         for them to be collected
+     */
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+}
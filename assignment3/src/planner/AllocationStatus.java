@@ -0,0 +1,24 @@
+package planner;
+
+/**
+ * How a search for a safe allocation of events to venues ended.
+ */
+public enum AllocationStatus {
+
+    /**
+     * A safe allocation was found.
+     */
+    FOUND,
+
+    /**
+     * The search proved that there is no safe allocation.
+     */
+    INFEASIBLE,
+
+    /**
+     * The search stopped before it could find a safe allocation or prove that
+     * there is none, because it ran out of time or nodes or was cancelled.
+     */
+    BUDGET_EXHAUSTED;
+
+}
@@ -0,0 +1,55 @@
+package planner;
+
+/**
+ * The ways in which the Allocator can search for a safe allocation of events
+ * to venues.
+ */
+public enum AllocationStrategy {
+
+    /**
+     * Enumerates every safe allocation and returns one of them, as
+     * Allocator.allocate(List, List) does. Always single threaded.
+     */
+    EXHAUSTIVE,
+
+    /**
+     * Searches depth-first for the first safe allocation, abandoning a partial
+     * allocation as soon as its traffic is unsafe. The choices for the first
+     * event may be searched on several threads.
+     */
+    BACKTRACKING,
+
+    /**
+     * Splits the venues into components that share no corridors, gives each
+     * component the events matched to its venues by a maximum matching, and
+     * searches the components separately, on several threads if asked.
+     * Events a component can't place are matched elsewhere and the changed
+     * components searched again; if the events can't be shared out this way,
+     * the whole problem is searched as BACKTRACKING does.
+     */
+    DECOMPOSITION,
+
+    /**
+     * Encodes the problem as pseudo-Boolean constraints, with a 0/1 variable
+     * for each event and each class of equivalent venues that can host it,
+     * and a linear constraint on the traffic of each corridor, and solves
+     * them with an embedded conflict-driven clause learning solver. Suits
+     * large problems where backtracking keeps repeating the same dead ends.
+     * Searches on one thread.
+     */
+    PSEUDO_BOOLEAN,
+
+    /**
+     * Walks through allocations of every event to a distinct venue, moving
+     * events off unsafe corridors to reduce the total traffic above capacity,
+     * and sometimes accepting worse moves to escape local minima, as in
+     * simulated annealing. Suits problems too large to search exactly. It
+     * can't tell that there is no safe allocation, so it runs until it finds
+     * one or the budget runs out, which is ten seconds if the options set no
+     * time limit or node budget. Several walks with different seeds are run
+     * on several threads if asked, and the first safe allocation found is
+     * returned.
+     */
+    LOCAL_SEARCH;
+
+}
@@ -1,6 +1,8 @@
 package planner;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Provides a method for finding a safe allocation of events to venues.
@@ -37,8 +39,346 @@ public class Allocator {
         }
     }
 
+    /**
+     * <p>
+     * Returns a safe allocation of events to venues, if there is at least one
+     * possible safe allocation, or null otherwise, searching for it in the way
+     * described by the given options.
+     * </p>
+     * 
+     * <p>
+     * The given lists are not modified.
+     * </p>
+     * 
+     * @require events != null && venues != null && options != null &&
+     *          !events.contains(null) && !venues.contains(null) && events
+     *          does not contain duplicate events && venues does not contain
+     *          duplicate venues.
+     * @ensure Returns a safe allocation of events to venues, if there is at
+     *         least one possible safe allocation, or null otherwise.
+     */
+    public static Map<Event, Venue> allocate(List<Event> events,
+            List<Venue> venues, AllocationOptions options) {
+        return search(events, venues, options).getAllocation();
+    }
+
+    /**
+     * <p>
+     * Returns a safe allocation of events to the venues of the given network,
+     * if there is at least one possible safe allocation, or null otherwise,
+     * searching for it in the way described by the given options.
+     * </p>
+     * 
+     * <p>
+     * This avoids the cost of building the network when allocating many lists
+     * of events to the same venues. The given list is not modified.
+     * </p>
+     * 
+     * @require events != null && network != null && options != null &&
+     *          !events.contains(null) && events does not contain duplicate
+     *          events.
+     * @ensure Returns a safe allocation of events to venues, if there is at
+     *         least one possible safe allocation, or null otherwise.
+     */
+    public static Map<Event, Venue> allocate(List<Event> events,
+            VenueNetwork network, AllocationOptions options) {
+        return search(events, network, options).getAllocation();
+    }
+
+    /**
+     * Searches for a safe allocation of events to venues in the way described
+     * by the given options, as allocate(events, venues, options) does, and
+     * returns it together with the metrics of the search if the options ask
+     * for them.
+     * 
+     * @require events != null && venues != null && options != null &&
+     *          !events.contains(null) && !venues.contains(null) && events
+     *          does not contain duplicate events && venues does not contain
+     *          duplicate venues.
+     * @ensure Returns the result of the search, whose allocation is a safe
+     *         allocation of events to venues, if there is at least one
+     *         possible safe allocation, or null otherwise.
+     */
+    public static AllocationResult search(List<Event> events,
+            List<Venue> venues, AllocationOptions options) {
+        return search(events, venues, null, null, options);
+    }
+
+    /**
+     * Searches for a safe allocation of events to the venues of the given
+     * network in the way described by the given options, as allocate(events,
+     * network, options) does, and returns it together with the metrics of the
+     * search if the options ask for them.
+     * 
+     * @require events != null && network != null && options != null &&
+     *          !events.contains(null) && events does not contain duplicate
+     *          events.
+     * @ensure Returns the result of the search, whose allocation is a safe
+     *         allocation of events to venues, if there is at least one
+     *         possible safe allocation, or null otherwise.
+     */
+    public static AllocationResult search(List<Event> events,
+            VenueNetwork network, AllocationOptions options) {
+        return search(events, network.getVenues(), network, null, options);
+    }
+
+    /**
+     * <p>
+     * Searches for a safe allocation of events to the venues of the given
+     * network, starting from a previous allocation made before the events
+     * changed, e.g. after an event was added, removed or resized, in the way
+     * described by the given options.
+     * </p>
+     * 
+     * <p>
+     * As many events as possible are kept at the venues they had before, and
+     * only the events that have to move are searched for again, near where
+     * they were. Events that are not in the previous allocation, but have the
+     * same name as an event that is, start at its venue. If the events can't
+     * be placed by moving only a few others, the whole problem is searched as
+     * search(events, network, options) does. The EXHAUSTIVE strategy always
+     * searches the whole problem.
+     * </p>
+     * 
+     * @require events != null && network != null && previous != null &&
+     *          options != null && !events.contains(null) && events does not
+     *          contain duplicate events.
+     * @ensure Returns the result of the search, whose allocation is a safe
+     *         allocation of events to venues, if there is at least one
+     *         possible safe allocation, or null otherwise.
+     */
+    public static AllocationResult reallocate(List<Event> events,
+            VenueNetwork network, Map<Event, Venue> previous,
+            AllocationOptions options) {
+        return search(events, network.getVenues(), network, previous,
+                options);
+    }
+
+    /**
+     * Searches for a safe allocation of events to venues, building the network
+     * of the venues first if it is null, and repairing the previous
+     * allocation unless it is null.
+     * 
+     * @require network == null || network.getVenues().equals(venues)
+     */
+    private static AllocationResult search(List<Event> events,
+            List<Venue> venues, VenueNetwork network,
+            Map<Event, Venue> previous, AllocationOptions options) {
+        SearchMetrics metrics = null;
+        // when the search started, and the bytes allocated before it, if
+        // metrics are collected
+        long start = 0;
+        long bytes = 0;
+        if (options.isCollectMetrics()) {
+            metrics = new SearchMetrics();
+            start = System.nanoTime();
+            bytes = SearchMetrics.threadAllocatedBytes();
+        }
+
+        AllocationStatus status;
+        Map<Event, Venue> partial;
+        Infeasibility infeasibility = null;
+        if (options.getStrategy() == AllocationStrategy.EXHAUSTIVE) {
+            partial = allocate(events, venues);
+            status = partial == null ? AllocationStatus.INFEASIBLE
+                    : AllocationStatus.FOUND;
+            if (partial == null) {
+                partial = new HashMap<>();
+            }
+        } else {
+            SearchBudget budget = new SearchBudget(options,
+                    options.getStrategy() == AllocationStrategy.LOCAL_SEARCH
+                            ? LocalSearch.DEFAULT_TIME_LIMIT : 0);
+            Problem problem = new Problem(events, network == null
+                    ? new VenueNetwork(venues) : network);
+            if (metrics != null) {
+                metrics.encodeNanos = System.nanoTime() - start;
+            }
+            // a repair only checks the parts of the problem it searches, so
+            // the whole problem is only checked if it has to be searched
+            int[] best = previous == null ? null : new Repair(problem,
+                    previous).repair(options, budget, metrics);
+            if (best == null) {
+                long presolve = metrics == null ? 0 : System.nanoTime();
+                infeasibility = Presolve.check(problem);
+                if (metrics != null) {
+                    metrics.presolveNanos = System.nanoTime() - presolve;
+                }
+                if (infeasibility != null) {
+                    best = new int[events.size()];
+                    Arrays.fill(best, -1);
+                } else {
+                    best = search(problem, options, budget, metrics);
+                }
+            }
+            partial = problem.toMap(best);
+            if (partial.size() == events.size()) {
+                status = AllocationStatus.FOUND;
+            } else if (budget.isExhausted()
+                    || Thread.currentThread().isInterrupted()) {
+                status = AllocationStatus.BUDGET_EXHAUSTED;
+            } else {
+                status = AllocationStatus.INFEASIBLE;
+            }
+        }
+
+        if (metrics != null) {
+            metrics.searchNanos = System.nanoTime() - start
+                    - metrics.encodeNanos - metrics.presolveNanos;
+            if (metrics.allocatedBytes >= 0) {
+                metrics.allocatedBytes += SearchMetrics.threadAllocatedBytes()
+                        - bytes;
+            }
+            AllocatorMetrics.record(metrics);
+        }
+        return new AllocationResult(status, status == AllocationStatus.FOUND
+                ? partial : null, partial, infeasibility, metrics);
+    }
+
+    /**
+     * Searches for a safe allocation of the given problem with the strategy
+     * and threads of the given options, which isn't EXHAUSTIVE.
+     * 
+     * @require problem != null && options != null && budget != null
+     * @ensure Returns the safe allocation with the most placed events found,
+     *         as an array mapping each event index to a venue index or -1,
+     *         which places every event if a safe allocation was found. The
+     *         work of the search is added to metrics unless it is null.
+     */
+    static int[] search(Problem problem, AllocationOptions options,
+            SearchBudget budget, SearchMetrics metrics) {
+        if (options.getStrategy() == AllocationStrategy.LOCAL_SEARCH) {
+            return new LocalSearch(problem).search(options.getThreads(),
+                    options.getSeed(), budget, metrics);
+        }
+        if (options.getStrategy() == AllocationStrategy.PSEUDO_BOOLEAN) {
+            return new PseudoBooleanSearch(problem).search(budget, metrics);
+        }
+        if (options.getStrategy() == AllocationStrategy.DECOMPOSITION) {
+            Decomposition decomposition = new Decomposition(problem);
+            if (decomposition.size() > 1) {
+                int[] best = decomposition.search(options.getThreads(),
+                        budget, metrics);
+                if (best != null) {
+                    return best;
+                }
+            }
+        }
+        if (options.getThreads() == 1 || problem.events.isEmpty()) {
+            NogoodCache cache = options.getNogoodCacheSize() == 0 ? null
+                    : new NogoodCache(options.getNogoodCacheSize());
+            Search search = new Search(problem, new AtomicBoolean(), budget,
+                    metrics, cache);
+            search.search();
+            if (metrics != null && cache != null) {
+                metrics.nogoodBytes += cache.bytes();
+            }
+            return search.best();
+        }
+        return searchInParallel(problem, options.getThreads(),
+                options.getNogoodCacheSize(), budget, metrics);
+    }
+
+    /**
+     * Searches for the first safe allocation of the given problem on the given
+     * number of threads, by searching from each venue that can host the first
+     * event in a separate task, the closest fit first. Unless cacheSize is
+     * zero, the tasks run on a thread share a nogood cache of that size.
+     * 
+     * @require problem != null && problem has at least one event && threads >
+     *          0 && cacheSize >= 0 && budget != null
+     * @ensure Returns the safe allocation with the most placed events found by
+     *         any task, as an array mapping each event index to a venue index
+     *         or -1, which places every event if a safe allocation was found.
+     *         The work of every task is added to metrics unless it is null.
+     */
+    private static int[] searchInParallel(final Problem problem, int threads,
+            final int cacheSize, final SearchBudget budget,
+            final SearchMetrics metrics) {
+        // set once an allocation is found to stop the other tasks
+        final AtomicBoolean stop = new AtomicBoolean();
+        // the nogood cache of each thread, and every cache created
+        final List<NogoodCache> allCaches = Collections.synchronizedList(
+                new ArrayList<NogoodCache>());
+        final ThreadLocal<NogoodCache> caches = new ThreadLocal<NogoodCache>() {
+            @Override
+            protected NogoodCache initialValue() {
+                if (cacheSize == 0) {
+                    return null;
+                }
+                NogoodCache cache = new NogoodCache(cacheSize);
+                allCaches.add(cache);
+                return cache;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CompletionService<Search> tasks = new ExecutorCompletionService<>(
+                executor);
+        // the finished search with the most placed events
+        Search best = new Search(problem, stop, budget, null);
+        try {
+            // the venues that can host the first event, the closest fit first
+            int first = problem.firstFit(best.eventAt(0));
+            for (int i = first; i < problem.byCapacity.length; i++) {
+                final int venue = problem.byCapacity[i];
+                tasks.submit(new Callable<Search>() {
+                    @Override
+                    public Search call() {
+                        if (metrics == null) {
+                            Search search = new Search(problem, stop, budget,
+                                    null, caches.get());
+                            search.searchFrom(venue);
+                            return search;
+                        }
+                        SearchMetrics part = new SearchMetrics();
+                        long bytes = SearchMetrics.threadAllocatedBytes();
+                        Search search = new Search(problem, stop, budget,
+                                part, caches.get());
+                        search.searchFrom(venue);
+                        if (part.allocatedBytes >= 0) {
+                            part.allocatedBytes = SearchMetrics
+                                    .threadAllocatedBytes() - bytes;
+                        }
+                        synchronized (metrics) {
+                            metrics.add(part);
+                        }
+                        return search;
+                    }
+                });
+            }
+            for (int i = first; i < problem.byCapacity.length; i++) {
+                Search search = tasks.take().get();
+                if (search.bestDepth() > best.bestDepth()) {
+                    best = search;
+                }
+                if (best.bestDepth() == best.depth()) {
+                    stop.set(true);
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop.set(true);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        if (metrics != null) {
+            synchronized (metrics) {
+                synchronized (allCaches) {
+                    for (NogoodCache cache : allCaches) {
+                        metrics.nogoodBytes += cache.bytes();
+                    }
+                }
+            }
+        }
+        return best.best();
+    }
+
     /**
      * Returns the set of all possible safe allocations of events to venues.
+     * The given lists are not modified.
      * 
      * @require events != null && venues != null && !events.contains(null) &&
      *          !venues.contains(null) && events does not contain duplicate
@@ -49,69 +389,102 @@ public class Allocator {
      */
     private static Set<Map<Event, Venue>> allocations(List<Event> events,
             List<Venue> venues) {
-        // set of possible allocations
+        // every allocation shares the same copies of the lists
+        Problem problem = new Problem(events, venues);
+        // the venues that are not yet hosting an event, by index
+        BitSet free = new BitSet(venues.size());
+        free.set(0, venues.size());
+        // the traffic on each corridor, for checking allocations, which is
+        // zero between checks
+        int[] load = new int[problem.corridors.length];
+
         Set<Map<Event, Venue>> result = new HashSet<>();
+        for (int[] allocation : allocations(problem, 0, free, load)) {
+            result.add(new Allocation(problem.events, problem.eventIds,
+                    problem.venues, allocation));
+        }
+        return result;
+    }
+
+    /**
+     * Returns all possible safe allocations of the events of the problem from
+     * index next on to the free venues, each as an array mapping the index of
+     * each event to the index of its venue, with -1 for the events before
+     * next. The set of free venues is the same when this returns as when it
+     * was called.
+     * 
+     * @require problem != null && free != null && 0 <= next <=
+     *          problem.sizes.length && free only contains indices of venues
+     *          && load.length == problem.corridors.length && every load
+     *          is zero
+     * @ensure Returns every possible safe allocation of events[next..] to the
+     *         venues whose indices are in free, each in a new array.
+     */
+    private static List<int[]> allocations(Problem problem, int next,
+            BitSet free, int[] load) {
+        // list of possible allocations
+        List<int[]> result = new ArrayList<>();
 
         /* BASE CASE: no more events to allocate */
-        if (events.isEmpty()) {
-            result.add(new HashMap<Event, Venue>());
+        if (next == problem.sizes.length) {
+            int[] allocation = new int[problem.sizes.length];
+            Arrays.fill(allocation, -1);
+            result.add(allocation);
             return result;
         }
 
         /* RECURSIVE CASE: there is at least one more event to allocate. */
-        // the event to be allocated next
-        Event event = events.get(0);
-        // the rest of the events to be allocated
-        List<Event> remainingEvents = events.subList(1, events.size());
-        for (int i = 0; i < venues.size(); i++) {
-            // find possible safe allocations of event at the ith venue
-            Venue venue = venues.get(i);
-            if (venue.canHost(event)) {
-                venues.remove(i); // remove venue from available venues
-                Set<Map<Event, Venue>> allocations = allocations(
-                        remainingEvents, venues);
-                for (Map<Event, Venue> allocation : allocations) {
-                    allocation.put(event, venue);
-                    if (safeTraffic(allocation)) {
+        for (int i = free.nextSetBit(0); i >= 0; i = free.nextSetBit(i + 1)) {
+            // find possible safe allocations of event next at the ith venue
+            if (problem.canHost(next, i)) {
+                free.clear(i); // remove venue from available venues
+                List<int[]> allocations = allocations(problem, next + 1, free,
+                        load);
+                for (int[] allocation : allocations) {
+                    allocation[next] = i;
+                    if (safeTraffic(problem, next, allocation, load)) {
                         result.add(allocation);
                     }
                 }
-                venues.add(i, venue); // add venue back to available venues
+                free.set(i); // add venue back to available venues
             }
         }
         return result;
     }
 
     /**
-     * Returns the traffic caused by the given allocation.
-     * 
-     * @requires allocation!=null && the keys in allocation are not null and
-     *           each event in keySet of allocation maps to a non-null venue
-     *           that can host that event.
-     * @ensures returns the traffic caused by the given allocation.
-     */
-    private static Traffic getUsageOf(Map<Event, Venue> allocation) {
-        Traffic result = new Traffic();
-        for (Event event : allocation.keySet()) {
-            Venue venue = allocation.get(event);
-            result.addTraffic(venue.getTraffic(event));
-        }
-        return result;
-    }
-
-    /**
-     * Returns true if the traffic caused by the given allocation is safe, and
-     * false otherwise.
+     * Returns true if the traffic caused by the given allocation of the
+     * events from index next on is safe, and false otherwise, using load to
+     * add up the traffic on each corridor. Only the corridors of the
+     * allocated venues are read, and they are set back to zero before this
+     * returns, so the cost does not grow with the number of corridors.
      * 
-     * @requires allocation!=null && the keys in allocation are not null and
-     *           each event in keySet of allocation maps to a non-null venue
-     *           that can host that event.
+     * @requires problem != null && allocation != null && allocation maps each
+     *           index of events from next on to the index of a venue that can
+     *           host that event && load.length == problem.corridors.length &&
+     *           every load is zero
      * @ensures returns whether or not the traffic in the given allocation is
-     *          safe.
+     *          safe, and leaves every load zero.
      */
-    private static boolean safeTraffic(Map<Event, Venue> allocation) {
-        Traffic traffic = getUsageOf(allocation);
-        return traffic.isSafe();
+    private static boolean safeTraffic(Problem problem, int next,
+            int[] allocation, int[] load) {
+        for (int e = next; e < allocation.length; e++) {
+            int v = allocation[e];
+            TrafficKernels.add(load, problem.venueCorridors[v],
+                    problem.venueTraffic[v], problem.sizes[e],
+                    problem.capacities[v]);
+        }
+        boolean safe = true;
+        for (int e = next; e < allocation.length; e++) {
+            for (int c : problem.venueCorridors[allocation[e]]) {
+                // the first venue using c sees its total load
+                if (load[c] > problem.corridorCapacities[c]) {
+                    safe = false;
+                }
+                load[c] = 0;
+            }
+        }
+        return safe;
     }
 
 }
@@ -0,0 +1,129 @@
+package planner;
+
+import java.lang.management.ManagementFactory;
+import javax.management.*;
+
+/**
+ * The totals of the metrics of every search that collected metrics, which are
+ * published through JMX when the first such search finishes.
+ */
+class AllocatorMetrics implements AllocatorMetricsMXBean {
+
+    // the name the totals are registered under
+    final static String NAME = "planner:type=Allocator";
+
+    // the totals of every search, registered with the platform MBean server
+    private final static AllocatorMetrics INSTANCE = register();
+
+    // the number of searches recorded
+    private long searches;
+    // the totals of the recorded searches
+    private SearchMetrics totals = new SearchMetrics();
+
+    /**
+     * Adds the metrics of a finished search to the totals.
+     *
+     * @require metrics != null
+     */
+    static void record(SearchMetrics metrics) {
+        synchronized (INSTANCE) {
+            INSTANCE.searches++;
+            INSTANCE.totals.add(metrics);
+            INSTANCE.totals.encodeNanos += metrics.encodeNanos;
+            INSTANCE.totals.presolveNanos += metrics.presolveNanos;
+            INSTANCE.totals.searchNanos += metrics.searchNanos;
+        }
+    }
+
+    /**
+     * Creates the totals and registers them, if the platform MBean server
+     * allows it.
+     */
+    private static AllocatorMetrics register() {
+        AllocatorMetrics metrics = new AllocatorMetrics();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+                    new ObjectName(NAME));
+        } catch (JMException | SecurityException e) {
+            // the totals are still kept, but can't be seen through JMX
+        }
+        return metrics;
+    }
+
+    @Override
+    public synchronized long getSearches() {
+        return searches;
+    }
+
+    @Override
+    public synchronized long getNodes() {
+        return totals.nodes;
+    }
+
+    @Override
+    public synchronized long getCapacityPrunes() {
+        return totals.capacityPrunes;
+    }
+
+    @Override
+    public synchronized long getCorridorPrunes() {
+        return totals.corridorPrunes;
+    }
+
+    @Override
+    public synchronized long getSymmetryPrunes() {
+        return totals.symmetryPrunes;
+    }
+
+    @Override
+    public synchronized long getBacktracks() {
+        return totals.backtracks;
+    }
+
+    @Override
+    public synchronized int getMaxDepth() {
+        return totals.maxDepth;
+    }
+
+    @Override
+    public synchronized long getNogoodLookups() {
+        return totals.nogoodLookups;
+    }
+
+    @Override
+    public synchronized long getNogoodHits() {
+        return totals.nogoodHits;
+    }
+
+    @Override
+    public synchronized long getNogoodBytes() {
+        return totals.nogoodBytes;
+    }
+
+    @Override
+    public synchronized long getEncodeMillis() {
+        return totals.encodeNanos / 1000000;
+    }
+
+    @Override
+    public synchronized long getPresolveMillis() {
+        return totals.presolveNanos / 1000000;
+    }
+
+    @Override
+    public synchronized long getSearchMillis() {
+        return totals.searchNanos / 1000000;
+    }
+
+    @Override
+    public synchronized long getAllocatedBytes() {
+        return totals.allocatedBytes;
+    }
+
+    @Override
+    public synchronized void reset() {
+        searches = 0;
+        totals = new SearchMetrics();
+    }
+
+}
@@ -0,0 +1,88 @@
+package planner;
+
+/**
+ * The management interface of the totals of the metrics of every search by
+ * the Allocator that collected metrics, registered with the platform MBean
+ * server as planner:type=Allocator.
+ */
+public interface AllocatorMetricsMXBean {
+
+    /**
+     * Returns the number of searches that collected metrics.
+     */
+    long getSearches();
+
+    /**
+     * Returns the total number of partial allocations expanded.
+     */
+    long getNodes();
+
+    /**
+     * Returns the total number of venues skipped for being too small.
+     */
+    long getCapacityPrunes();
+
+    /**
+     * Returns the total number of venues skipped for overflowing a corridor.
+     */
+    long getCorridorPrunes();
+
+    /**
+     * Returns the total number of venues skipped for being equivalent to a
+     * venue already tried.
+     */
+    long getSymmetryPrunes();
+
+    /**
+     * Returns the total number of events taken back out of their venue.
+     */
+    long getBacktracks();
+
+    /**
+     * Returns the largest number of events placed at once by any search.
+     */
+    int getMaxDepth();
+
+    /**
+     * Returns the total number of states looked up in nogood caches.
+     */
+    long getNogoodLookups();
+
+    /**
+     * Returns the total number of states not searched again because they were
+     * in a nogood cache.
+     */
+    long getNogoodHits();
+
+    /**
+     * Returns the total bytes taken up by nogood caches.
+     */
+    long getNogoodBytes();
+
+    /**
+     * Returns the total time spent encoding problems, in milliseconds.
+     */
+    long getEncodeMillis();
+
+    /**
+     * Returns the total time spent checking problems before searching, in
+     * milliseconds.
+     */
+    long getPresolveMillis();
+
+    /**
+     * Returns the total time spent searching, in milliseconds.
+     */
+    long getSearchMillis();
+
+    /**
+     * Returns the total bytes allocated by searches, or -1 if unknown.
+     */
+    long getAllocatedBytes();
+
+    /**
+     * Sets every total back to zero.
+     */
+    void reset();
+
+}
@@ -0,0 +1,29 @@
+package planner;
+
+/**
+ * A flag that can be set from any thread to ask the searches given it to stop
+ * as soon as they can.
+ */
+public class CancellationToken {
+
+    // whether the searches have been asked to stop
+    private volatile boolean cancelled;
+
+    /**
+     * Asks the searches given this token to stop. They return a result with
+     * the status BUDGET_EXHAUSTED unless they have already finished.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns whether cancel has been called.
+     *
+     * @return true iff the searches have been asked to stop
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+}
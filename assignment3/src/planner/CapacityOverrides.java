@@ -0,0 +1,161 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * A mutable set of changes to the capacities of traffic corridors, e.g. for
+ * roadworks or incidents, that safety checks consult instead of the capacity
+ * of each Corridor.
+ * </p>
+ *
+ * <p>
+ * Changes are keyed by the start and end locations of a corridor, so that a
+ * corridor's capacity can change without building new Corridor and Venue
+ * objects. A change applies to every corridor between the given locations,
+ * whatever its own capacity. A capacity of zero closes the corridor.
+ * </p>
+ */
+public class CapacityOverrides {
+
+    // the capacity of the corridors between each start and end location
+    private final Map<List<Location>, Integer> capacities;
+
+    /*
+     * invariant: capacities != null && each key holds two distinct, non-null
+     * locations && each value is non-null and >= 0
+     */
+
+    /**
+     * Creates a set of overrides that changes no capacities.
+     */
+    public CapacityOverrides() {
+        capacities = new HashMap<>();
+    }
+
+    /**
+     * Creates a copy of the given overrides. Future changes to either do not
+     * affect the other.
+     *
+     * @param overrides
+     *            the overrides to copy
+     * @throws NullPointerException
+     *             if overrides is null
+     */
+    public CapacityOverrides(CapacityOverrides overrides) {
+        capacities = new HashMap<>(overrides.capacities);
+    }
+
+    /**
+     * Sets the capacity of the corridors from start to end, replacing any
+     * earlier override of them.
+     *
+     * @param start
+     *            the start location of the corridors
+     * @param end
+     *            the end location of the corridors
+     * @param capacity
+     *            the capacity the corridors have instead, or zero if they are
+     *            closed
+     * @throws NullPointerException
+     *             if start or end is null
+     * @throws IllegalArgumentException
+     *             if start is equal to end, or capacity is negative
+     */
+    public void setCapacity(Location start, Location end, int capacity) {
+        List<Location> key = key(start, end);
+        if (capacity < 0) {
+            throw new IllegalArgumentException(
+                    "The capacity of a corridor cannot be negative.");
+        }
+        capacities.put(key, capacity);
+    }
+
+    /**
+     * Removes the override of the corridors from start to end, if any, so
+     * that they have their own capacities again.
+     *
+     * @param start
+     *            the start location of the corridors
+     * @param end
+     *            the end location of the corridors
+     * @throws NullPointerException
+     *             if start or end is null
+     * @throws IllegalArgumentException
+     *             if start is equal to end
+     */
+    public void clearCapacity(Location start, Location end) {
+        capacities.remove(key(start, end));
+    }
+
+    /**
+     * Returns true iff the capacity of the given corridor is overridden.
+     *
+     * @param corridor
+     *            the corridor to look up
+     * @return true iff there is an override for the start and end locations
+     *         of the corridor
+     * @throws NullPointerException
+     *             if corridor is null
+     */
+    public boolean isOverridden(Corridor corridor) {
+        return capacities.containsKey(key(corridor));
+    }
+
+    /**
+     * Returns the capacity of the given corridor, taking these overrides into
+     * account.
+     *
+     * @param corridor
+     *            the corridor to look up
+     * @return the capacity set for the locations of the corridor if it is
+     *         overridden, and the capacity of the corridor otherwise
+     * @throws NullPointerException
+     *             if corridor is null
+     */
+    public int getCapacity(Corridor corridor) {
+        Integer capacity = capacities.get(key(corridor));
+        return capacity == null ? corridor.getCapacity() : capacity;
+    }
+
+    /**
+     * Returns the start and end locations of each override, as lists of two
+     * locations.
+     */
+    Set<List<Location>> endpoints() {
+        return capacities.keySet();
+    }
+
+    /**
+     * Returns the key of the corridors between the given locations.
+     *
+     * @throws NullPointerException
+     *             if start or end is null
+     * @throws IllegalArgumentException
+     *             if start is equal to end
+     */
+    private static List<Location> key(Location start, Location end) {
+        if (start == null || end == null) {
+            throw new NullPointerException(
+                    "Neither the start or end location can be null.");
+        }
+        if (start.equals(end)) {
+            throw new IllegalArgumentException(
+                    "The start and end locations must be distinct.");
+        }
+        return Arrays.asList(start, end);
+    }
+
+    /**
+     * Returns the key of the given corridor.
+     */
+    static List<Location> key(Corridor corridor) {
+        return Arrays.asList(corridor.getStart(), corridor.getEnd());
+    }
+
+    @Override
+    public String toString() {
+        return capacities.toString();
+    }
+
+}
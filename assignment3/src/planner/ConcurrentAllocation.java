@@ -0,0 +1,236 @@
+package planner;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * <p>
+ * An allocation of events to the venues of a network that several threads
+ * can add events to and remove events from at the same time, e.g. several
+ * operators or the handlers of a service, without locking.
+ * </p>
+ *
+ * <p>
+ * The traffic on each corridor is kept in an atomic counter. Adding an event
+ * claims its venue, then reserves the event's traffic on each corridor of the
+ * venue with a compare-and-set that only succeeds if the corridor stays
+ * within its capacity. If a reservation fails, the reservations already made
+ * are taken back and the venue is released, so no two additions can together
+ * make a corridor unsafe, whatever order they run in.
+ * </p>
+ *
+ * <p>
+ * An addition fails if the venue is taken, the event is already allocated,
+ * or there is not enough capacity left. Capacity can also be missing only
+ * for a moment: an addition that will fail on a later corridor holds its
+ * reservations on the earlier ones until it takes them back, and another
+ * addition that needs that capacity fails in the meantime. Waiting for the
+ * rollback instead would make additions block each other, so such an
+ * addition is not retried; a caller that needs a definite answer can retry
+ * it once the competing additions have finished.
+ * </p>
+ *
+ * <p>
+ * Reads see each event either entirely allocated or not at all, but a read of
+ * several values is not a consistent snapshot while events are being added
+ * and removed.
+ * </p>
+ */
+public class ConcurrentAllocation {
+
+    // the network of the venues events are allocated to
+    private final VenueNetwork network;
+    // the traffic of the allocation on each corridor of the network
+    private final AtomicIntegerArray load;
+    // the event at each venue, or null if the venue is free
+    private final AtomicReferenceArray<Event> occupants;
+    // the index of the venue of each allocated event
+    private final ConcurrentMap<Event, Integer> venueOf;
+
+    /*
+     * invariant:
+     *
+     * network != null && load.length() == network.corridors.length &&
+     * occupants.length() == network.venues.size() && venueOf != null &&
+     *
+     * venueOf.get(e) == v iff occupants.get(v) == e, except while e is being
+     * added or removed &&
+     *
+     * load.get(c) is the traffic on corridor c of the events being added or
+     * allocated, and is at most network.corridorCapacities[c]
+     */
+
+    /**
+     * Creates an empty allocation to the venues of the given network, whose
+     * capacities it checks the traffic against.
+     *
+     * @param network
+     *            the venues that events can be allocated to
+     * @throws NullPointerException
+     *             if network is null
+     */
+    public ConcurrentAllocation(VenueNetwork network) {
+        if (network == null) {
+            throw new NullPointerException("network cannot be null");
+        }
+        this.network = network;
+        load = new AtomicIntegerArray(network.corridors.length);
+        occupants = new AtomicReferenceArray<>(network.venues.size());
+        venueOf = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the network of the venues of the allocation.
+     *
+     * @return the network of the allocation
+     */
+    public VenueNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * Allocates the given event to the given venue, if the venue can host it,
+     * neither of them is already allocated, and the traffic stays safe.
+     *
+     * @param event
+     *            the event to allocate
+     * @param venue
+     *            the venue to allocate it to
+     * @return true iff the event was allocated to the venue, which may be
+     *         false while a competing addition is being rolled back
+     * @throws NullPointerException
+     *             if event or venue is null
+     * @throws IllegalArgumentException
+     *             if the venue is not in the network
+     */
+    public boolean addEvent(Event event, Venue venue) {
+        if (event == null || venue == null) {
+            throw new NullPointerException("Parameters cannot be null");
+        }
+        int v = network.indexOf(venue);
+        if (v < 0) {
+            throw new IllegalArgumentException("The venue " + venue.getName()
+                    + " is not in the network.");
+        }
+        int size = event.getSize();
+        int capacity = network.capacities[v];
+        if (size > capacity || venueOf.containsKey(event)
+                || !occupants.compareAndSet(v, null, event)) {
+            return false;
+        }
+
+        int[] corridors = network.venueCorridors[v];
+        int[] traffic = network.venueTraffic[v];
+        for (int k = 0; k < corridors.length; k++) {
+            if (!reserve(corridors[k], (size * traffic[k]) / capacity)) {
+                release(event, v, k);
+                return false;
+            }
+        }
+        if (venueOf.putIfAbsent(event, v) != null) {
+            // the event was allocated elsewhere in the meantime
+            release(event, v, corridors.length);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the given event from the allocation, if it is allocated.
+     *
+     * @param event
+     *            the event to remove
+     * @return true iff the event was allocated, and has been removed
+     * @throws NullPointerException
+     *             if event is null
+     */
+    public boolean removeEvent(Event event) {
+        if (event == null) {
+            throw new NullPointerException("event cannot be null");
+        }
+        Integer v = venueOf.remove(event);
+        if (v == null) {
+            return false;
+        }
+        release(event, v, network.venueCorridors[v].length);
+        return true;
+    }
+
+    /**
+     * Returns the venue the given event is allocated to.
+     *
+     * @param event
+     *            the event to look up
+     * @return the venue of the event, or null if it is not allocated
+     */
+    public Venue getVenue(Event event) {
+        Integer v = venueOf.get(event);
+        return v == null ? null : network.venues.get(v);
+    }
+
+    /**
+     * Returns the traffic of the allocation on the given corridor.
+     *
+     * @param corridor
+     *            the corridor to look up
+     * @return the traffic on the corridor, which is zero if no venue of the
+     *         network uses it
+     * @throws NullPointerException
+     *             if corridor is null
+     */
+    public int getTraffic(Corridor corridor) {
+        int c = network.corridorId(corridor);
+        return c < 0 ? 0 : load.get(c);
+    }
+
+    /**
+     * Returns a copy of the allocation, as a map from each allocated event to
+     * its venue.
+     *
+     * @return a new map of the events allocated while it was copied
+     */
+    public Map<Event, Venue> getAllocation() {
+        Map<Event, Venue> result = new HashMap<>();
+        for (Map.Entry<Event, Integer> entry : venueOf.entrySet()) {
+            result.put(entry.getKey(), network.venues.get(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Adds amount to the traffic on corridor c if it stays within the
+     * corridor's capacity, and returns whether it did.
+     */
+    private boolean reserve(int c, int amount) {
+        int capacity = network.corridorCapacities[c];
+        while (true) {
+            int current = load.get(c);
+            if (current + amount > capacity) {
+                return false;
+            }
+            if (load.compareAndSet(c, current, current + amount)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Takes the traffic of the event at venue v off its first count
+     * corridors, and frees the venue.
+     *
+     * @require occupants.get(v) == event && the event's traffic is reserved
+     *          on the first count corridors of v
+     */
+    private void release(Event event, int v, int count) {
+        int size = event.getSize();
+        int capacity = network.capacities[v];
+        int[] corridors = network.venueCorridors[v];
+        int[] traffic = network.venueTraffic[v];
+        for (int k = 0; k < count; k++) {
+            load.addAndGet(corridors[k], -((size * traffic[k]) / capacity));
+        }
+        occupants.set(v, null);
+    }
+
+}
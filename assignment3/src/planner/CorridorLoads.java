@@ -0,0 +1,179 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * The traffic that an allocation of events to the venues of a network
+ * generates on each of its corridors, for re-checking the allocation quickly
+ * when the capacities of some corridors change.
+ * </p>
+ *
+ * <p>
+ * Building the loads takes time proportional to the total number of
+ * corridors of the allocated venues, but once built, checking the allocation
+ * against a set of CapacityOverrides only looks at the overridden corridors.
+ * If some of them become unsafe, Allocator.reallocate with the network
+ * returned by VenueNetwork.withOverrides moves only the events near them.
+ * </p>
+ *
+ * <p>
+ * The loads do not change if the allocation is later modified.
+ * </p>
+ */
+public class CorridorLoads {
+
+    // the corridors of the allocated venues
+    private final Corridor[] corridors;
+    // the network or the matrix of the allocated venues, whichever the loads
+    // were worked out from, for looking up corridors
+    private final VenueNetwork network;
+    private final TrafficMatrix matrix;
+    // the traffic generated on each corridor
+    private final long[] load;
+
+    /*
+     * invariant: corridors != null && exactly one of network and matrix is
+     * null && corridors are the corridors of the other && load.length ==
+     * corridors.length && load[c] is the traffic of the allocation on
+     * corridor c
+     */
+
+    /**
+     * Works out the traffic that the given allocation generates on each
+     * corridor of the given network.
+     *
+     * @param network
+     *            the network of the venues of the allocation
+     * @param allocation
+     *            an allocation of events to venues of the network
+     * @throws NullPointerException
+     *             if network or allocation is null, or allocation contains
+     *             null
+     * @throws IllegalArgumentException
+     *             if a venue of the allocation is not in the network, or an
+     *             event is larger than the capacity of its venue
+     */
+    public CorridorLoads(VenueNetwork network, Map<Event, Venue> allocation) {
+        if (network == null || allocation == null) {
+            throw new NullPointerException("Parameters cannot be null");
+        }
+        this.network = network;
+        matrix = null;
+        corridors = network.corridors;
+        load = new long[corridors.length];
+        for (Map.Entry<Event, Venue> entry : allocation.entrySet()) {
+            int v = network.indexOf(entry.getValue());
+            if (v < 0) {
+                throw new IllegalArgumentException(
+                        "The venue " + entry.getValue().getName()
+                                + " is not in the network.");
+            }
+            int size = entry.getKey().getSize();
+            int capacity = network.capacities[v];
+            if (size > capacity) {
+                throw new IllegalArgumentException(
+                        "The size of the event cannot exceed the venue's "
+                                + "capacity");
+            }
+            int[] used = network.venueCorridors[v];
+            for (int k = 0; k < used.length; k++) {
+                load[used[k]] += (size * network.venueTraffic[v][k])
+                        / capacity;
+            }
+        }
+    }
+
+    /**
+     * Works out the traffic that the given allocation generates on each
+     * corridor of the given matrix, adding up the rows of the matrix instead
+     * of the traffic of the venues.
+     *
+     * @param matrix
+     *            the traffic of the venues of the allocation
+     * @param allocation
+     *            an allocation of events to venues of the matrix
+     * @throws NullPointerException
+     *             if matrix or allocation is null, or allocation contains
+     *             null
+     * @throws IllegalArgumentException
+     *             if a venue of the allocation is not in the matrix, or an
+     *             event is larger than the capacity of its venue
+     * @throws IllegalStateException
+     *             if the matrix is closed
+     */
+    public CorridorLoads(TrafficMatrix matrix, Map<Event, Venue> allocation) {
+        if (matrix == null || allocation == null) {
+            throw new NullPointerException("Parameters cannot be null");
+        }
+        network = null;
+        this.matrix = matrix;
+        corridors = matrix.corridors;
+        load = new long[corridors.length];
+        for (Map.Entry<Event, Venue> entry : allocation.entrySet()) {
+            matrix.addTraffic(entry.getValue(), entry.getKey().getSize(),
+                    load);
+        }
+    }
+
+    /**
+     * Returns the traffic that the allocation generates on the given
+     * corridor.
+     *
+     * @param corridor
+     *            the corridor to look up
+     * @return the traffic on the corridor, which is zero if no venue of the
+     *         network uses it
+     * @throws NullPointerException
+     *             if corridor is null
+     */
+    public long getLoad(Corridor corridor) {
+        if (corridor == null) {
+            throw new NullPointerException("corridor cannot be null");
+        }
+        for (int c : corridorsBetween(CapacityOverrides.key(corridor))) {
+            if (corridors[c].equals(corridor)) {
+                return load[c];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the corridors of the network whose capacities are overridden,
+     * and which the allocation makes unsafe with the overridden capacities.
+     * This takes time proportional to the number of overrides, so the other
+     * corridors, whose capacities are the same as in the network, are not
+     * checked again.
+     *
+     * @param overrides
+     *            the changes to the capacities of the corridors
+     * @return the overridden corridors whose traffic is more than their new
+     *         capacity, which is empty if the allocation is still safe on
+     *         them
+     * @throws NullPointerException
+     *             if overrides is null
+     */
+    public Set<Corridor> getUnsafeCorridors(CapacityOverrides overrides) {
+        Set<Corridor> result = new HashSet<>();
+        for (List<Location> endpoints : overrides.endpoints()) {
+            for (int c : corridorsBetween(endpoints)) {
+                Corridor corridor = corridors[c];
+                if (load[c] > overrides.getCapacity(corridor)) {
+                    result.add(corridor);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the indices of the corridors between the given start and end
+     * locations, as a list of two locations.
+     */
+    private int[] corridorsBetween(List<Location> endpoints) {
+        return network != null ? network.corridorsBetween(endpoints)
+                : matrix.corridorsBetween(endpoints);
+    }
+
+}
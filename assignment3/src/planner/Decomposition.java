@@ -0,0 +1,287 @@
+package planner;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * A split of the venues of a problem into components, where venues in
+ * different components share no corridors. Events held in different
+ * components can't affect each other's traffic, so once it is decided which
+ * events are held in each component, the components can be searched
+ * separately, and in parallel.
+ * </p>
+ *
+ * <p>
+ * The events are shared out between the components by a maximum matching of
+ * events to venues that can host them: each event goes to the component of
+ * the venue it is matched with. If some component can't place all the events
+ * it was given, the events it couldn't place are kept away from its venues in
+ * the next matching, and the components whose events changed are searched
+ * again. If the events can no longer be matched, or they haven't been shared
+ * out successfully after a number of rounds, the decomposition gives up, and
+ * the whole problem has to be searched instead.
+ * </p>
+ */
+class Decomposition {
+
+    // the most times the events are shared out before giving up
+    private final static int MAX_ROUNDS = 64;
+
+    // the problem being split
+    private final Problem problem;
+    // the venues in each component, in ascending order
+    private final List<List<Integer>> components;
+    // the component of each venue
+    private final int[] componentOf;
+
+    /*
+     * invariant:
+     *
+     * each venue is in exactly one component, componentOf[v] is its index in
+     * components, and venues that share a corridor are in the same component
+     */
+
+    /**
+     * Splits the venues of the problem into components.
+     *
+     * @require problem != null
+     */
+    Decomposition(Problem problem) {
+        this.problem = problem;
+        int venues = problem.capacities.length;
+
+        // a forest of venues, where the root of each tree names its component
+        int[] parent = new int[venues];
+        for (int v = 0; v < venues; v++) {
+            parent[v] = v;
+        }
+        // the first venue to use each corridor
+        int[] first = new int[problem.corridors.length];
+        Arrays.fill(first, -1);
+        for (int v = 0; v < venues; v++) {
+            for (int c : problem.venueCorridors[v]) {
+                if (first[c] < 0) {
+                    first[c] = v;
+                } else {
+                    parent[find(parent, v)] = find(parent, first[c]);
+                }
+            }
+        }
+
+        components = new ArrayList<>();
+        componentOf = new int[venues];
+        int[] componentOfRoot = new int[venues];
+        Arrays.fill(componentOfRoot, -1);
+        for (int v = 0; v < venues; v++) {
+            int root = find(parent, v);
+            if (componentOfRoot[root] < 0) {
+                componentOfRoot[root] = components.size();
+                components.add(new ArrayList<Integer>());
+            }
+            componentOf[v] = componentOfRoot[root];
+            components.get(componentOf[v]).add(v);
+        }
+    }
+
+    /**
+     * Returns the root of the tree containing the venue, halving the path to
+     * it on the way.
+     */
+    private static int find(int[] parent, int venue) {
+        while (parent[venue] != venue) {
+            parent[venue] = parent[parent[venue]];
+            venue = parent[venue];
+        }
+        return venue;
+    }
+
+    /**
+     * Returns the number of components.
+     */
+    int size() {
+        return components.size();
+    }
+
+    /**
+     * Searches each component for a safe allocation of the events matched to
+     * its venues, on the given number of threads.
+     *
+     * @require threads > 0 && budget != null
+     * @return the allocation found, as an array mapping each event index to a
+     *         venue index; the events placed so far, or -1, if the budget ran
+     *         out; or null if the events couldn't be shared out between the
+     *         components
+     */
+    int[] search(int threads, SearchBudget budget, SearchMetrics metrics) {
+        int events = problem.events.size();
+        Presolve presolve = new Presolve(problem);
+        // the venues each event may not be matched to
+        BitSet[] excluded = new BitSet[events];
+        // the events each component was last searched with, and whether it
+        // placed them all
+        List<List<Integer>> searched = new ArrayList<>();
+        boolean[] solved = new boolean[components.size()];
+        for (int i = 0; i < components.size(); i++) {
+            searched.add(new ArrayList<Integer>());
+            solved[i] = true;
+        }
+        int[] result = new int[events];
+        Arrays.fill(result, -1);
+        int[] matching = null;
+
+        ExecutorService executor = threads == 1 ? null : Executors
+                .newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < MAX_ROUNDS; round++) {
+                matching = presolve.matching(excluded, matching);
+                List<List<Integer>> eventsOf = new ArrayList<>();
+                for (int i = 0; i < components.size(); i++) {
+                    eventsOf.add(new ArrayList<Integer>());
+                }
+                for (int e = 0; e < events; e++) {
+                    if (matching[e] < 0) {
+                        return null;
+                    }
+                    eventsOf.get(componentOf[matching[e]]).add(e);
+                }
+
+                // search the components whose events have changed
+                List<Integer> changed = new ArrayList<>();
+                for (int i = 0; i < components.size(); i++) {
+                    if (!eventsOf.get(i).equals(searched.get(i))) {
+                        for (int e : searched.get(i)) {
+                            result[e] = -1;
+                        }
+                        searched.set(i, eventsOf.get(i));
+                        changed.add(i);
+                    }
+                }
+                solve(changed, searched, executor, budget, metrics, solved,
+                        result);
+                if (budget.isExhausted()
+                        || Thread.currentThread().isInterrupted()) {
+                    return result;
+                }
+
+                // stop the events a component couldn't place from being
+                // matched to it again
+                boolean found = true;
+                for (int i = 0; i < components.size(); i++) {
+                    if (!solved[i]) {
+                        found = false;
+                        for (int e : searched.get(i)) {
+                            if (result[e] < 0) {
+                                exclude(excluded, e, i);
+                            }
+                        }
+                    }
+                }
+                if (found) {
+                    return result;
+                }
+            }
+            return null;
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Stops event e from being matched to the venues of component i.
+     */
+    private void exclude(BitSet[] excluded, int e, int i) {
+        if (excluded[e] == null) {
+            excluded[e] = new BitSet(componentOf.length);
+        }
+        for (int v : components.get(i)) {
+            excluded[e].set(v);
+        }
+    }
+
+    /**
+     * Searches the changed components for safe allocations of the events they
+     * were last given, on the executor if there is one, recording whether
+     * each component placed all its events and where the events were placed.
+     */
+    private void solve(List<Integer> changed,
+            final List<List<Integer>> searched, ExecutorService executor,
+            final SearchBudget budget, final SearchMetrics metrics,
+            boolean[] solved, final int[] result) {
+        if (executor == null || changed.size() == 1) {
+            for (int i : changed) {
+                solved[i] = solve(searched.get(i), components.get(i), budget,
+                        metrics, result);
+            }
+            return;
+        }
+
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (final int i : changed) {
+            tasks.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return solve(searched.get(i), components.get(i), budget,
+                            metrics, result);
+                }
+            });
+        }
+        try {
+            List<Future<Boolean>> futures = executor.invokeAll(tasks);
+            for (int t = 0; t < futures.size(); t++) {
+                solved[changed.get(t)] = futures.get(t).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Searches for a safe allocation of the given events to the given venues
+     * of one component, and writes the events it placed into result.
+     *
+     * @return true iff every event was placed
+     */
+    private boolean solve(List<Integer> events, List<Integer> venues,
+            SearchBudget budget, SearchMetrics metrics, int[] result) {
+        if (events.isEmpty()) {
+            return true;
+        }
+        List<Event> subEvents = new ArrayList<>();
+        for (int e : events) {
+            subEvents.add(problem.events.get(e));
+        }
+        int[] subVenues = new int[venues.size()];
+        for (int i = 0; i < subVenues.length; i++) {
+            subVenues[i] = venues.get(i);
+        }
+        Problem component = new Problem(subEvents, new VenueNetwork(
+                problem.network, subVenues, null));
+
+        SearchMetrics part = metrics == null ? null : new SearchMetrics();
+        Search search = new Search(component, new AtomicBoolean(), budget,
+                part);
+        search.search();
+        if (metrics != null) {
+            synchronized (metrics) {
+                metrics.add(part);
+            }
+        }
+
+        int[] best = search.best();
+        synchronized (result) {
+            for (int i = 0; i < best.length; i++) {
+                if (best[i] >= 0) {
+                    result[events.get(i)] = venues.get(best[i]);
+                }
+            }
+        }
+        return search.bestDepth() == search.depth();
+    }
+
+}
@@ -0,0 +1,165 @@
+package planner;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides a method to read in a list of events from a text file.
+ */
+public class EventReader {
+
+    // definition of an empty line
+    private final static String EMPTY_LINE = "";
+
+    /**
+     * <p>
+     * Reads a text file called fileName that describes events to be held in
+     * a municipality, and returns a list containing each of the events read
+     * from the file, in the order that they appear in the file.
+     * </p>
+     *
+     * <p>
+     * The file contains zero or more descriptions of different events, one
+     * after the other with no other information or lines in the file, in the
+     * same style as the venue files read by VenueReader.
+     * </p>
+     *
+     * <p>
+     * A description of an event consists of exactly (i) one line consisting of
+     * the name of the event followed by (ii) one line containing a positive
+     * integer denoting the size of the event followed by (iii) an empty line.
+     * </p>
+     *
+     * <p>
+     * For (i) the event name is the entire string on the first line of the
+     * event description. The only constraint on the event name is that it may
+     * not be equal to the empty string ("").
+     * </p>
+     *
+     * <p>
+     * For (ii) the second line of an event description may not contain
+     * leading or trailing whitespace characters, it may only contain a
+     * positive integer denoting the event size.
+     * </p>
+     *
+     * <p>
+     * For (iii) an empty line is a line with no characters at all (i.e. the
+     * contents of the line is the empty string "").
+     * </p>
+     *
+     * <p>
+     * Two equivalent events shouldn't appear twice in the file.
+     * </p>
+     *
+     * @param fileName
+     *            the name of the file to read from.
+     * @return a list of the events from the file, in the order in which they
+     *         appear in the file.
+     * @throws IOException
+     *             if there is an error reading from the input file.
+     * @throws FormatException
+     *             if there is an error with the input format (e.g. there is
+     *             more than one event description in the file that describes
+     *             the same event, or the file format is not as specified above
+     *             in any other way.) The FormatExceptions thrown have a
+     *             meaningful message that accurately describes the problem with
+     *             the input file format, including the line of the file where
+     *             the problem was detected.
+     */
+    public static List<Event> read(String fileName) throws IOException,
+            FormatException {
+        // scanner for reading the file a line at a time
+        Scanner in = new Scanner(new FileReader(fileName));
+        // the number of the line being read
+        AtomicInteger lineNumber = new AtomicInteger(0);
+        // the events that will be read from the file
+        List<Event> events = new ArrayList<>();
+        // the events read so far, for detecting duplicates
+        Set<Event> seen = new HashSet<>();
+
+        try {
+            // read events one at a time from the file
+            while (in.hasNextLine()) {
+                String name = readLine(lineNumber, in, "event name");
+                if (name.equals(EMPTY_LINE)) {
+                    throw new FormatException("Line " + lineNumber
+                            + ": event name cannot be the empty string");
+                }
+                int size = readEventSize(lineNumber, in);
+                if (!readLine(lineNumber, in, "empty line").equals(
+                        EMPTY_LINE)) {
+                    throw new FormatException("Line " + lineNumber
+                            + ": empty line expected to complete event.");
+                }
+
+                // the event read
+                Event event = new Event(name, size);
+                if (!seen.add(event)) {
+                    throw new FormatException("Line " + lineNumber
+                            + ": duplicate event detected.");
+                }
+                events.add(event);
+            }
+        } finally {
+            in.close();
+        }
+        return events;
+    }
+
+    /**
+     * Consumes and returns the next line from the given scanner.
+     *
+     * @require in!=null && in is open for reading && expected != null
+     * @ensure Consumes and returns the next line from the given scanner. The
+     *         lineNumber is incremented once for each line that is consumed
+     *         from in.
+     * @throws FormatException
+     *             If there is no next line to read from the input. The
+     *             exception has a message that identifies the lineNumber given,
+     *             and says what was expected.
+     */
+    private static String readLine(AtomicInteger lineNumber, Scanner in,
+            String expected) throws FormatException {
+        if (!in.hasNextLine()) {
+            throw new FormatException("Line " + lineNumber + ": " + expected
+                    + " expected, but line is missing.");
+        }
+        lineNumber.incrementAndGet();
+        return in.nextLine();
+    }
+
+    /**
+     * Consumes the next line from the scanner, returning the event size read
+     * from that line.
+     *
+     * @require in!=null && in is open for reading
+     * @ensure reads next line from scanner, and returns the event size from
+     *         that line. The lineNumber is incremented once for each line that
+     *         is consumed from in.
+     * @throws FormatException
+     *             if there is no next line in the scanner, or the line does not
+     *             contain one positive integer denoting the event size. The
+     *             exception has a message that identifies the lineNumber given,
+     *             and describes the nature of the error.
+     */
+    private static int readEventSize(AtomicInteger lineNumber, Scanner in)
+            throws FormatException {
+        // the line holding the size
+        String sizeString = readLine(lineNumber, in, "event size");
+        // the size read from the line
+        int size;
+        try {
+            size = Integer.parseInt(sizeString);
+        } catch (NumberFormatException e) {
+            throw new FormatException("Line " + lineNumber
+                    + ": invalid event size.");
+        }
+        if (size <= 0) {
+            throw new FormatException("Line " + lineNumber
+                    + ": event size must be greater than zero.");
+        }
+        return size;
+    }
+
+}
@@ -0,0 +1,65 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * An explanation of why some events can't be safely allocated to some
+ * venues, as found before searching by the Allocator.
+ */
+public class Infeasibility {
+
+    // a description of the problem
+    private final String reason;
+    // the events that cause the problem
+    private final List<Event> events;
+    // the corridors that cause the problem
+    private final List<Corridor> corridors;
+
+    /**
+     * Creates an explanation.
+     *
+     * @require reason != null && events != null && corridors != null
+     */
+    Infeasibility(String reason, List<Event> events,
+            List<Corridor> corridors) {
+        this.reason = reason;
+        this.events = Collections.unmodifiableList(new ArrayList<>(events));
+        this.corridors = Collections.unmodifiableList(new ArrayList<>(
+                corridors));
+    }
+
+    /**
+     * Returns a description of why there is no safe allocation.
+     *
+     * @return the reason there is no safe allocation
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Returns the events which, together, can't be safely allocated.
+     *
+     * @return an unmodifiable list of the events that cause the problem
+     */
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    /**
+     * Returns the corridors that can't carry the least traffic the events
+     * must cause, if that is the problem.
+     *
+     * @return an unmodifiable list of the corridors that cause the problem,
+     *         which is empty if the problem is with the venues
+     */
+    public List<Corridor> getCorridors() {
+        return corridors;
+    }
+
+    @Override
+    public String toString() {
+        return reason;
+    }
+
+}
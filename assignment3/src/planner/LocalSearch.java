@@ -0,0 +1,405 @@
+package planner;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * A heuristic search for a safe allocation of a problem, for problems too
+ * large to search exactly.
+ * </p>
+ *
+ * <p>
+ * Every event is always held at a distinct venue that can host it, starting
+ * from a greedy allocation, and the score of an allocation is the total
+ * overflow: the traffic above capacity, as Traffic.isSafe would judge it,
+ * summed over the corridors. Each move picks an unsafe corridor and an event
+ * causing traffic on it, samples a few venues that could host the event, and
+ * moves it to the best of them, swapping with the event held there if there
+ * is one. Moves that make the score worse are accepted with a probability
+ * that falls as the walk cools, as in simulated annealing, and the walk is
+ * reheated once it has cooled. Only the corridors of the venues involved are
+ * rescored, so a move takes time independent of the size of the problem.
+ * </p>
+ *
+ * <p>
+ * The search can't tell that there is no safe allocation, so it runs until
+ * it finds one, or the budget runs out. Several walks with different seeds
+ * may be run on separate threads, and the first safe allocation found by any
+ * of them is returned.
+ * </p>
+ */
+class LocalSearch {
+
+    // the time the search runs for if the options set no limit
+    final static long DEFAULT_TIME_LIMIT = TimeUnit.SECONDS.toNanos(10);
+
+    // the number of venues sampled for each move
+    private final static int SAMPLES = 8;
+    // the factor the temperature falls by at each move, and the fraction of
+    // the starting temperature at which the walk is reheated
+    private final static double COOLING = 0.9995;
+    private final static double COLDEST = 1e-3;
+
+    // the problem being searched
+    private final Problem problem;
+    // the venue indices in ascending order of capacity, and the position of
+    // the first that can host each event
+    private final int[] byCapacity;
+    private final int[] firstFit;
+    // the allocation every walk starts from
+    private final int[] start;
+
+    /**
+     * Prepares to search the problem.
+     *
+     * @require problem != null
+     */
+    LocalSearch(Problem problem) {
+        this.problem = problem;
+        Presolve presolve = new Presolve(problem);
+        byCapacity = presolve.byCapacity;
+        firstFit = presolve.firstFit;
+        start = greedy();
+    }
+
+    /**
+     * Returns the allocation found by placing the largest events first, each
+     * at the free venue that can host it where it adds the least overflow.
+     * Since the venues that can host an event are those that can host any
+     * larger one as well, this places every event if any allocation of them
+     * to distinct venues does.
+     *
+     * @return an array mapping each event index to a venue index, or -1 if
+     *         there was no venue left that could host it
+     */
+    private int[] greedy() {
+        Integer[] bySize = new Integer[firstFit.length];
+        for (int e = 0; e < bySize.length; e++) {
+            bySize[e] = e;
+        }
+        Arrays.sort(bySize, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer e1, Integer e2) {
+                return Integer.compare(problem.sizes[e2], problem.sizes[e1]);
+            }
+        });
+        int[] result = new int[firstFit.length];
+        Arrays.fill(result, -1);
+        boolean[] taken = new boolean[byCapacity.length];
+        long[] load = new long[problem.corridors.length];
+        for (int e : bySize) {
+            long least = Long.MAX_VALUE;
+            for (int i = firstFit[e]; i < byCapacity.length; i++) {
+                int v = byCapacity[i];
+                if (taken[v]) {
+                    continue;
+                }
+                long added = 0;
+                for (int k = 0; k < problem.venueCorridors[v].length; k++) {
+                    int c = problem.venueCorridors[v][k];
+                    long capacity = problem.corridorCapacities[c];
+                    long after = load[c] + problem.traffic(e, v, k);
+                    added += Math.max(0, after - capacity)
+                            - Math.max(0, load[c] - capacity);
+                }
+                if (added < least) {
+                    least = added;
+                    result[e] = v;
+                }
+            }
+            if (result[e] >= 0) {
+                int v = result[e];
+                taken[v] = true;
+                for (int k = 0; k < problem.venueCorridors[v].length; k++) {
+                    load[problem.venueCorridors[v][k]] += problem.traffic(e,
+                            v, k);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs a walk on each of the given number of threads, with seeds derived
+     * from the given one, until one finds a safe allocation or the budget
+     * runs out.
+     *
+     * @require threads > 0 && budget != null
+     * @return the safe allocation found, as an array mapping each event index
+     *         to a venue index; or, if none was found, the safe allocation
+     *         left after removing the events on unsafe corridors from the
+     *         allocation with the least overflow any walk reached, with -1 for
+     *         the removed events
+     */
+    int[] search(int threads, long seed, final SearchBudget budget,
+            final SearchMetrics metrics) {
+        for (int e = 0; e < start.length; e++) {
+            if (start[e] < 0) {
+                // some event can't be held anywhere, and presolve says why
+                return new Repair(problem, start).allocation();
+            }
+        }
+        final AtomicBoolean stop = new AtomicBoolean();
+        Walk best;
+        if (threads == 1) {
+            best = new Walk(seed, stop, budget, metrics);
+            best.run();
+        } else {
+            List<Callable<Walk>> tasks = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final long walkSeed = seed + i;
+                tasks.add(new Callable<Walk>() {
+                    @Override
+                    public Walk call() {
+                        SearchMetrics part = metrics == null ? null
+                                : new SearchMetrics();
+                        Walk walk = new Walk(walkSeed, stop, budget, part);
+                        walk.run();
+                        if (metrics != null) {
+                            synchronized (metrics) {
+                                metrics.add(part);
+                            }
+                        }
+                        return walk;
+                    }
+                });
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            best = null;
+            try {
+                for (Future<Walk> future : executor.invokeAll(tasks)) {
+                    Walk walk = future.get();
+                    if (best == null || walk.bestOverflow < best.bestOverflow) {
+                        best = walk;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new Repair(problem, start).allocation();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        return best.bestOverflow == 0 ? best.best
+                : new Repair(problem, best.best).allocation();
+    }
+
+    /**
+     * One walk through the allocations, with its own random choices.
+     */
+    private class Walk {
+
+        // the source of the random choices of the walk
+        private final Random random;
+        // set once some walk has found a safe allocation
+        private final AtomicBoolean stop;
+        // the budget the walk stops at once it runs out
+        private final SearchBudget budget;
+        // the metrics to count the moves in, or null for none
+        private final SearchMetrics metrics;
+        // the venue of each event, and the event at each venue or -1
+        private final int[] allocation;
+        private final int[] eventAt;
+        // the traffic on each corridor
+        private final long[] load;
+        // the total overflow of the corridors
+        private long overflow;
+        // the unsafe corridors, and the position of each in the list or -1
+        private final int[] unsafe;
+        private int unsafeCount;
+        private final int[] unsafePosition;
+        // the allocation with the least overflow so far, and its overflow
+        private int[] best;
+        private long bestOverflow;
+
+        /*
+         * invariant:
+         *
+         * allocation and eventAt are inverse && every event is placed &&
+         * load is the traffic of the events && overflow is the sum over the
+         * corridors of the traffic above capacity && unsafe lists exactly the
+         * corridors with traffic above capacity
+         */
+
+        /**
+         * Starts a walk from the greedy allocation.
+         */
+        Walk(long seed, AtomicBoolean stop, SearchBudget budget,
+                SearchMetrics metrics) {
+            random = new Random(seed);
+            this.stop = stop;
+            this.budget = budget;
+            this.metrics = metrics;
+            allocation = new int[start.length];
+            eventAt = new int[problem.capacities.length];
+            Arrays.fill(eventAt, -1);
+            load = new long[problem.corridors.length];
+            unsafe = new int[load.length];
+            unsafePosition = new int[load.length];
+            Arrays.fill(unsafePosition, -1);
+            for (int e = 0; e < start.length; e++) {
+                place(e, start[e]);
+            }
+            best = allocation.clone();
+            bestOverflow = overflow;
+        }
+
+        /**
+         * Moves until the allocation is safe, another walk has found a safe
+         * allocation, or the budget runs out.
+         */
+        void run() {
+            // start hot enough to accept a move that overloads a corridor
+            // as much as the average unsafe corridor is overloaded
+            double hottest = Math.max(1.0, (double) overflow / Math.max(1,
+                    unsafeCount));
+            double temperature = hottest;
+            int credit = 0;
+            while (overflow > 0 && !stop.get()) {
+                if (credit == 0) {
+                    credit = budget.take(SearchBudget.CHUNK);
+                    if (credit == 0) {
+                        stop.set(true);
+                        return;
+                    }
+                }
+                credit--;
+                if (metrics != null) {
+                    metrics.nodes++;
+                }
+                move(temperature);
+                if (overflow < bestOverflow) {
+                    bestOverflow = overflow;
+                    System.arraycopy(allocation, 0, best, 0, best.length);
+                }
+                temperature *= COOLING;
+                if (temperature < hottest * COLDEST) {
+                    temperature = hottest;
+                }
+            }
+            if (overflow == 0) {
+                stop.set(true);
+            }
+        }
+
+        /**
+         * Moves an event on a random unsafe corridor to the best of a few
+         * sampled venues, if the change in overflow is accepted at the given
+         * temperature.
+         */
+        private void move(double temperature) {
+            int c = unsafe[random.nextInt(unsafeCount)];
+            int[] venues = problem.corridorVenues[c];
+            int from = -1;
+            for (int i = 0, j = random.nextInt(venues.length); i < venues.length
+                    && from < 0; i++, j = j + 1 == venues.length ? 0 : j + 1) {
+                int v = venues[j];
+                if (eventAt[v] >= 0 && problem.traffic(eventAt[v], v,
+                        problem.corridorIndex[c][j]) > 0) {
+                    from = v;
+                }
+            }
+            int e = eventAt[from];
+
+            int hosts = byCapacity.length - firstFit[e];
+            int to = -1;
+            long least = Long.MAX_VALUE;
+            for (int sample = 0; sample < SAMPLES; sample++) {
+                int v = byCapacity[firstFit[e] + random.nextInt(hosts)];
+                int other = eventAt[v];
+                if (v == from || (other >= 0 && !problem.canHost(other,
+                        from))) {
+                    continue;
+                }
+                long before = overflow;
+                long change = exchange(from, v) - before;
+                exchange(from, v);
+                if (change < least) {
+                    to = v;
+                    least = change;
+                }
+            }
+            if (to >= 0 && (least <= 0 || random.nextDouble() < Math.exp(
+                    -least / temperature))) {
+                exchange(from, to);
+            } else if (metrics != null) {
+                metrics.backtracks++;
+            }
+        }
+
+        /**
+         * Swaps the events, if any, at the two venues, and returns the new
+         * overflow. Doing so twice leaves the allocation as it was.
+         *
+         * @require the event at each venue, if any, can be held at the other
+         */
+        private long exchange(int v, int w) {
+            int e = eventAt[v];
+            int f = eventAt[w];
+            if (e >= 0) {
+                remove(e);
+            }
+            if (f >= 0) {
+                remove(f);
+            }
+            if (e >= 0) {
+                place(e, w);
+            }
+            if (f >= 0) {
+                place(f, v);
+            }
+            return overflow;
+        }
+
+        /**
+         * Places the event at the venue.
+         */
+        private void place(int e, int v) {
+            allocation[e] = v;
+            eventAt[v] = e;
+            int[] corridors = problem.venueCorridors[v];
+            for (int k = 0; k < corridors.length; k++) {
+                add(corridors[k], problem.traffic(e, v, k));
+            }
+        }
+
+        /**
+         * Removes the event from its venue.
+         */
+        private void remove(int e) {
+            int v = allocation[e];
+            eventAt[v] = -1;
+            int[] corridors = problem.venueCorridors[v];
+            for (int k = 0; k < corridors.length; k++) {
+                add(corridors[k], -problem.traffic(e, v, k));
+            }
+        }
+
+        /**
+         * Adds the amount to the traffic on the corridor, keeping the
+         * overflow and the unsafe corridors up to date.
+         */
+        private void add(int c, int amount) {
+            long capacity = problem.corridorCapacities[c];
+            overflow -= Math.max(0, load[c] - capacity);
+            load[c] += amount;
+            overflow += Math.max(0, load[c] - capacity);
+            boolean isUnsafe = load[c] > capacity;
+            if (isUnsafe && unsafePosition[c] < 0) {
+                unsafePosition[c] = unsafeCount;
+                unsafe[unsafeCount++] = c;
+            } else if (!isUnsafe && unsafePosition[c] >= 0) {
+                int last = unsafe[--unsafeCount];
+                unsafe[unsafePosition[c]] = last;
+                unsafePosition[last] = unsafePosition[c];
+                unsafePosition[c] = -1;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,156 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * A bounded set of states of a search that are known to have no safe
+ * completion, each identified by a 128-bit hash of the state, made of two
+ * independent 64-bit halves so that a false match is vanishingly unlikely.
+ * </p>
+ *
+ * <p>
+ * Once the cache is full, adding a state evicts another chosen by the CLOCK
+ * algorithm: a hand sweeps the entries, clearing the mark of those that have
+ * been found since it last passed, and evicts the first unmarked entry, so
+ * that states which keep being found stay in the cache.
+ * </p>
+ *
+ * <p>
+ * The entries are kept in flat arrays indexed through an open addressing hash
+ * table, so the cache allocates nothing after it is created. A cache is not
+ * thread safe.
+ * </p>
+ */
+class NogoodCache {
+
+    // the two halves of the hash of each entry
+    private final long[] first;
+    private final long[] second;
+    // whether each entry has been found since the hand last passed it
+    private final boolean[] marked;
+    // the position in table of each entry
+    private final int[] slot;
+    // the entry at each position of the table, or -1 for none
+    private final int[] table;
+    // the number of entries, and the entry the hand points at
+    private int size;
+    private int hand;
+
+    /*
+     * invariant:
+     *
+     * 0 <= size <= first.length && table.length is a power of two at least
+     * twice first.length &&
+     *
+     * for each entry i < size, table[slot[i]] == i, and slot[i] is reached by
+     * probing linearly from the home position of first[i] without passing an
+     * empty position
+     */
+
+    /**
+     * Creates an empty cache of the given number of entries.
+     *
+     * @require capacity > 0
+     */
+    NogoodCache(int capacity) {
+        first = new long[capacity];
+        second = new long[capacity];
+        marked = new boolean[capacity];
+        slot = new int[capacity];
+        int tableSize = Integer.highestOneBit(Math.max(1, capacity)) << 2;
+        table = new int[tableSize];
+        Arrays.fill(table, -1);
+    }
+
+    /**
+     * Returns true iff the state with the given hash is in the cache, marking
+     * it as recently found if it is.
+     */
+    boolean contains(long hash1, long hash2) {
+        int mask = table.length - 1;
+        for (int i = home(hash1); table[i] >= 0; i = (i + 1) & mask) {
+            int entry = table[i];
+            if (first[entry] == hash1 && second[entry] == hash2) {
+                marked[entry] = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the state with the given hash to the cache, evicting another if
+     * the cache is full.
+     *
+     * @require !contains(hash1, hash2)
+     */
+    void add(long hash1, long hash2) {
+        int entry;
+        if (size < first.length) {
+            entry = size++;
+        } else {
+            while (marked[hand]) {
+                marked[hand] = false;
+                hand = (hand + 1) % first.length;
+            }
+            entry = hand;
+            hand = (hand + 1) % first.length;
+            remove(entry);
+        }
+        first[entry] = hash1;
+        second[entry] = hash2;
+        marked[entry] = false;
+        int mask = table.length - 1;
+        int i = home(hash1);
+        while (table[i] >= 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = entry;
+        slot[entry] = i;
+    }
+
+    /**
+     * Removes the entry from the table, moving back the entries after it in
+     * its run that would otherwise no longer be found.
+     */
+    private void remove(int entry) {
+        int mask = table.length - 1;
+        int empty = slot[entry];
+        table[empty] = -1;
+        for (int i = (empty + 1) & mask; table[i] >= 0; i = (i + 1) & mask) {
+            int other = table[i];
+            int home = home(first[other]);
+            // move the entry back unless its home lies after the gap
+            if (((i - home) & mask) >= ((i - empty) & mask)) {
+                table[empty] = other;
+                slot[other] = empty;
+                table[i] = -1;
+                empty = i;
+            }
+        }
+    }
+
+    /**
+     * Returns the position in the table where probing for the hash starts.
+     */
+    private int home(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & (table.length - 1);
+    }
+
+    /**
+     * Returns the number of states in the cache.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes the cache takes up, not counting the
+     * headers of its arrays.
+     */
+    long bytes() {
+        return 21L * first.length + 4L * table.length;
+    }
+
+}
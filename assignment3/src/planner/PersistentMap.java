@@ -0,0 +1,483 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * An immutable map which can be cheaply copied with one mapping added or
+ * removed.
+ * </p>
+ *
+ * <p>
+ * The map is a hash array mapped trie: the copy made by plus or minus shares
+ * all of its structure with the original map except for the O(log n) nodes on
+ * the path to the changed mapping. This makes it suitable for keeping many
+ * versions of a large map, e.g. for undo history.
+ * </p>
+ *
+ * <p>
+ * Neither keys nor values may be null. The map cannot be modified through the
+ * java.util.Map interface.
+ * </p>
+ */
+public final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    // the number of bits of the hash code used at each level of the trie
+    private final static int BITS = 5;
+    // the mask for the bits of the hash code used at each level of the trie
+    private final static int MASK = (1 << BITS) - 1;
+
+    // the empty map
+    @SuppressWarnings("rawtypes")
+    private final static PersistentMap EMPTY = new PersistentMap<>(null, 0);
+
+    // the root of the trie, or null if the map is empty
+    private final Node<K, V> root;
+    // the number of mappings in the map
+    private final int size;
+
+    /*
+     * invariant:
+     *
+     * (root == null) == (size == 0) &&
+     *
+     * size is the number of leaves reachable from root
+     */
+
+    /**
+     * Creates a map with the given trie and number of mappings.
+     *
+     * @param root
+     *            the root of the trie or null
+     * @param size
+     *            the number of mappings in the trie
+     */
+    private PersistentMap(Node<K, V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty map.
+     *
+     * @return a map with no mappings
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns a map with the same mappings as this map, except that the given
+     * key maps to the given value. This map is not modified.
+     *
+     * @param key
+     *            the key to map
+     * @param value
+     *            the value to map the key to
+     * @return this map with key mapped to value
+     * @throws NullPointerException
+     *             if key or value is null
+     */
+    public PersistentMap<K, V> plus(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Parameters cannot be null");
+        }
+        if (root == null) {
+            return new PersistentMap<>(new Leaf<>(key.hashCode(), key, value),
+                    1);
+        }
+        boolean[] added = new boolean[1];
+        Node<K, V> result = root.plus(key.hashCode(), key, value, 0, added);
+        if (result == root) {
+            return this;
+        }
+        return new PersistentMap<>(result, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map with the same mappings as this map, except that the given
+     * key is not mapped. This map is not modified.
+     *
+     * @param key
+     *            the key to remove
+     * @return this map without a mapping for key
+     */
+    public PersistentMap<K, V> minus(Object key) {
+        if (key == null || root == null) {
+            return this;
+        }
+        Node<K, V> result = root.minus(key.hashCode(), key, 0);
+        if (result == root) {
+            return this;
+        }
+        return result == null ? PersistentMap.<K, V>empty()
+                : new PersistentMap<>(result, size - 1);
+    }
+
+    @Override
+    public V get(Object key) {
+        if (key == null || root == null) {
+            return null;
+        }
+        return root.get(key.hashCode(), key, 0);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Returns the index into a branch of the given hash code at the given
+     * level of the trie.
+     *
+     * @param hash
+     *            a hash code
+     * @param shift
+     *            the number of bits used by the levels above
+     * @return the index of the hash code in a branch at that level
+     */
+    private static int indexOf(int hash, int shift) {
+        return (hash >>> shift) & MASK;
+    }
+
+    /**
+     * Returns a node containing the mappings of both given nodes, which have
+     * different hash codes, at the given level of the trie.
+     *
+     * @require hash1 != hash2
+     * @ensure returns a branch containing both nodes
+     */
+    private static <K, V> Node<K, V> merge(int hash1, Node<K, V> node1,
+            int hash2, Node<K, V> node2, int shift) {
+        int index1 = indexOf(hash1, shift);
+        int index2 = indexOf(hash2, shift);
+        if (index1 == index2) {
+            Node<K, V>[] children = nodes(1);
+            children[0] = merge(hash1, node1, hash2, node2, shift + BITS);
+            return new Branch<>(1 << index1, children);
+        }
+        Node<K, V>[] children = nodes(2);
+        children[index1 < index2 ? 0 : 1] = node1;
+        children[index1 < index2 ? 1 : 0] = node2;
+        return new Branch<>((1 << index1) | (1 << index2), children);
+    }
+
+    /**
+     * Returns a new array of the given number of nodes, all null.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <K, V> Node<K, V>[] nodes(int length) {
+        return new Node[length];
+    }
+
+    /**
+     * Returns a new array of the given number of leaves, all null.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <K, V> Leaf<K, V>[] leaves(int length) {
+        return new Leaf[length];
+    }
+
+    /**
+     * A node of the trie.
+     */
+    private interface Node<K, V> {
+
+        /**
+         * Returns the value mapped to the given key below this node, or null
+         * if there is none.
+         */
+        V get(int hash, Object key, int shift);
+
+        /**
+         * Returns a node with the mappings below this node plus the given
+         * mapping. Sets added[0] if the key was not already mapped. Returns
+         * this node if the mapping is already present.
+         */
+        Node<K, V> plus(int hash, K key, V value, int shift, boolean[] added);
+
+        /**
+         * Returns a node with the mappings below this node minus the mapping
+         * of the given key, or null if there would be no mappings left.
+         * Returns this node if the key is not mapped.
+         */
+        Node<K, V> minus(int hash, Object key, int shift);
+    }
+
+    /**
+     * A node holding a single mapping.
+     */
+    @SuppressWarnings("serial")
+    private static final class Leaf<K, V> extends
+            AbstractMap.SimpleImmutableEntry<K, V> implements Node<K, V> {
+
+        // the hash code of the key
+        private final int hash;
+
+        Leaf(int hash, K key, V value) {
+            super(key, value);
+            this.hash = hash;
+        }
+
+        @Override
+        public V get(int hash, Object key, int shift) {
+            return this.hash == hash && getKey().equals(key) ? getValue()
+                    : null;
+        }
+
+        @Override
+        public Node<K, V> plus(int hash, K key, V value, int shift,
+                boolean[] added) {
+            if (this.hash != hash) {
+                added[0] = true;
+                return merge(this.hash, this, hash, new Leaf<>(hash, key,
+                        value), shift);
+            }
+            if (getKey().equals(key)) {
+                return getValue().equals(value) ? this : new Leaf<>(hash, key,
+                        value);
+            }
+            added[0] = true;
+            Leaf<K, V>[] leaves = leaves(2);
+            leaves[0] = this;
+            leaves[1] = new Leaf<>(hash, key, value);
+            return new Collision<>(hash, leaves);
+        }
+
+        @Override
+        public Node<K, V> minus(int hash, Object key, int shift) {
+            return this.hash == hash && getKey().equals(key) ? null : this;
+        }
+    }
+
+    /**
+     * A node holding two or more mappings whose keys have the same hash code.
+     */
+    private static final class Collision<K, V> implements Node<K, V> {
+
+        // the hash code of every key
+        private final int hash;
+        // the mappings
+        private final Leaf<K, V>[] leaves;
+
+        Collision(int hash, Leaf<K, V>[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        /**
+         * Returns the index of the leaf with the given key, or -1.
+         */
+        private int find(Object key) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].getKey().equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public V get(int hash, Object key, int shift) {
+            int i = this.hash == hash ? find(key) : -1;
+            return i < 0 ? null : leaves[i].getValue();
+        }
+
+        @Override
+        public Node<K, V> plus(int hash, K key, V value, int shift,
+                boolean[] added) {
+            Leaf<K, V> leaf = new Leaf<>(hash, key, value);
+            if (this.hash != hash) {
+                added[0] = true;
+                return merge(this.hash, this, hash, leaf, shift);
+            }
+            int i = find(key);
+            if (i >= 0 && leaves[i].getValue().equals(value)) {
+                return this;
+            }
+            Leaf<K, V>[] copy;
+            if (i >= 0) {
+                copy = leaves.clone();
+                copy[i] = leaf;
+            } else {
+                added[0] = true;
+                copy = Arrays.copyOf(leaves, leaves.length + 1);
+                copy[leaves.length] = leaf;
+            }
+            return new Collision<>(hash, copy);
+        }
+
+        @Override
+        public Node<K, V> minus(int hash, Object key, int shift) {
+            int i = this.hash == hash ? find(key) : -1;
+            if (i < 0) {
+                return this;
+            }
+            if (leaves.length == 2) {
+                return leaves[1 - i];
+            }
+            Leaf<K, V>[] copy = leaves(leaves.length - 1);
+            System.arraycopy(leaves, 0, copy, 0, i);
+            System.arraycopy(leaves, i + 1, copy, i, copy.length - i);
+            return new Collision<>(hash, copy);
+        }
+    }
+
+    /**
+     * A node with up to 32 children, indexed by the next bits of the hash.
+     */
+    private static final class Branch<K, V> implements Node<K, V> {
+
+        // bit i is set iff there is a child with index i
+        private final int bitmap;
+        // the children in order of index
+        private final Node<K, V>[] children;
+
+        Branch(int bitmap, Node<K, V>[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        /**
+         * Returns the position in children of the child with the given bit.
+         */
+        private int position(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        public V get(int hash, Object key, int shift) {
+            int bit = 1 << indexOf(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            return children[position(bit)].get(hash, key, shift + BITS);
+        }
+
+        @Override
+        public Node<K, V> plus(int hash, K key, V value, int shift,
+                boolean[] added) {
+            int bit = 1 << indexOf(hash, shift);
+            int position = position(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                Node<K, V>[] copy = nodes(children.length + 1);
+                System.arraycopy(children, 0, copy, 0, position);
+                copy[position] = new Leaf<>(hash, key, value);
+                System.arraycopy(children, position, copy, position + 1,
+                        children.length - position);
+                return new Branch<>(bitmap | bit, copy);
+            }
+            Node<K, V> child = children[position];
+            Node<K, V> result = child.plus(hash, key, value, shift + BITS,
+                    added);
+            if (result == child) {
+                return this;
+            }
+            Node<K, V>[] copy = children.clone();
+            copy[position] = result;
+            return new Branch<>(bitmap, copy);
+        }
+
+        @Override
+        public Node<K, V> minus(int hash, Object key, int shift) {
+            int bit = 1 << indexOf(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int position = position(bit);
+            Node<K, V> child = children[position];
+            Node<K, V> result = child.minus(hash, key, shift + BITS);
+            if (result == child) {
+                return this;
+            }
+            if (result != null) {
+                Node<K, V>[] copy = children.clone();
+                copy[position] = result;
+                return new Branch<>(bitmap, copy);
+            }
+            if (children.length == 1) {
+                return null;
+            }
+            if (children.length == 2
+                    && !(children[1 - position] instanceof Branch)) {
+                // a lone leaf can move up to replace this branch
+                return children[1 - position];
+            }
+            Node<K, V>[] copy = nodes(children.length - 1);
+            System.arraycopy(children, 0, copy, 0, position);
+            System.arraycopy(children, position + 1, copy, position,
+                    copy.length - position);
+            return new Branch<>(bitmap & ~bit, copy);
+        }
+    }
+
+    /**
+     * An iterator over the leaves below a node, in depth first order.
+     */
+    private static final class EntryIterator<K, V> implements
+            Iterator<Map.Entry<K, V>> {
+
+        // the nodes still to be visited
+        private Deque<Node<K, V>> pending;
+        // the leaves found but not yet returned
+        private Deque<Leaf<K, V>> leaves;
+
+        EntryIterator(Node<K, V> root) {
+            pending = new ArrayDeque<>();
+            leaves = new ArrayDeque<>();
+            if (root != null) {
+                pending.push(root);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (leaves.isEmpty() && !pending.isEmpty()) {
+                Node<K, V> node = pending.pop();
+                if (node instanceof Leaf) {
+                    leaves.add((Leaf<K, V>) node);
+                } else if (node instanceof Collision) {
+                    leaves.addAll(Arrays.asList(((Collision<K, V>) node)
+                            .leaves));
+                } else {
+                    Node<K, V>[] children = ((Branch<K, V>) node).children;
+                    for (int i = children.length - 1; i >= 0; i--) {
+                        pending.push(children[i]);
+                    }
+                }
+            }
+            return !leaves.isEmpty();
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return leaves.remove();
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Quick checks for problems which have no safe allocation, run before
+ * searching so that such problems don't need the whole search tree to be
+ * explored.
+ * </p>
+ *
+ * <p>
+ * The first check finds a maximum matching of events to venues that can host
+ * them with the Hopcroft-Karp algorithm. If some event is left unmatched, the
+ * events reachable from it along alternating paths can only be held at fewer
+ * venues than there are of them. This finds events larger than every venue
+ * and more events than venues, as well as less obvious cases.
+ * </p>
+ *
+ * <p>
+ * The second check works out the least traffic each event must cause on each
+ * corridor wherever it is held: if every venue that can host the event uses
+ * the corridor, it causes at least the smallest of their traffic. A corridor
+ * whose capacity is less than the total of these bounds can never be safe.
+ * </p>
+ */
+class Presolve {
+
+    // the problem being checked
+    private final Problem problem;
+    // the venue indices, in ascending order of capacity
+    final int[] byCapacity;
+    // the position in byCapacity of the first venue that can host each event
+    final int[] firstFit;
+
+    /*
+     * invariant:
+     *
+     * the venues that can host event e are byCapacity[firstFit[e]] to
+     * byCapacity[byCapacity.length - 1]
+     */
+
+    /**
+     * Prepares to check the given problem.
+     *
+     * @require problem != null
+     */
+    Presolve(Problem problem) {
+        this.problem = problem;
+        byCapacity = problem.byCapacity;
+        firstFit = new int[problem.sizes.length];
+        for (int e = 0; e < firstFit.length; e++) {
+            firstFit[e] = problem.firstFit(e);
+        }
+    }
+
+    /**
+     * Checks whether the problem obviously has no safe allocation.
+     *
+     * @require problem != null
+     * @return an explanation of why there is no safe allocation, or null if
+     *         the checks can't rule one out
+     */
+    static Infeasibility check(Problem problem) {
+        Presolve presolve = new Presolve(problem);
+        Infeasibility result = presolve.checkMatching();
+        if (result == null) {
+            result = presolve.checkCorridors();
+        }
+        return result;
+    }
+
+    /**
+     * Returns an explanation if there is no matching of every event to a
+     * distinct venue that can host it, or null otherwise.
+     */
+    private Infeasibility checkMatching() {
+        int[] matchEvent = matching();
+        int[] matchVenue = new int[byCapacity.length];
+        Arrays.fill(matchVenue, -1);
+        for (int e = 0; e < matchEvent.length; e++) {
+            if (matchEvent[e] >= 0) {
+                matchVenue[matchEvent[e]] = e;
+            }
+        }
+        for (int e = 0; e < matchEvent.length; e++) {
+            if (matchEvent[e] < 0) {
+                return hallViolation(e, matchVenue);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a maximum matching of events to distinct venues that can host
+     * them, found with the Hopcroft-Karp algorithm.
+     *
+     * @return an array mapping each event index to the index of its venue,
+     *         or -1 for events that are not matched
+     */
+    int[] matching() {
+        return matching(new BitSet[firstFit.length], null);
+    }
+
+    /**
+     * Returns a maximum matching of events to distinct venues that can host
+     * them, where event e may not be matched to the venues in excluded[e],
+     * found with the Hopcroft-Karp algorithm. The search starts from the
+     * pairs of the initial matching that are still allowed, so that a
+     * matching found again after excluding a few venues changes little.
+     *
+     * @require excluded.length == problem.events.size() and each entry is
+     *          null or a set of venue indices && initial is null or an array
+     *          mapping each event index to a distinct venue index or -1
+     * @return an array mapping each event index to the index of its venue,
+     *         or -1 for events that are not matched
+     */
+    int[] matching(BitSet[] excluded, int[] initial) {
+        int events = firstFit.length;
+        int[] matchEvent = new int[events];
+        int[] matchVenue = new int[byCapacity.length];
+        Arrays.fill(matchEvent, -1);
+        Arrays.fill(matchVenue, -1);
+        for (int e = 0; initial != null && e < events; e++) {
+            int venue = initial[e];
+            if (venue >= 0 && problem.capacities[venue] >= problem.sizes[e]
+                    && (excluded[e] == null || !excluded[e].get(venue))) {
+                matchEvent[e] = venue;
+                matchVenue[venue] = e;
+            }
+        }
+        int[] distance = new int[events];
+        // the next position in byCapacity each event will try
+        int[] next = new int[events];
+        // the venue each event on the stack was reached through
+        int[] through = new int[events];
+        int[] stack = new int[events];
+        int[] queue = new int[events];
+
+        while (true) {
+            // find the length of the shortest augmenting paths
+            int head = 0;
+            int tail = 0;
+            for (int e = 0; e < events; e++) {
+                if (matchEvent[e] < 0) {
+                    distance[e] = 0;
+                    queue[tail++] = e;
+                } else {
+                    distance[e] = Integer.MAX_VALUE;
+                }
+            }
+            boolean found = false;
+            while (head < tail) {
+                int e = queue[head++];
+                for (int i = firstFit[e]; i < byCapacity.length; i++) {
+                    int venue = byCapacity[i];
+                    if (excluded[e] != null && excluded[e].get(venue)) {
+                        continue;
+                    }
+                    int other = matchVenue[venue];
+                    if (other < 0) {
+                        found = true;
+                    } else if (distance[other] == Integer.MAX_VALUE) {
+                        distance[other] = distance[e] + 1;
+                        queue[tail++] = other;
+                    }
+                }
+            }
+            if (!found) {
+                break;
+            }
+
+            // augment along disjoint shortest paths
+            for (int e = 0; e < events; e++) {
+                next[e] = firstFit[e];
+            }
+            for (int root = 0; root < events; root++) {
+                if (matchEvent[root] < 0) {
+                    augment(root, excluded, matchEvent, matchVenue, distance,
+                            next, through, stack);
+                }
+            }
+        }
+
+        return matchEvent;
+    }
+
+    /**
+     * Searches depth-first for an augmenting path from the unmatched root
+     * along which distance increases by one at each step, and augments the
+     * matching along it if there is one.
+     */
+    private void augment(int root, BitSet[] excluded, int[] matchEvent,
+            int[] matchVenue, int[] distance, int[] next, int[] through,
+            int[] stack) {
+        int size = 0;
+        stack[size++] = root;
+        while (size > 0) {
+            int e = stack[size - 1];
+            if (next[e] == byCapacity.length) {
+                // no augmenting path through e
+                distance[e] = Integer.MAX_VALUE;
+                size--;
+                continue;
+            }
+            int venue = byCapacity[next[e]++];
+            if (excluded[e] != null && excluded[e].get(venue)) {
+                continue;
+            }
+            int other = matchVenue[venue];
+            if (other < 0) {
+                // give each event on the stack the venue of the one above it
+                for (int i = size - 1; i >= 0; i--) {
+                    int event = stack[i];
+                    int previous = i == 0 ? -1 : through[event];
+                    matchEvent[event] = venue;
+                    matchVenue[venue] = event;
+                    venue = previous;
+                }
+                return;
+            }
+            if (distance[other] == distance[e] + 1) {
+                through[other] = matchEvent[other];
+                stack[size++] = other;
+            }
+        }
+    }
+
+    /**
+     * Returns an explanation of why the unmatched event and the events
+     * reachable from it along alternating paths can't all be held, since
+     * there is one fewer venue that can host any of them than there are
+     * events.
+     */
+    private Infeasibility hallViolation(int unmatched, int[] matchVenue) {
+        boolean[] reached = new boolean[firstFit.length];
+        boolean[] neighbour = new boolean[byCapacity.length];
+        List<Integer> found = new ArrayList<>();
+        found.add(unmatched);
+        reached[unmatched] = true;
+        int venues = 0;
+        for (int head = 0; head < found.size(); head++) {
+            int e = found.get(head);
+            for (int i = firstFit[e]; i < byCapacity.length; i++) {
+                int venue = byCapacity[i];
+                if (!neighbour[venue]) {
+                    neighbour[venue] = true;
+                    venues++;
+                    int other = matchVenue[venue];
+                    if (!reached[other]) {
+                        reached[other] = true;
+                        found.add(other);
+                    }
+                }
+            }
+        }
+
+        List<Event> events = new ArrayList<>();
+        for (int e : found) {
+            events.add(problem.events.get(e));
+        }
+        String reason;
+        if (venues == 0) {
+            reason = "Event " + events.get(0)
+                    + " is larger than every venue.";
+        } else {
+            reason = "The " + events.size() + " events " + events
+                    + " can only be held at " + venues + " venues.";
+        }
+        return new Infeasibility(reason, events, new ArrayList<Corridor>());
+    }
+
+    /**
+     * Returns an explanation if the least traffic that the events must cause
+     * on some corridor is more than its capacity, or null otherwise.
+     */
+    private Infeasibility checkCorridors() {
+        int corridors = problem.corridors.length;
+        // for each event, the corridors every venue that can host it uses,
+        // and the least traffic the event causes on each
+        int[][] eventCorridors = new int[firstFit.length][];
+        int[][] eventTraffic = new int[firstFit.length][];
+        long[] bound = new long[corridors];
+
+        // the number of the event's venues using each corridor, and the least
+        // traffic the event causes on it
+        int[] count = new int[corridors];
+        int[] least = new int[corridors];
+        int[] touched = new int[corridors];
+        for (int e = 0; e < firstFit.length; e++) {
+            int touchedCount = 0;
+            int hosts = byCapacity.length - firstFit[e];
+            for (int i = firstFit[e]; i < byCapacity.length; i++) {
+                int venue = byCapacity[i];
+                int[] venueCorridors = problem.venueCorridors[venue];
+                for (int k = 0; k < venueCorridors.length; k++) {
+                    int c = venueCorridors[k];
+                    int traffic = problem.traffic(e, venue, k);
+                    if (count[c] == 0) {
+                        touched[touchedCount++] = c;
+                        least[c] = traffic;
+                    } else {
+                        least[c] = Math.min(least[c], traffic);
+                    }
+                    count[c]++;
+                }
+            }
+
+            int used = 0;
+            for (int t = 0; t < touchedCount; t++) {
+                int c = touched[t];
+                if (count[c] == hosts && least[c] > 0) {
+                    used++;
+                }
+            }
+            eventCorridors[e] = new int[used];
+            eventTraffic[e] = new int[used];
+            used = 0;
+            for (int t = 0; t < touchedCount; t++) {
+                int c = touched[t];
+                if (count[c] == hosts && least[c] > 0) {
+                    eventCorridors[e][used] = c;
+                    eventTraffic[e][used] = least[c];
+                    bound[c] += least[c];
+                    used++;
+                }
+                count[c] = 0;
+            }
+        }
+
+        List<Corridor> overloaded = new ArrayList<>();
+        boolean[] isOverloaded = new boolean[corridors];
+        // the first overloaded corridor
+        int first = -1;
+        for (int c = 0; c < corridors; c++) {
+            if (bound[c] > problem.corridorCapacities[c]) {
+                overloaded.add(problem.corridors[c]);
+                isOverloaded[c] = true;
+                if (first < 0) {
+                    first = c;
+                }
+            }
+        }
+        if (overloaded.isEmpty()) {
+            return null;
+        }
+
+        List<Event> events = new ArrayList<>();
+        for (int e = 0; e < eventCorridors.length; e++) {
+            for (int c : eventCorridors[e]) {
+                if (isOverloaded[c]) {
+                    events.add(problem.events.get(e));
+                    break;
+                }
+            }
+        }
+        String reason = problem.corridors[first] + " must carry at least "
+                + bound[first] + " traffic wherever the events are held";
+        if (overloaded.size() > 1) {
+            reason += ", and " + (overloaded.size() - 1)
+                    + " other corridors are also overloaded";
+        }
+        return new Infeasibility(reason + ".", events, overloaded);
+    }
+
+}
@@ -0,0 +1,148 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * An immutable encoding of the problem of allocating a list of events to the
+ * venues of a venue network, using dense integer indices for events, venues
+ * and corridors so that searches can work on arrays instead of objects.
+ * </p>
+ *
+ * <p>
+ * Event e is events.get(e), venue v is venues.get(v) and corridor c is
+ * corridors[c]. The traffic generated by hosting event e at venue v on its
+ * k'th corridor, venueCorridors[v][k], is traffic(e, v, k).
+ * </p>
+ *
+ * <p>
+ * The venue fields are shared with the network, and must not be modified.
+ * </p>
+ */
+class Problem {
+
+    // the network of venues that events can be allocated to
+    final VenueNetwork network;
+    // the events to be allocated
+    final List<Event> events;
+    // the index of each event, shared by the allocations of the problem
+    final Map<Event, Integer> eventIds;
+    // the venues that events can be allocated to
+    final List<Venue> venues;
+    // the size of each event
+    final int[] sizes;
+    // the capacity of each venue
+    final int[] capacities;
+    // the corridors that the venues generate traffic on
+    final Corridor[] corridors;
+    // the capacity of each corridor
+    final int[] corridorCapacities;
+    // the corridors that each venue generates traffic on
+    final int[][] venueCorridors;
+    // the traffic an event of maximum size at each venue generates on each
+    // of its corridors, in the same order as venueCorridors
+    final int[][] venueTraffic;
+    // the class of each venue, as in VenueNetwork
+    final int[] venueClass;
+    // the number of venues before each venue in the same class
+    final int[] classIndex;
+    // the venue indices in ascending order of capacity, as in VenueNetwork
+    final int[] byCapacity;
+    // the venues using each corridor, and the position of the corridor among
+    // the corridors of each of them, as in VenueNetwork
+    final int[][] corridorVenues;
+    final int[][] corridorIndex;
+
+    /*
+     * invariant:
+     *
+     * all fields != null && sizes.length == events.size() &&
+     *
+     * eventIds.get(events.get(e)) == e for each e &&
+     *
+     * the venue fields are those of network
+     */
+
+    /**
+     * Encodes the problem of allocating the given events to the given venues.
+     * The given lists are copied, and not modified.
+     *
+     * @require events != null && venues != null && !events.contains(null) &&
+     *          !venues.contains(null)
+     * @ensure creates the encoding of the allocation problem
+     */
+    Problem(List<Event> events, List<Venue> venues) {
+        this(events, new VenueNetwork(venues));
+    }
+
+    /**
+     * Encodes the problem of allocating the given events to the venues of the
+     * given network. The given list is copied, and not modified.
+     *
+     * @require events != null && network != null && !events.contains(null)
+     * @ensure creates the encoding of the allocation problem
+     */
+    Problem(List<Event> events, VenueNetwork network) {
+        this.network = network;
+        this.events = Collections.unmodifiableList(new ArrayList<>(events));
+        venues = network.venues;
+        capacities = network.capacities;
+        corridors = network.corridors;
+        corridorCapacities = network.corridorCapacities;
+        venueCorridors = network.venueCorridors;
+        venueTraffic = network.venueTraffic;
+        venueClass = network.venueClass;
+        classIndex = network.classIndex;
+        byCapacity = network.byCapacity;
+        corridorVenues = network.corridorVenues;
+        corridorIndex = network.corridorIndex;
+
+        sizes = new int[events.size()];
+        Map<Event, Integer> ids = new HashMap<>();
+        for (int e = 0; e < sizes.length; e++) {
+            sizes[e] = this.events.get(e).getSize();
+            ids.put(this.events.get(e), e);
+        }
+        eventIds = Collections.unmodifiableMap(ids);
+    }
+
+    /**
+     * Returns true iff venue v can host event e.
+     */
+    boolean canHost(int e, int v) {
+        return sizes[e] <= capacities[v];
+    }
+
+    /**
+     * Returns the position in byCapacity of the first venue that can host
+     * event e, so that the venues that can host it are those from there on,
+     * the closest fit first.
+     */
+    int firstFit(int e) {
+        return network.firstFit(sizes[e]);
+    }
+
+    /**
+     * Returns the traffic generated by hosting event e at venue v on the
+     * corridor venueCorridors[v][k], as defined by Venue.getTraffic.
+     *
+     * @require canHost(e, v) && 0 <= k < venueCorridors[v].length
+     */
+    int traffic(int e, int v, int k) {
+        return (sizes[e] * venueTraffic[v][k]) / capacities[v];
+    }
+
+    /**
+     * Returns the allocation described by the given array, which maps each
+     * event index to the index of its venue, or -1 if it is not allocated.
+     *
+     * @require allocation.length == events.size() && each entry is a valid
+     *          venue index or -1
+     * @ensure returns a new map from each allocated event to its venue,
+     *         which keeps a copy of the array
+     */
+    Allocation toMap(int[] allocation) {
+        return new Allocation(events, eventIds, venues, allocation.clone());
+    }
+
+}
@@ -0,0 +1,217 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * A search for a safe allocation of a problem that encodes it as a set of
+ * pseudo-Boolean constraints, and solves them with a PseudoBooleanSolver.
+ * </p>
+ *
+ * <p>
+ * Since the venues of a class can be swapped in any allocation, there is one
+ * 0/1 variable for each event and each class of venues that can host it,
+ * which is true iff the event is held at a venue of the class. The
+ * constraints are that:
+ * </p>
+ * <ul>
+ * <li>each event is held in at least one class, and at most one;</li>
+ * <li>each class holds at most as many events as it has venues; and</li>
+ * <li>the traffic that the events cause on each corridor, as given by
+ * Venue.getTraffic, is at most its capacity.</li>
+ * </ul>
+ *
+ * <p>
+ * Corridors that can carry the traffic of every event at every venue using
+ * them are left out, and so are classes with room for every event they can
+ * host.
+ * </p>
+ */
+class PseudoBooleanSearch {
+
+    // the problem being searched
+    private final Problem problem;
+    // the first venue of each class
+    private final int[] firstOfClass;
+    // the event and class of each variable
+    private final int[] variableEvent;
+    private final int[] variableClass;
+    // the solver of the encoding
+    private final PseudoBooleanSolver solver;
+
+    /**
+     * Encodes the problem.
+     *
+     * @require problem != null
+     */
+    PseudoBooleanSearch(Problem problem) {
+        this.problem = problem;
+        int events = problem.sizes.length;
+        int classes = problem.network.classCount;
+        firstOfClass = new int[classes];
+        int[] classSize = new int[classes];
+        for (int v = problem.capacities.length - 1; v >= 0; v--) {
+            firstOfClass[problem.venueClass[v]] = v;
+            classSize[problem.venueClass[v]]++;
+        }
+
+        // the variables of each event, and of each class
+        int[][] eventVariables = new int[events][];
+        int[] classCounts = new int[classes];
+        int variables = 0;
+        for (int e = 0; e < events; e++) {
+            for (int k = 0; k < classes; k++) {
+                if (problem.canHost(e, firstOfClass[k])) {
+                    classCounts[k]++;
+                    variables++;
+                }
+            }
+        }
+        int[][] classVariables = new int[classes][];
+        for (int k = 0; k < classes; k++) {
+            classVariables[k] = new int[classCounts[k]];
+            classCounts[k] = 0;
+        }
+        variableEvent = new int[variables];
+        variableClass = new int[variables];
+        variables = 0;
+        for (int e = 0; e < events; e++) {
+            int first = variables;
+            for (int k = 0; k < classes; k++) {
+                if (problem.canHost(e, firstOfClass[k])) {
+                    classVariables[k][classCounts[k]++] = variables;
+                    variableEvent[variables] = e;
+                    variableClass[variables++] = k;
+                }
+            }
+            eventVariables[e] = new int[variables - first];
+            for (int x = first; x < variables; x++) {
+                eventVariables[e][x - first] = x;
+            }
+        }
+        solver = new PseudoBooleanSolver(variableEvent.length);
+
+        for (int e = 0; e < events; e++) {
+            int[] literals = new int[eventVariables[e].length];
+            int[] ones = new int[literals.length];
+            for (int i = 0; i < literals.length; i++) {
+                literals[i] = PseudoBooleanSolver.literal(eventVariables[e][i],
+                        true);
+                ones[i] = 1;
+            }
+            solver.addClause(literals);
+            if (literals.length > 1) {
+                solver.addAtMost(eventVariables[e], ones, 1);
+            }
+        }
+        for (int k = 0; k < classes; k++) {
+            if (classVariables[k].length > classSize[k]) {
+                int[] ones = new int[classVariables[k].length];
+                Arrays.fill(ones, 1);
+                solver.addAtMost(classVariables[k], ones, classSize[k]);
+            }
+        }
+        addCorridors(classSize, classVariables);
+
+        // decide on the largest events first, and try the smallest venues
+        // that can hold them first
+        int largest = 1;
+        for (int size : problem.sizes) {
+            largest = Math.max(largest, size);
+        }
+        int widest = 1;
+        for (int capacity : problem.capacities) {
+            widest = Math.max(widest, capacity);
+        }
+        for (int x = 0; x < variableEvent.length; x++) {
+            double size = problem.sizes[variableEvent[x]] / (largest + 1.0);
+            double fit = 1 - problem.capacities[firstOfClass[variableClass[x]]]
+                    / (widest + 1.0);
+            solver.setPreference(x, 0.5 * size + 0.001 * fit, true);
+        }
+    }
+
+    /**
+     * Adds the constraint on the traffic of each corridor that the events
+     * could overload.
+     */
+    private void addCorridors(int[] classSize, int[][] classVariables) {
+        int corridors = problem.corridors.length;
+        // the number of terms of each corridor, and their total
+        int[] terms = new int[corridors];
+        long[] total = new long[corridors];
+        for (int k = 0; k < classSize.length; k++) {
+            int v = firstOfClass[k];
+            for (int i = 0; i < problem.venueCorridors[v].length; i++) {
+                int c = problem.venueCorridors[v][i];
+                for (int x : classVariables[k]) {
+                    int traffic = problem.traffic(variableEvent[x], v, i);
+                    if (traffic > 0) {
+                        terms[c]++;
+                        total[c] += traffic;
+                    }
+                }
+            }
+        }
+
+        int[][] xs = new int[corridors][];
+        int[][] coefficients = new int[corridors][];
+        for (int c = 0; c < corridors; c++) {
+            if (total[c] > problem.corridorCapacities[c]) {
+                xs[c] = new int[terms[c]];
+                coefficients[c] = new int[terms[c]];
+            }
+            terms[c] = 0;
+        }
+        for (int k = 0; k < classSize.length; k++) {
+            int v = firstOfClass[k];
+            for (int i = 0; i < problem.venueCorridors[v].length; i++) {
+                int c = problem.venueCorridors[v][i];
+                if (xs[c] == null) {
+                    continue;
+                }
+                for (int x : classVariables[k]) {
+                    int traffic = problem.traffic(variableEvent[x], v, i);
+                    if (traffic > 0) {
+                        xs[c][terms[c]] = x;
+                        coefficients[c][terms[c]++] = traffic;
+                    }
+                }
+            }
+        }
+        for (int c = 0; c < corridors; c++) {
+            if (xs[c] != null) {
+                solver.addAtMost(xs[c], coefficients[c],
+                        problem.corridorCapacities[c]);
+            }
+        }
+    }
+
+    /**
+     * Searches for a safe allocation, taking a node from the budget for each
+     * decision of the solver and counting its work in metrics unless it is
+     * null.
+     *
+     * @require budget != null && search() has not been called
+     * @return the safe allocation with the most placed events found, as an
+     *         array mapping each event index to a venue index or -1, which
+     *         places every event if a safe allocation was found
+     */
+    int[] search(SearchBudget budget, SearchMetrics metrics) {
+        solver.solve(budget, metrics);
+        int[] result = new int[problem.sizes.length];
+        Arrays.fill(result, -1);
+        // the next venue of each class to give an event
+        int[] next = firstOfClass.clone();
+        for (int x : solver.best()) {
+            int k = variableClass[x];
+            result[variableEvent[x]] = next[k];
+            for (next[k]++; next[k] < problem.venueClass.length
+                    && problem.venueClass[next[k]] != k; next[k]++) {
+                // skip venues of other classes
+            }
+        }
+        return result;
+    }
+
+}
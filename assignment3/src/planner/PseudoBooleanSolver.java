@@ -0,0 +1,823 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * A conflict-driven clause learning solver for sets of pseudo-Boolean
+ * constraints over 0/1 variables: clauses, which need at least one of their
+ * literals to be true, and linear constraints a1 x1 + ... + an xn <= b with
+ * positive integer coefficients.
+ * </p>
+ *
+ * <p>
+ * Each linear constraint keeps its slack, the bound less the coefficients of
+ * its true variables. A variable whose coefficient is more than the slack is
+ * set false, and is explained by the clause saying that it can't be true
+ * together with the variables that were true before it. Conflicts are
+ * analysed into learnt clauses over these explanations, as in a SAT solver.
+ * Decisions are made on the most active variable with the value it last had,
+ * the search restarts after a number of conflicts given by the Luby sequence,
+ * and the least active learnt clauses are deleted once there are too many.
+ * </p>
+ *
+ * <p>
+ * A literal is 2 * x for variable x being true, and 2 * x + 1 for it being
+ * false. A solver is not thread safe.
+ * </p>
+ */
+class PseudoBooleanSolver {
+
+    // the number of conflicts before the first restart, which is scaled by
+    // the Luby sequence for later restarts
+    private final static int RESTART_UNIT = 128;
+    // the factors that activities decay by at each conflict
+    private final static double VARIABLE_DECAY = 0.95;
+    private final static double CLAUSE_DECAY = 0.999;
+
+    /**
+     * A clause, which is satisfied when at least one of its literals is true.
+     * The first two literals are the watched ones; a clause that implied a
+     * literal has it first.
+     */
+    private static class Clause {
+
+        // the literals of the clause
+        final int[] literals;
+        // whether the clause was learnt from a conflict
+        final boolean learnt;
+        // how recently the clause took part in conflicts, for learnt clauses
+        double activity;
+        // whether the clause has been deleted
+        boolean deleted;
+
+        Clause(int[] literals, boolean learnt) {
+            this.literals = literals;
+            this.learnt = learnt;
+        }
+
+    }
+
+    // the number of variables
+    private final int variables;
+    // the clauses given to the solver
+    private final List<int[]> clauses = new ArrayList<>();
+    // the variables, coefficients and bound of each linear constraint given
+    // to the solver, with the coefficients in descending order
+    private final List<int[]> constraintVariables = new ArrayList<>();
+    private final List<int[]> constraintCoefficients = new ArrayList<>();
+    private final List<Long> constraintBounds = new ArrayList<>();
+
+    // the value of each variable: 1 for true, -1 for false and 0 for none
+    private final byte[] value;
+    // the decision level each variable was assigned at
+    private final int[] level;
+    // the position of each assigned variable on the trail
+    private final int[] trailIndex;
+    // the clause that implied each variable, or null
+    private final Clause[] reasonClause;
+    // the linear constraint that implied each variable, or -1
+    private final int[] reasonConstraint;
+    // the value each variable had last, which decisions give it again
+    private final boolean[] phase;
+    // the assigned literals, in the order they were assigned
+    private final int[] trail;
+    private int trailSize;
+    // the position on the trail of the next literal to propagate
+    private int head;
+    // the size of the trail before the decision of each level after the
+    // first
+    private final int[] levelStart;
+    private int decisionLevel;
+    // the number of true variables
+    private int trueCount;
+
+    // the clauses watching each literal, which are visited once it is
+    // false, or null for none
+    private List<Clause>[] watches;
+    // the learnt clauses, and the number that are kept before deleting some
+    private final List<Clause> learnts = new ArrayList<>();
+    private double maxLearnts;
+    private double clauseIncrement = 1;
+
+    // the linear constraints, as given
+    private int[][] variablesOf;
+    private int[][] coefficientsOf;
+    // the slack of each linear constraint
+    private long[] slack;
+    // the linear constraints each variable is in, and its coefficient in each
+    private int[][] occurrences;
+    private int[][] occurrenceCoefficients;
+
+    // the activity of each variable, and a heap of the unassigned variables
+    // ordered by activity
+    private final double[] activity;
+    private double variableIncrement = 1;
+    private final int[] heap;
+    private final int[] heapIndex;
+    private int heapSize;
+
+    // marks used while analysing conflicts
+    private final boolean[] seen;
+
+    // the true variables of the consistent assignment with the most true
+    // variables found so far
+    private int[] best = new int[0];
+
+    /*
+     * invariant:
+     *
+     * trail[0 .. trailSize - 1] are the assigned literals, and trailIndex,
+     * level, reasonClause and reasonConstraint describe them &&
+     *
+     * slack[c] is the bound of constraint c less the coefficients of its true
+     * variables &&
+     *
+     * heap holds every unassigned variable, and possibly some assigned ones
+     */
+
+    /**
+     * Creates a solver for constraints over the given number of variables,
+     * with no constraints yet.
+     *
+     * @require variables >= 0
+     */
+    PseudoBooleanSolver(int variables) {
+        this.variables = variables;
+        value = new byte[variables];
+        level = new int[variables];
+        trailIndex = new int[variables];
+        reasonClause = new Clause[variables];
+        reasonConstraint = new int[variables];
+        Arrays.fill(reasonConstraint, -1);
+        phase = new boolean[variables];
+        trail = new int[variables];
+        levelStart = new int[variables + 1];
+        activity = new double[variables];
+        heap = new int[variables];
+        heapIndex = new int[variables];
+        seen = new boolean[variables];
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        List<Clause>[] lists = new List[2 * variables];
+        watches = lists;
+    }
+
+    /**
+     * Returns the literal for the variable having the given value.
+     */
+    static int literal(int variable, boolean value) {
+        return value ? 2 * variable : 2 * variable + 1;
+    }
+
+    /**
+     * Adds the clause that at least one of the given literals is true.
+     *
+     * @require each literal is the literal of a variable of the solver, and
+     *          solve() has not been called
+     */
+    void addClause(int[] literals) {
+        clauses.add(literals.clone());
+    }
+
+    /**
+     * Adds the constraint that the sum of the coefficients of the true
+     * variables among the given ones is at most the bound.
+     *
+     * @require variables.length == coefficients.length && the variables are
+     *          distinct variables of the solver && each coefficient > 0 &&
+     *          solve() has not been called
+     */
+    void addAtMost(int[] variables, int[] coefficients, long bound) {
+        // sort the variables by descending coefficient
+        long[] pairs = new long[variables.length];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = ((long) -coefficients[i] << 32) | variables[i];
+        }
+        Arrays.sort(pairs);
+        int[] sortedVariables = new int[pairs.length];
+        int[] sortedCoefficients = new int[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            sortedVariables[i] = (int) pairs[i];
+            sortedCoefficients[i] = (int) -(pairs[i] >> 32);
+        }
+        constraintVariables.add(sortedVariables);
+        constraintCoefficients.add(sortedCoefficients);
+        constraintBounds.add(bound);
+    }
+
+    /**
+     * Sets how early the variable is decided on, and the value it is first
+     * given when it is.
+     *
+     * @require 0 <= priority < 1 && solve() has not been called
+     */
+    void setPreference(int variable, double priority, boolean value) {
+        activity[variable] = priority;
+        phase[variable] = value;
+    }
+
+    /**
+     * Returns the true variables of the assignment with the most true
+     * variables that the solver found without breaking any linear
+     * constraint, which is a solution if one was found.
+     */
+    int[] best() {
+        return best;
+    }
+
+    /**
+     * Searches for an assignment to the variables that satisfies every
+     * constraint, taking a node from the budget for each decision and
+     * counting its work in metrics unless it is null.
+     *
+     * @require budget != null && solve() has not been called
+     * @return true iff a solution was found, in which case best() returns its
+     *         true variables; false if there is none or the budget ran out
+     */
+    boolean solve(SearchBudget budget, SearchMetrics metrics) {
+        if (!prepare()) {
+            return false;
+        }
+        maxLearnts = Math.max(clauses.size() / 3.0, 1000);
+        int restarts = 0;
+        long conflictsUntilRestart = RESTART_UNIT;
+        int credit = 0;
+
+        while (true) {
+            int[] conflict = propagate();
+            if (conflict != null) {
+                if (metrics != null) {
+                    metrics.backtracks++;
+                }
+                if (decisionLevel == 0) {
+                    return false;
+                }
+                learn(conflict);
+                variableIncrement /= VARIABLE_DECAY;
+                clauseIncrement /= CLAUSE_DECAY;
+                conflictsUntilRestart--;
+                continue;
+            }
+
+            if (trueCount > best.length) {
+                best = new int[trueCount];
+                int count = 0;
+                for (int i = 0; i < trailSize; i++) {
+                    if ((trail[i] & 1) == 0) {
+                        best[count++] = trail[i] >> 1;
+                    }
+                }
+            }
+            if (conflictsUntilRestart <= 0) {
+                restarts++;
+                conflictsUntilRestart = luby(restarts) * RESTART_UNIT;
+                cancelUntil(0);
+                continue;
+            }
+            if (learnts.size() - trailSize >= maxLearnts) {
+                reduceLearnts();
+                maxLearnts *= 1.1;
+            }
+
+            int variable = nextDecision();
+            if (variable < 0) {
+                return true;
+            }
+            if (credit == 0) {
+                credit = budget.take(SearchBudget.CHUNK);
+                if (credit == 0) {
+                    return false;
+                }
+            }
+            credit--;
+            if (metrics != null) {
+                metrics.nodes++;
+                metrics.maxDepth = Math.max(metrics.maxDepth, trueCount);
+            }
+            levelStart[decisionLevel++] = trailSize;
+            assign(literal(variable, phase[variable]), null, -1);
+        }
+    }
+
+    /**
+     * Builds the occurrence lists, watches and heap, and assigns the literals
+     * that hold before any decision, returning false if some constraint can't
+     * be satisfied at all.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean prepare() {
+        int constraints = constraintVariables.size();
+        variablesOf = constraintVariables.toArray(new int[constraints][]);
+        coefficientsOf = constraintCoefficients.toArray(
+                new int[constraints][]);
+        slack = new long[constraints];
+        int[] counts = new int[variables];
+        for (int c = 0; c < constraints; c++) {
+            slack[c] = constraintBounds.get(c);
+            if (slack[c] < 0) {
+                return false;
+            }
+            for (int x : variablesOf[c]) {
+                counts[x]++;
+            }
+        }
+        occurrences = new int[variables][];
+        occurrenceCoefficients = new int[variables][];
+        for (int x = 0; x < variables; x++) {
+            occurrences[x] = new int[counts[x]];
+            occurrenceCoefficients[x] = new int[counts[x]];
+            counts[x] = 0;
+        }
+        for (int c = 0; c < constraints; c++) {
+            for (int i = 0; i < variablesOf[c].length; i++) {
+                int x = variablesOf[c][i];
+                occurrences[x][counts[x]] = c;
+                occurrenceCoefficients[x][counts[x]++] = coefficientsOf[c][i];
+            }
+        }
+
+        for (int x = 0; x < variables; x++) {
+            heapIndex[x] = -1;
+            heapInsert(x);
+        }
+
+        // variables that can't be true whatever else is
+        for (int c = 0; c < constraints; c++) {
+            for (int i = 0; i < variablesOf[c].length
+                    && coefficientsOf[c][i] > slack[c]; i++) {
+                int x = variablesOf[c][i];
+                if (value[x] == 0) {
+                    assign(literal(x, false), null, c);
+                }
+            }
+        }
+        for (int[] literals : clauses) {
+            int open = 0;
+            boolean satisfied = false;
+            for (int literal : literals) {
+                if (isTrue(literal)) {
+                    satisfied = true;
+                } else if (!isFalse(literal)) {
+                    literals[open++] = literal;
+                }
+            }
+            if (satisfied) {
+                continue;
+            }
+            if (open == 0) {
+                return false;
+            }
+            if (open == 1) {
+                assign(literals[0], null, -1);
+            } else {
+                attach(new Clause(Arrays.copyOf(literals, open), false));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true iff the literal is true.
+     */
+    private boolean isTrue(int literal) {
+        return value[literal >> 1] == ((literal & 1) == 0 ? 1 : -1);
+    }
+
+    /**
+     * Returns true iff the literal is false.
+     */
+    private boolean isFalse(int literal) {
+        return value[literal >> 1] == ((literal & 1) == 0 ? -1 : 1);
+    }
+
+    /**
+     * Makes the literal true at the current decision level, implied by the
+     * given clause or linear constraint, or by neither if it is a decision.
+     *
+     * @require the literal is unassigned
+     */
+    private void assign(int literal, Clause clause, int constraint) {
+        int x = literal >> 1;
+        boolean positive = (literal & 1) == 0;
+        value[x] = (byte) (positive ? 1 : -1);
+        level[x] = decisionLevel;
+        trailIndex[x] = trailSize;
+        reasonClause[x] = clause;
+        reasonConstraint[x] = constraint;
+        trail[trailSize++] = literal;
+        if (positive) {
+            trueCount++;
+            for (int i = 0; i < occurrences[x].length; i++) {
+                slack[occurrences[x][i]] -= occurrenceCoefficients[x][i];
+            }
+        }
+    }
+
+    /**
+     * Undoes the assignments made after the given decision level.
+     */
+    private void cancelUntil(int target) {
+        if (decisionLevel <= target) {
+            return;
+        }
+        for (int i = trailSize - 1; i >= levelStart[target]; i--) {
+            int literal = trail[i];
+            int x = literal >> 1;
+            boolean positive = (literal & 1) == 0;
+            if (positive) {
+                trueCount--;
+                for (int k = 0; k < occurrences[x].length; k++) {
+                    slack[occurrences[x][k]] += occurrenceCoefficients[x][k];
+                }
+            }
+            phase[x] = positive;
+            value[x] = 0;
+            reasonClause[x] = null;
+            reasonConstraint[x] = -1;
+            if (heapIndex[x] < 0) {
+                heapInsert(x);
+            }
+        }
+        trailSize = levelStart[target];
+        head = trailSize;
+        decisionLevel = target;
+    }
+
+    /**
+     * Propagates the assigned literals, returning the literals of a clause
+     * that is false under the assignment if there is a conflict, or null
+     * otherwise.
+     */
+    private int[] propagate() {
+        while (head < trailSize) {
+            int literal = trail[head++];
+            int[] conflict = propagateClauses(literal ^ 1);
+            if (conflict == null && (literal & 1) == 0) {
+                conflict = propagateConstraints(literal >> 1);
+            }
+            if (conflict != null) {
+                return conflict;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Visits the clauses watching the literal, which has just become false,
+     * and either watches another literal, implies the other watched literal,
+     * or returns the clause if all its literals are false.
+     */
+    private int[] propagateClauses(int falseLiteral) {
+        List<Clause> list = watches[falseLiteral];
+        if (list == null) {
+            return null;
+        }
+        int kept = 0;
+        int i = 0;
+        int[] conflict = null;
+        while (i < list.size()) {
+            Clause clause = list.get(i++);
+            if (clause.deleted) {
+                continue;
+            }
+            int[] literals = clause.literals;
+            if (literals[0] == falseLiteral) {
+                literals[0] = literals[1];
+                literals[1] = falseLiteral;
+            }
+            if (isTrue(literals[0])) {
+                list.set(kept++, clause);
+                continue;
+            }
+            boolean moved = false;
+            for (int k = 2; k < literals.length; k++) {
+                if (!isFalse(literals[k])) {
+                    literals[1] = literals[k];
+                    literals[k] = falseLiteral;
+                    watch(literals[1], clause);
+                    moved = true;
+                    break;
+                }
+            }
+            if (moved) {
+                continue;
+            }
+            list.set(kept++, clause);
+            if (isFalse(literals[0])) {
+                conflict = literals;
+                if (clause.learnt) {
+                    bump(clause);
+                }
+                while (i < list.size()) {
+                    list.set(kept++, list.get(i++));
+                }
+                break;
+            }
+            assign(literals[0], clause, -1);
+        }
+        list.subList(kept, list.size()).clear();
+        return conflict;
+    }
+
+    /**
+     * Sets false the variables of the linear constraints of the variable,
+     * which has just become true, that no longer fit in their slack, or
+     * returns an explanation if some constraint is broken.
+     */
+    private int[] propagateConstraints(int variable) {
+        for (int c : occurrences[variable]) {
+            if (slack[c] < 0) {
+                return explain(c, trailSize);
+            }
+            int[] xs = variablesOf[c];
+            int[] coefficients = coefficientsOf[c];
+            for (int i = 0; i < xs.length && coefficients[i] > slack[c]; i++) {
+                if (value[xs[i]] == 0) {
+                    assign(literal(xs[i], false), null, c);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the clause saying that the variables of the linear constraint
+     * that were true before the given position on the trail can't all be
+     * true.
+     */
+    private int[] explain(int constraint, int position) {
+        int[] xs = variablesOf[constraint];
+        int count = 0;
+        for (int x : xs) {
+            if (value[x] == 1 && trailIndex[x] < position) {
+                count++;
+            }
+        }
+        int[] result = new int[count];
+        count = 0;
+        for (int x : xs) {
+            if (value[x] == 1 && trailIndex[x] < position) {
+                result[count++] = literal(x, false);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the literals of the clause that implied the variable, with the
+     * literal it implied first.
+     */
+    private int[] reason(int variable) {
+        if (reasonClause[variable] != null) {
+            return reasonClause[variable].literals;
+        }
+        int[] others = explain(reasonConstraint[variable],
+                trailIndex[variable]);
+        int[] result = new int[others.length + 1];
+        result[0] = trail[trailIndex[variable]];
+        System.arraycopy(others, 0, result, 1, others.length);
+        return result;
+    }
+
+    /**
+     * Analyses the conflict into a clause with exactly one literal at the
+     * current decision level, backjumps to the level where that literal is
+     * implied by the clause, and assigns it.
+     *
+     * @require decisionLevel > 0
+     */
+    private void learn(int[] conflict) {
+        List<Integer> learnt = new ArrayList<>();
+        learnt.add(-1);
+        int paths = 0;
+        int literal = -1;
+        int index = trailSize - 1;
+        int[] literals = conflict;
+        do {
+            for (int k = literal < 0 ? 0 : 1; k < literals.length; k++) {
+                int x = literals[k] >> 1;
+                if (!seen[x] && level[x] > 0) {
+                    bump(x);
+                    seen[x] = true;
+                    if (level[x] == decisionLevel) {
+                        paths++;
+                    } else {
+                        learnt.add(literals[k]);
+                    }
+                }
+            }
+            while (!seen[trail[index] >> 1]) {
+                index--;
+            }
+            literal = trail[index--];
+            seen[literal >> 1] = false;
+            paths--;
+            if (paths > 0) {
+                literals = reason(literal >> 1);
+            }
+        } while (paths > 0);
+        learnt.set(0, literal ^ 1);
+
+        // watch the literal at the highest level after the asserting one,
+        // which is the level to backjump to
+        int[] clause = new int[learnt.size()];
+        int backjump = 0;
+        for (int k = 0; k < clause.length; k++) {
+            clause[k] = learnt.get(k);
+            int x = clause[k] >> 1;
+            seen[x] = false;
+            if (k > 0 && level[x] > backjump) {
+                backjump = level[x];
+                clause[k] = clause[1];
+                clause[1] = learnt.get(k);
+            }
+        }
+
+        cancelUntil(backjump);
+        if (clause.length == 1) {
+            assign(clause[0], null, -1);
+        } else {
+            Clause learntClause = new Clause(clause, true);
+            attach(learntClause);
+            learnts.add(learntClause);
+            bump(learntClause);
+            assign(clause[0], learntClause, -1);
+        }
+    }
+
+    /**
+     * Watches the first two literals of the clause.
+     */
+    private void attach(Clause clause) {
+        watch(clause.literals[0], clause);
+        watch(clause.literals[1], clause);
+    }
+
+    /**
+     * Adds the clause to those watching the literal.
+     */
+    private void watch(int literal, Clause clause) {
+        if (watches[literal] == null) {
+            watches[literal] = new ArrayList<>();
+        }
+        watches[literal].add(clause);
+    }
+
+    /**
+     * Deletes the less active half of the learnt clauses, except for those
+     * that imply an assigned literal.
+     */
+    private void reduceLearnts() {
+        Collections.sort(learnts, new Comparator<Clause>() {
+            @Override
+            public int compare(Clause c1, Clause c2) {
+                return Double.compare(c1.activity, c2.activity);
+            }
+        });
+        List<Clause> kept = new ArrayList<>();
+        for (int i = 0; i < learnts.size(); i++) {
+            Clause clause = learnts.get(i);
+            int x = clause.literals[0] >> 1;
+            boolean locked = reasonClause[x] == clause;
+            if (i < learnts.size() / 2 && !locked
+                    && clause.literals.length > 2) {
+                clause.deleted = true;
+            } else {
+                kept.add(clause);
+            }
+        }
+        learnts.clear();
+        learnts.addAll(kept);
+    }
+
+    /**
+     * Returns the unassigned variable with the highest activity, or -1 if
+     * every variable is assigned.
+     */
+    private int nextDecision() {
+        while (heapSize > 0) {
+            int x = heapRemoveMax();
+            if (value[x] == 0) {
+                return x;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Increases the activity of the variable, which took part in a conflict.
+     */
+    private void bump(int variable) {
+        activity[variable] += variableIncrement;
+        if (activity[variable] > 1e100) {
+            for (int x = 0; x < variables; x++) {
+                activity[x] *= 1e-100;
+            }
+            variableIncrement *= 1e-100;
+        }
+        if (heapIndex[variable] >= 0) {
+            siftUp(heapIndex[variable]);
+        }
+    }
+
+    /**
+     * Increases the activity of the learnt clause, which took part in a
+     * conflict.
+     */
+    private void bump(Clause clause) {
+        clause.activity += clauseIncrement;
+        if (clause.activity > 1e20) {
+            for (Clause learnt : learnts) {
+                learnt.activity *= 1e-20;
+            }
+            clauseIncrement *= 1e-20;
+        }
+    }
+
+    /**
+     * Returns the i'th element of the Luby sequence 1, 1, 2, 1, 1, 2, 4, ...
+     * counting from zero.
+     */
+    private static long luby(int i) {
+        int size = 1;
+        int sequence = 0;
+        while (size < i + 1) {
+            sequence++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != i) {
+            size = (size - 1) >> 1;
+            sequence--;
+            i = i % size;
+        }
+        return 1L << sequence;
+    }
+
+    /**
+     * Adds the variable to the heap.
+     */
+    private void heapInsert(int variable) {
+        heapIndex[variable] = heapSize;
+        heap[heapSize++] = variable;
+        siftUp(heapSize - 1);
+    }
+
+    /**
+     * Removes and returns the variable with the highest activity in the heap.
+     */
+    private int heapRemoveMax() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Moves the variable at position i of the heap up to its place.
+     */
+    private void siftUp(int i) {
+        int x = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (activity[heap[parent]] >= activity[x]) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heapIndex[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = x;
+        heapIndex[x] = i;
+    }
+
+    /**
+     * Moves the variable at position i of the heap down to its place.
+     */
+    private void siftDown(int i) {
+        int x = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize
+                    && activity[heap[child + 1]] > activity[heap[child]]) {
+                child++;
+            }
+            if (activity[heap[child]] <= activity[x]) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = x;
+        heapIndex[x] = i;
+    }
+
+}
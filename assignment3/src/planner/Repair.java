@@ -0,0 +1,383 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * A local repair of a previous allocation after the events have changed,
+ * which keeps as many events as it can where they were.
+ * </p>
+ *
+ * <p>
+ * Events that are no longer there are dropped, and events whose venue has
+ * been taken or can no longer host them are unplaced. While a corridor is
+ * unsafe, the event causing the most traffic on it is unplaced. The unplaced
+ * events are then searched for among the free venues, with the corridors
+ * reduced to the capacity the placed events leave. If they can't all be
+ * placed, the neighbourhood is widened by an ejection chain: the events
+ * causing the most traffic on the corridors that are too full for an
+ * unplaced event at the free venues that suit it best, or, if no free venue
+ * is large enough, the events at the smallest venues that are, are unplaced
+ * as well and searched for again. After a few widenings the repair gives up,
+ * and the whole problem has to be searched instead.
+ * </p>
+ */
+class Repair {
+
+    // the most times the neighbourhood is widened before giving up
+    private final static int MAX_RADIUS = 6;
+    // the number of venues made room at for each unplaced event at the
+    // first widening, which doubles at each widening after it
+    private final static int NEIGHBOURS = 4;
+
+    // the problem being repaired
+    private final Problem problem;
+    // the venue of each event, or -1
+    private final int[] allocation;
+    // the event at each venue, or -1
+    private final int[] eventAt;
+    // the traffic on each corridor generated by the placed events
+    private final long[] load;
+
+    /*
+     * invariant:
+     *
+     * allocation and eventAt are inverse && load is the traffic of the placed
+     * events
+     */
+
+    /**
+     * Starts a repair of the problem from the given previous allocation.
+     * Events that are not in the previous allocation, but have the same name
+     * as an event that is, start at its venue if it can host them.
+     *
+     * @require problem != null && previous != null
+     */
+    Repair(Problem problem, Map<Event, Venue> previous) {
+        this(problem, indices(problem, previous));
+    }
+
+    /**
+     * Starts a repair of the problem from the given previous allocation, as
+     * an array mapping each event index to a venue index or -1.
+     *
+     * @require problem != null && previous.length == problem.events.size()
+     *          and each entry is a venue index or -1
+     */
+    Repair(Problem problem, int[] previous) {
+        this.problem = problem;
+        allocation = new int[problem.sizes.length];
+        Arrays.fill(allocation, -1);
+        eventAt = new int[problem.capacities.length];
+        Arrays.fill(eventAt, -1);
+        load = new long[problem.corridors.length];
+        for (int e = 0; e < allocation.length; e++) {
+            int v = previous[e];
+            if (v >= 0 && eventAt[v] < 0 && problem.canHost(e, v)) {
+                place(e, v);
+            }
+        }
+        makeSafe();
+    }
+
+    /**
+     * Returns the previous allocation as an array mapping each event index
+     * of the problem to the index of its venue, or -1.
+     */
+    private static int[] indices(Problem problem,
+            Map<Event, Venue> previous) {
+        Map<Venue, Integer> venueIndex = new HashMap<>();
+        for (int v = 0; v < problem.venues.size(); v++) {
+            venueIndex.put(problem.venues.get(v), v);
+        }
+        Map<String, Venue> byName = new HashMap<>();
+        for (Map.Entry<Event, Venue> entry : previous.entrySet()) {
+            byName.put(entry.getKey().getName(), entry.getValue());
+        }
+        int[] result = new int[problem.sizes.length];
+        for (int e = 0; e < result.length; e++) {
+            Event event = problem.events.get(e);
+            Venue venue = previous.get(event);
+            if (venue == null) {
+                venue = byName.get(event.getName());
+            }
+            Integer v = venue == null ? null : venueIndex.get(venue);
+            result[e] = v == null ? -1 : v;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the allocation as it stands, which is safe, as an array mapping
+     * each event index to a venue index or -1 for unplaced events.
+     */
+    int[] allocation() {
+        return allocation.clone();
+    }
+
+    /**
+     * Places the event at the venue.
+     */
+    private void place(int e, int v) {
+        allocation[e] = v;
+        eventAt[v] = e;
+        for (int k = 0; k < problem.venueCorridors[v].length; k++) {
+            load[problem.venueCorridors[v][k]] += problem.traffic(e, v, k);
+        }
+    }
+
+    /**
+     * Removes the event from its venue.
+     */
+    private void unplace(int e) {
+        int v = allocation[e];
+        for (int k = 0; k < problem.venueCorridors[v].length; k++) {
+            load[problem.venueCorridors[v][k]] -= problem.traffic(e, v, k);
+        }
+        allocation[e] = -1;
+        eventAt[v] = -1;
+    }
+
+    /**
+     * Unplaces the event causing the most traffic on each unsafe corridor
+     * until every corridor is safe.
+     */
+    private void makeSafe() {
+        for (int c = 0; c < load.length; c++) {
+            while (load[c] > problem.corridorCapacities[c]) {
+                int worst = -1;
+                int most = -1;
+                for (int i = 0; i < problem.corridorVenues[c].length; i++) {
+                    int v = problem.corridorVenues[c][i];
+                    int e = eventAt[v];
+                    if (e >= 0) {
+                        int traffic = problem.traffic(e, v,
+                                problem.corridorIndex[c][i]);
+                        if (traffic > most) {
+                            worst = e;
+                            most = traffic;
+                        }
+                    }
+                }
+                unplace(worst);
+            }
+        }
+    }
+
+    /**
+     * Places the unplaced events, moving as few placed events as it can, by
+     * searching with the given options in widening neighbourhoods of them.
+     *
+     * @require options != null && budget != null
+     * @return the repaired allocation, as an array mapping each event index
+     *         to a venue index; the safe allocation reached so far, with -1
+     *         for unplaced events, if the budget ran out; or null if the
+     *         events couldn't be placed near enough to where they were
+     */
+    int[] repair(AllocationOptions options, SearchBudget budget,
+            SearchMetrics metrics) {
+        boolean[] freed = new boolean[allocation.length];
+        List<Integer> events = new ArrayList<>();
+        for (int e = 0; e < allocation.length; e++) {
+            if (allocation[e] < 0) {
+                freed[e] = true;
+                events.add(e);
+            }
+        }
+
+        for (int radius = 0; !events.isEmpty(); radius++) {
+            if (solve(events, options, budget, metrics)) {
+                break;
+            }
+            if (budget.isExhausted() || radius == MAX_RADIUS) {
+                return budget.isExhausted() ? allocation : null;
+            }
+            if (!widen(events, freed, NEIGHBOURS << radius)) {
+                return null;
+            }
+        }
+        return allocation;
+    }
+
+    /**
+     * Searches for a safe allocation of the given events, some of which may
+     * be placed, to the venues that are free once they are removed, given the
+     * traffic of the other placed events. The events are placed as found if
+     * they can all be placed, and left where they were otherwise.
+     *
+     * @return true iff every given event was placed
+     */
+    private boolean solve(List<Integer> events, AllocationOptions options,
+            SearchBudget budget, SearchMetrics metrics) {
+        int[] before = new int[events.size()];
+        List<Event> subEvents = new ArrayList<>();
+        for (int i = 0; i < before.length; i++) {
+            int e = events.get(i);
+            before[i] = allocation[e];
+            if (before[i] >= 0) {
+                unplace(e);
+            }
+            subEvents.add(problem.events.get(e));
+        }
+
+        // only the free venues that can host the smallest event are of use,
+        // and the sub-network costs time in the corridors of its venues
+        int smallest = Integer.MAX_VALUE;
+        for (Event event : subEvents) {
+            smallest = Math.min(smallest, event.getSize());
+        }
+        int[] venues = new int[eventAt.length];
+        int free = 0;
+        for (int v = 0; v < eventAt.length; v++) {
+            if (eventAt[v] < 0 && problem.capacities[v] >= smallest) {
+                venues[free++] = v;
+            }
+        }
+        venues = Arrays.copyOf(venues, free);
+        Problem part = new Problem(subEvents, new VenueNetwork(
+                problem.network, venues, load));
+        boolean placed = Presolve.check(part) == null;
+        int[] best = placed ? Allocator.search(part, options, budget,
+                metrics) : null;
+        for (int i = 0; placed && i < best.length; i++) {
+            placed = best[i] >= 0;
+        }
+        for (int i = 0; i < before.length; i++) {
+            int v = placed ? venues[best[i]] : before[i];
+            if (v >= 0) {
+                place(events.get(i), v);
+            }
+        }
+        return placed;
+    }
+
+    /**
+     * Adds to the given events the placed events that stand in the way of
+     * the unplaced ones. For each unplaced event, the given number of free
+     * venues that can host it with the least traffic too many on their
+     * corridors are chosen, and the events causing the most traffic on those
+     * corridors are added until there would be room. If no free venue can
+     * host the event, the events at the given number of smallest venues that
+     * can are added instead.
+     *
+     * @return true iff some event was added
+     */
+    private boolean widen(List<Integer> events, boolean[] freed,
+            int neighbours) {
+        int added = events.size();
+        for (int f : new ArrayList<>(events)) {
+            if (allocation[f] >= 0) {
+                continue;
+            }
+            // the venues that can host the event, and how much traffic too
+            // many each of the free ones would have
+            List<Integer> free = new ArrayList<>();
+            final Map<Integer, Long> overflow = new HashMap<>();
+            List<Integer> taken = new ArrayList<>();
+            for (int v = 0; v < eventAt.length; v++) {
+                if (!problem.canHost(f, v)) {
+                    continue;
+                }
+                if (eventAt[v] >= 0) {
+                    taken.add(v);
+                    continue;
+                }
+                long excess = 0;
+                for (int k = 0; k < problem.venueCorridors[v].length; k++) {
+                    excess += excess(f, v, k);
+                }
+                free.add(v);
+                overflow.put(v, excess);
+            }
+
+            if (free.isEmpty()) {
+                sortByCapacity(taken);
+                for (int v : taken) {
+                    if (events.size() - added == neighbours) {
+                        break;
+                    }
+                    if (!freed[eventAt[v]]) {
+                        freed[eventAt[v]] = true;
+                        events.add(eventAt[v]);
+                    }
+                }
+                continue;
+            }
+            Collections.sort(free, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer v1, Integer v2) {
+                    return Long.compare(overflow.get(v1), overflow.get(v2));
+                }
+            });
+            for (int v : free.subList(0, Math.min(neighbours, free
+                    .size()))) {
+                for (int k = 0; k < problem.venueCorridors[v].length; k++) {
+                    long excess = excess(f, v, k);
+                    if (excess > 0) {
+                        eject(problem.venueCorridors[v][k], excess, events,
+                                freed);
+                    }
+                }
+            }
+        }
+        return events.size() > added;
+    }
+
+    /**
+     * Returns how much more traffic than its capacity the k'th corridor of
+     * venue v would have if event f were held there, or 0 if it would be
+     * safe.
+     */
+    private long excess(int f, int v, int k) {
+        int c = problem.venueCorridors[v][k];
+        return Math.max(0, load[c] + problem.traffic(f, v, k)
+                - problem.corridorCapacities[c]);
+    }
+
+    /**
+     * Adds to the given events the placed events causing the most traffic on
+     * the corridor, until they cause at least the given amount.
+     */
+    private void eject(int c, long amount, List<Integer> events,
+            boolean[] freed) {
+        List<int[]> placed = new ArrayList<>();
+        for (int i = 0; i < problem.corridorVenues[c].length; i++) {
+            int v = problem.corridorVenues[c][i];
+            int e = eventAt[v];
+            if (e >= 0) {
+                placed.add(new int[] { e, problem.traffic(e, v,
+                        problem.corridorIndex[c][i]) });
+            }
+        }
+        Collections.sort(placed, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] p1, int[] p2) {
+                return Integer.compare(p2[1], p1[1]);
+            }
+        });
+        for (int[] pair : placed) {
+            if (amount <= 0) {
+                break;
+            }
+            amount -= pair[1];
+            if (!freed[pair[0]]) {
+                freed[pair[0]] = true;
+                events.add(pair[0]);
+            }
+        }
+    }
+
+    /**
+     * Sorts the venues in ascending order of capacity.
+     */
+    private void sortByCapacity(List<Integer> venues) {
+        Collections.sort(venues, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer v1, Integer v2) {
+                return Integer.compare(problem.capacities[v1],
+                        problem.capacities[v2]);
+            }
+        });
+    }
+
+}
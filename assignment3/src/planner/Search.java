@@ -0,0 +1,385 @@
+package planner;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * A depth-first backtracking search for the first safe allocation of a
+ * problem.
+ * </p>
+ *
+ * <p>
+ * Unlike the enumeration in Allocator, the traffic on each corridor is kept up
+ * to date as events are placed, and a venue is rejected as soon as placing an
+ * event there would make a corridor unsafe. Since traffic only ever grows as
+ * more events are placed, no safe allocation is missed by doing so.
+ * </p>
+ *
+ * <p>
+ * The venues that can host an event are found by a binary search of the
+ * venues sorted by capacity, and tried in that order, so that the venues that
+ * fit it most closely are tried first, and larger events are left the larger
+ * venues. Venues with the same capacity and traffic are interchangeable, so
+ * only the first free venue of each such class is tried for an event.
+ * </p>
+ *
+ * <p>
+ * Given a NogoodCache, the search remembers the states from which it found
+ * no safe allocation, and doesn't search them again when it reaches them by
+ * placing events in another order. A state is the number of venues of each
+ * class in use and the traffic on each corridor, which together decide which
+ * events are left and where they can go, and is identified in the cache by
+ * two independent random linear hashes of them, kept up to date as events
+ * are placed and removed.
+ * </p>
+ *
+ * <p>
+ * A search is not thread safe, but several searches may share a problem, a
+ * stop flag and a budget, e.g. to search different parts of the tree in
+ * parallel.
+ * </p>
+ */
+class Search {
+
+    // the problem being searched
+    private final Problem problem;
+    // the indices of the events in the order that they are placed
+    private final int[] order;
+    // the traffic on each corridor generated by the placed events
+    private final int[] load;
+    // the traffic of the event being placed or removed on each corridor of
+    // its venue, for updating the hashes
+    private final int[] amounts;
+    // the number of venues of each class that host a placed event
+    private final int[] classUsed;
+    // the venue of each placed event
+    private final int[] allocation;
+    // set to abandon the search, e.g. when another search has succeeded
+    private final AtomicBoolean stop;
+    // the metrics to count the work of the search in, or null for none
+    private final SearchMetrics metrics;
+    // the budget the search stops at once it runs out
+    private final SearchBudget budget;
+    // the number of nodes taken from the budget and not yet expanded
+    private int credit;
+    // the allocation with the most placed events so far, and their number
+    private int[] best;
+    private int bestDepth;
+    // the states with no safe allocation, or null to not remember them
+    private final NogoodCache cache;
+    // the random weights of each class and corridor in the two hashes of
+    // the state, or null if there is no cache
+    private final long[][] classKeys;
+    private final long[][] corridorKeys;
+    // the two hashes of the current state
+    private final long[] hash = new long[2];
+
+    /*
+     * invariant:
+     *
+     * problem != null && stop != null &&
+     *
+     * order is a permutation of the event indices &&
+     *
+     * load is the traffic generated by the placed events &&
+     *
+     * the venues hosting placed events are, for each class c, the first
+     * classUsed[c] venues of the class &&
+     *
+     * cache == null || hash[h] is the sum of classUsed[c] * classKeys[h][c]
+     * over the classes and load[c] * corridorKeys[h][c] over the corridors
+     */
+
+    /**
+     * Creates a search of the given problem, with no events placed yet.
+     *
+     * @require problem != null && stop != null && budget != null
+     * @ensure creates a new search of the problem that gives up once stop is
+     *         set or the budget runs out, and counts its work in metrics
+     *         unless it is null
+     */
+    Search(Problem problem, AtomicBoolean stop, SearchBudget budget,
+            SearchMetrics metrics) {
+        this(problem, stop, budget, metrics, null);
+    }
+
+    /**
+     * Creates a search of the given problem, with no events placed yet, that
+     * remembers the states with no safe allocation in the cache unless it is
+     * null. Searches of the same problem may share a cache, but not at the
+     * same time.
+     *
+     * @require problem != null && stop != null && budget != null
+     * @ensure creates a new search of the problem that gives up once stop is
+     *         set or the budget runs out, and counts its work in metrics
+     *         unless it is null
+     */
+    Search(Problem problem, AtomicBoolean stop, SearchBudget budget,
+            SearchMetrics metrics, NogoodCache cache) {
+        this.problem = problem;
+        this.stop = stop;
+        this.budget = budget;
+        this.metrics = metrics;
+        this.cache = cache;
+        if (cache == null) {
+            classKeys = null;
+            corridorKeys = null;
+        } else {
+            // the same keys for every search, so that they can share a cache
+            Random random = new Random(problem.sizes.length);
+            classKeys = keys(random, problem.network.classCount);
+            corridorKeys = keys(random, problem.corridors.length);
+        }
+        load = new int[problem.corridors.length];
+        int most = 0;
+        for (int[] corridors : problem.venueCorridors) {
+            most = Math.max(most, corridors.length);
+        }
+        amounts = new int[most];
+        classUsed = new int[problem.network.classCount];
+        allocation = new int[problem.events.size()];
+        Arrays.fill(allocation, -1);
+        best = allocation.clone();
+
+        // place the largest (and so most constrained) events first
+        Integer[] bySize = new Integer[problem.sizes.length];
+        for (int e = 0; e < bySize.length; e++) {
+            bySize[e] = e;
+        }
+        Arrays.sort(bySize, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer e1, Integer e2) {
+                return Integer.compare(Search.this.problem.sizes[e2],
+                        Search.this.problem.sizes[e1]);
+            }
+        });
+        order = new int[bySize.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = bySize[i];
+        }
+    }
+
+    /**
+     * Returns two arrays of the given number of random keys.
+     */
+    private static long[][] keys(Random random, int count) {
+        long[][] keys = new long[2][count];
+        for (long[] half : keys) {
+            for (int i = 0; i < count; i++) {
+                half[i] = random.nextLong();
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the number of events to be placed.
+     */
+    int depth() {
+        return order.length;
+    }
+
+    /**
+     * Returns the index of the event placed at the given depth of the search.
+     *
+     * @require 0 <= depth < depth()
+     */
+    int eventAt(int depth) {
+        return order[depth];
+    }
+
+    /**
+     * Returns the allocation with the most placed events that the search has
+     * found, as an array mapping each event index to a venue index, or -1 for
+     * events that were not placed.
+     */
+    int[] best() {
+        return best;
+    }
+
+    /**
+     * Returns the number of events placed in best().
+     */
+    int bestDepth() {
+        return bestDepth;
+    }
+
+    /**
+     * Searches for a safe allocation, returning it as an array mapping each
+     * event index to a venue index, or null if there is none or the search was
+     * stopped.
+     *
+     * @require no events have been placed
+     */
+    int[] search() {
+        return search(0);
+    }
+
+    /**
+     * Places the first event at the given venue, and searches for a safe
+     * allocation of the rest of the events, returning it as an array mapping
+     * each event index to a venue index, or null if there is none or the
+     * search was stopped.
+     *
+     * @require depth() > 0 && no events have been placed
+     */
+    int[] searchFrom(int venue) {
+        int event = order[0];
+        if (!isCandidate(event, venue) || !place(event, venue)) {
+            return null;
+        }
+        return search(1);
+    }
+
+    /**
+     * Searches for a safe allocation of the events from the given depth on,
+     * given the events that are already placed.
+     *
+     * @return the allocation found, or null if there is none or the search
+     *         was stopped
+     */
+    private int[] search(int depth) {
+        if (metrics != null) {
+            metrics.nodes++;
+            metrics.maxDepth = Math.max(metrics.maxDepth, depth);
+        }
+        if (depth > bestDepth) {
+            best = allocation.clone();
+            bestDepth = depth;
+        }
+        if (depth == order.length) {
+            return best;
+        }
+        if (stop.get()) {
+            return null;
+        }
+        if (credit == 0) {
+            credit = budget.take(SearchBudget.CHUNK);
+            if (credit == 0) {
+                stop.set(true);
+                return null;
+            }
+        }
+        credit--;
+        if (cache != null) {
+            if (metrics != null) {
+                metrics.nogoodLookups++;
+            }
+            if (cache.contains(hash[0], hash[1])) {
+                if (metrics != null) {
+                    metrics.nogoodHits++;
+                }
+                return null;
+            }
+        }
+        int event = order[depth];
+        // only the venues large enough for the event, the closest fit first
+        int first = problem.firstFit(event);
+        if (metrics != null) {
+            metrics.capacityPrunes += first;
+        }
+        for (int i = first; i < problem.byCapacity.length; i++) {
+            int venue = problem.byCapacity[i];
+            if (isCandidate(event, venue) && place(event, venue)) {
+                int[] result = search(depth + 1);
+                if (result != null) {
+                    return result;
+                }
+                remove(event, venue);
+                if (metrics != null) {
+                    metrics.backtracks++;
+                }
+            }
+        }
+        // a stopped search may have missed an allocation from this state
+        if (cache != null && !stop.get()) {
+            cache.add(hash[0], hash[1]);
+        }
+        return null;
+    }
+
+    /**
+     * Returns true iff the venue is free, can host the event, and is the first
+     * free venue of its class. Since the venues of a class can be swapped in
+     * any allocation, trying any other venue of the class would only repeat
+     * the search from the first one.
+     */
+    private boolean isCandidate(int event, int venue) {
+        int index = problem.classIndex[venue];
+        int used = classUsed[problem.venueClass[venue]];
+        if (index < used) {
+            return false;
+        }
+        if (!problem.canHost(event, venue)) {
+            if (metrics != null) {
+                metrics.capacityPrunes++;
+            }
+            return false;
+        }
+        if (index > used) {
+            if (metrics != null) {
+                metrics.symmetryPrunes++;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Places the event at the venue if the traffic it generates is safe,
+     * returning true iff it was placed.
+     *
+     * @require isCandidate(event, venue)
+     */
+    private boolean place(int event, int venue) {
+        if (!TrafficKernels.tryAdd(load, problem.venueCorridors[venue],
+                problem.venueTraffic[venue], problem.sizes[event],
+                problem.capacities[venue], problem.corridorCapacities)) {
+            if (metrics != null) {
+                metrics.corridorPrunes++;
+            }
+            return false;
+        }
+        classUsed[problem.venueClass[venue]]++;
+        allocation[event] = venue;
+        if (cache != null) {
+            rehash(event, venue, 1);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a placed event from its venue.
+     *
+     * @require event is placed at venue
+     */
+    private void remove(int event, int venue) {
+        TrafficKernels.subtract(load, problem.venueCorridors[venue],
+                problem.venueTraffic[venue], problem.sizes[event],
+                problem.capacities[venue]);
+        classUsed[problem.venueClass[venue]]--;
+        allocation[event] = -1;
+        if (cache != null) {
+            rehash(event, venue, -1);
+        }
+    }
+
+    /**
+     * Updates the hashes of the state for the event being placed at the venue
+     * if sign is 1, or removed from it if sign is -1.
+     */
+    private void rehash(int event, int venue, int sign) {
+        int[] corridors = problem.venueCorridors[venue];
+        TrafficKernels.scale(problem.venueTraffic[venue], problem.sizes[event],
+                problem.capacities[venue], amounts);
+        for (int h = 0; h < hash.length; h++) {
+            long delta = classKeys[h][problem.venueClass[venue]];
+            for (int k = 0; k < corridors.length; k++) {
+                delta += amounts[k] * corridorKeys[h][corridors[k]];
+            }
+            hash[h] += sign * delta;
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package planner;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The time, nodes and cancellation token that one or more searches of the
+ * same problem share. Searches take nodes from the budget in chunks, and the
+ * time and token are only checked when a chunk is taken, so that a search
+ * spends almost nothing on keeping to its budget.
+ */
+class SearchBudget {
+
+    // the number of nodes a search takes from the budget at once
+    final static int CHUNK = 1024;
+
+    // the value of System.nanoTime() when the time runs out
+    private final long deadline;
+    // whether there is a deadline
+    private final boolean hasDeadline;
+    // the number of nodes left, or -1 if there is no node budget
+    private final AtomicLong nodes;
+    // the token to stop searching once cancelled, or null for none
+    private final CancellationToken token;
+    // whether the budget has run out
+    private volatile boolean exhausted;
+
+    /**
+     * Creates the budget described by the options, starting now.
+     *
+     * @require options != null
+     */
+    SearchBudget(AllocationOptions options) {
+        this(options, 0);
+    }
+
+    /**
+     * Creates the budget described by the options, starting now, with the
+     * given time limit in nanoseconds if the options have no time limit or
+     * node budget, or none if it is zero.
+     *
+     * @require options != null && defaultTimeLimit >= 0
+     */
+    SearchBudget(AllocationOptions options, long defaultTimeLimit) {
+        long timeLimit = options.getTimeLimitNanos();
+        if (timeLimit == 0 && options.getNodeBudget() == 0) {
+            timeLimit = defaultTimeLimit;
+        }
+        hasDeadline = timeLimit > 0;
+        deadline = System.nanoTime() + timeLimit;
+        nodes = new AtomicLong(options.getNodeBudget() > 0 ? options
+                .getNodeBudget() : -1);
+        token = options.getCancellationToken();
+    }
+
+    /**
+     * Takes up to count nodes from the budget, returning the number taken.
+     * Zero is returned once the budget has run out.
+     *
+     * @require count > 0
+     */
+    int take(int count) {
+        if (exhausted) {
+            return 0;
+        }
+        if ((hasDeadline && System.nanoTime() - deadline > 0)
+                || (token != null && token.isCancelled())) {
+            exhausted = true;
+            return 0;
+        }
+        while (true) {
+            long left = nodes.get();
+            if (left < 0) {
+                return count;
+            }
+            if (left == 0) {
+                exhausted = true;
+                return 0;
+            }
+            int taken = (int) Math.min(count, left);
+            if (nodes.compareAndSet(left, left - taken)) {
+                return taken;
+            }
+        }
+    }
+
+    /**
+     * Returns true iff the budget has run out.
+     */
+    boolean isExhausted() {
+        return exhausted;
+    }
+
+}
@@ -0,0 +1,261 @@
+package planner;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * <p>
+ * Counters describing the work done by a search for a safe allocation.
+ * </p>
+ *
+ * <p>
+ * Metrics are only collected when AllocationOptions.setCollectMetrics(true)
+ * has been called, and otherwise the search does not count anything. The
+ * EXHAUSTIVE strategy only reports its time and allocated bytes.
+ * </p>
+ */
+public class SearchMetrics {
+
+    // the bean for measuring the bytes allocated by a thread, or null if the
+    // virtual machine can't measure them
+    private final static com.sun.management.ThreadMXBean THREADS = threads();
+
+    // the number of partial allocations expanded
+    long nodes;
+    // the number of venues skipped because they are too small for an event
+    long capacityPrunes;
+    // the number of venues skipped because a corridor would be unsafe
+    long corridorPrunes;
+    // the number of venues skipped because an equivalent venue was tried
+    long symmetryPrunes;
+    // the number of events removed from a venue to try another one
+    long backtracks;
+    // the largest number of events placed at once
+    int maxDepth;
+    // the number of states looked up in the nogood cache, the number found
+    // there, and the bytes taken up by the caches
+    long nogoodLookups;
+    long nogoodHits;
+    long nogoodBytes;
+    // the time spent encoding the problem, checking it before searching,
+    // and searching, in nanoseconds
+    long encodeNanos;
+    long presolveNanos;
+    long searchNanos;
+    // the bytes allocated on the threads of the search, or -1 if unknown
+    long allocatedBytes;
+
+    /**
+     * Creates metrics with every counter zero.
+     */
+    SearchMetrics() {
+        allocatedBytes = THREADS == null ? -1 : 0;
+    }
+
+    /**
+     * Returns the number of partial allocations the search expanded.
+     *
+     * @return the number of nodes of the search tree visited
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of times a venue was not tried for an event because
+     * its capacity is too small.
+     *
+     * @return the number of capacity prunes
+     */
+    public long getCapacityPrunes() {
+        return capacityPrunes;
+    }
+
+    /**
+     * Returns the number of times a venue was not tried for an event because
+     * the traffic would overflow one of its corridors.
+     *
+     * @return the number of corridor prunes
+     */
+    public long getCorridorPrunes() {
+        return corridorPrunes;
+    }
+
+    /**
+     * Returns the number of times a venue was not tried for an event because
+     * a venue with the same capacity and traffic had already been tried.
+     *
+     * @return the number of symmetry prunes
+     */
+    public long getSymmetryPrunes() {
+        return symmetryPrunes;
+    }
+
+    /**
+     * Returns the number of times a placed event was taken back out of its
+     * venue.
+     *
+     * @return the number of backtracks
+     */
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    /**
+     * Returns the largest number of events that were placed at once.
+     *
+     * @return the maximum depth of the search
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the number of states the search looked up in its nogood cache
+     * of states with no safe allocation.
+     *
+     * @return the number of nogood cache lookups
+     */
+    public long getNogoodLookups() {
+        return nogoodLookups;
+    }
+
+    /**
+     * Returns the number of states the search didn't search again because
+     * they were in its nogood cache.
+     *
+     * @return the number of nogood cache hits
+     */
+    public long getNogoodHits() {
+        return nogoodHits;
+    }
+
+    /**
+     * Returns the fraction of the lookups in the nogood cache that found the
+     * state.
+     *
+     * @return the nogood cache hit rate, or zero if there were no lookups
+     */
+    public double getNogoodHitRate() {
+        return nogoodLookups == 0 ? 0 : (double) nogoodHits / nogoodLookups;
+    }
+
+    /**
+     * Returns the number of bytes taken up by the nogood caches of the search.
+     *
+     * @return the size of the nogood caches in bytes, or zero if there were
+     *         none
+     */
+    public long getNogoodBytes() {
+        return nogoodBytes;
+    }
+
+    /**
+     * Returns the time spent encoding the events and venues for the search.
+     *
+     * @return the encoding time in nanoseconds
+     */
+    public long getEncodeNanos() {
+        return encodeNanos;
+    }
+
+    /**
+     * Returns the time spent checking for obvious reasons that there is no
+     * safe allocation, before searching.
+     *
+     * @return the checking time in nanoseconds
+     */
+    public long getPresolveNanos() {
+        return presolveNanos;
+    }
+
+    /**
+     * Returns the time spent searching, after encoding and checking.
+     *
+     * @return the search time in nanoseconds
+     */
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    /**
+     * Returns the number of bytes allocated on the threads of the search, as
+     * measured by com.sun.management.ThreadMXBean.
+     *
+     * @return the allocated bytes, or -1 if the virtual machine can't measure
+     *         them
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Adds the counters of other, from a part of the same search, to these.
+     * The times are not added.
+     *
+     * @require other != null
+     */
+    void add(SearchMetrics other) {
+        nodes += other.nodes;
+        capacityPrunes += other.capacityPrunes;
+        corridorPrunes += other.corridorPrunes;
+        symmetryPrunes += other.symmetryPrunes;
+        backtracks += other.backtracks;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        nogoodLookups += other.nogoodLookups;
+        nogoodHits += other.nogoodHits;
+        nogoodBytes += other.nogoodBytes;
+        if (allocatedBytes >= 0 && other.allocatedBytes >= 0) {
+            allocatedBytes += other.allocatedBytes;
+        } else {
+            allocatedBytes = -1;
+        }
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread, or
+     * -1 if the virtual machine can't measure them.
+     */
+    static long threadAllocatedBytes() {
+        if (THREADS == null) {
+            return -1;
+        }
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread()
+                .getId());
+    }
+
+    /**
+     * Returns the thread bean if it can measure allocated bytes, or null.
+     */
+    private static com.sun.management.ThreadMXBean threads() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean result =
+                (com.sun.management.ThreadMXBean) threads;
+        try {
+            if (!result.isThreadAllocatedMemorySupported()) {
+                return null;
+            }
+            result.setThreadAllocatedMemoryEnabled(true);
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return null;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "nodes: " + nodes + ", capacity prunes: " + capacityPrunes
+                + ", corridor prunes: " + corridorPrunes
+                + ", symmetry prunes: " + symmetryPrunes + ", backtracks: "
+                + backtracks + ", max depth: " + maxDepth + ", nogood hits: "
+                + nogoodHits + "/" + nogoodLookups + ", nogood bytes: "
+                + nogoodBytes + ", encode: "
+                + encodeNanos / 1000000 + "ms, presolve: " + presolveNanos
+                / 1000000 + "ms, search: " + searchNanos
+                / 1000000 + "ms, allocated bytes: " + allocatedBytes;
+    }
+
+}
@@ -11,6 +11,18 @@ import java.util.*;
  * The traffic on a corridor is measured in non-negative integer units,
  * representing people.
  * </p>
+ * 
+ * <p>
+ * A traffic record can be frozen into an immutable copy, which can't be
+ * updated and caches its hash code, e.g. for use as a map key.
+ * </p>
+ * 
+ * <p>
+ * Equality and the hash code depend on the traffic recorded, so an unfrozen
+ * record must not be used as a key of a hash map or an element of a hash
+ * set: updating it would change its hash code and lose it in the table.
+ * Freeze it first.
+ * </p>
  */
 public class Traffic {
 
@@ -24,13 +36,19 @@ public class Traffic {
      * with them.
      */
     private TreeMap<Corridor, Integer> trafficMap;
+    // whether the traffic can no longer be updated
+    private boolean frozen;
+    // the hash code of trafficMap if frozen
+    private int hash;
 
     /*
      * invariant:
      * 
      * traffic !=null && !traffic.containsValue(null) &&
      * 
-     * for each corridor c in traffic.keySet(), traffic.get(c) > 0
+     * for each corridor c in traffic.keySet(), traffic.get(c) > 0 &&
+     * 
+     * frozen implies hash == trafficMap.hashCode()
      * 
      * (Note: TreeMaps can't contain null keys so we don't need
      * !traffic.containsKey(null) as an invariant)
@@ -60,7 +78,8 @@ public class Traffic {
      * The parameter initialTraffic should not be modified by this method.
      * Furthermore, future changes to the parameter initialTraffic should not
      * affect this instance of the class, and vice versa. That is, the new
-     * instance of the class should be a deep copy of initialTraffic.
+     * instance of the class should be a deep copy of initialTraffic. The copy
+     * of a frozen traffic record can be updated.
      * </p>
      * 
      * @param initialTraffic
@@ -72,6 +91,32 @@ public class Traffic {
         trafficMap = new TreeMap<Corridor, Integer>(initialTraffic.trafficMap);
     }
 
+    /**
+     * Returns an immutable traffic record with the same traffic as this one,
+     * whose hash code is only computed once. Future changes to this object
+     * do not affect the frozen record.
+     * 
+     * @return this object if it is frozen, and a frozen copy of it otherwise
+     */
+    public Traffic freeze() {
+        if (frozen) {
+            return this;
+        }
+        Traffic result = new Traffic(this);
+        result.frozen = true;
+        result.hash = result.trafficMap.hashCode();
+        return result;
+    }
+
+    /**
+     * Returns true if this traffic record is frozen, and so can't be updated.
+     * 
+     * @return true iff this traffic record is immutable
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
     /**
      * <p>
      * Returns the amount of traffic on the given corridor.
@@ -112,6 +157,13 @@ public class Traffic {
         return new HashSet<>(trafficMap.keySet());
     }
 
+    /**
+     * Returns the number of corridors with traffic, without copying them.
+     */
+    int getCorridorCount() {
+        return trafficMap.size();
+    }
+
     /**
      * <p>
      * Returns true if parameter other currently records the same traffic as
@@ -132,6 +184,12 @@ public class Traffic {
      *             if other is null
      */
     public boolean sameTraffic(Traffic other) {
+        if (this == other) {
+            return true;
+        }
+        if (frozen && other.frozen && hash != other.hash) {
+            return false;
+        }
         return trafficMap.equals(other.trafficMap);
     }
 
@@ -174,11 +232,14 @@ public class Traffic {
      * @throws InvalidTrafficException
      *             if the addition of amount and the current amount of traffic
      *             on the given corridor is negative (i.e. less than zero).
+     * @throws UnsupportedOperationException
+     *             if this traffic record is frozen
      */
     public void updateTraffic(Corridor corridor, int amount) {
         if (corridor == null) {
             throw new NullPointerException("Parameter corridor cannot be null");
         }
+        checkNotFrozen();
         int currentAmount = getTraffic(corridor);
         // check that the traffic would not become negative.
         if (currentAmount + amount < 0) {
@@ -216,14 +277,51 @@ public class Traffic {
      *            the traffic to be added to this object
      * @throws NullPointerException
      *             if extraTraffic is null
+     * @throws UnsupportedOperationException
+     *             if this traffic record is frozen
      */
     public void addTraffic(Traffic extraTraffic) {
+        checkNotFrozen();
         for (Corridor corridor : extraTraffic.trafficMap.keySet()) {
             trafficMap.put(corridor, getTraffic(corridor) + extraTraffic
                     .getTraffic(corridor));
         }
     }
 
+    /**
+     * Throws an UnsupportedOperationException if this traffic record is
+     * frozen.
+     */
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException(
+                    "Frozen traffic cannot be updated.");
+        }
+    }
+
+    /**
+     * Returns true if and only if the given object is an instance of the
+     * class Traffic that records the same traffic as this one, according to
+     * the sameTraffic method.
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof Traffic)) {
+            return false;
+        }
+        return sameTraffic((Traffic) object);
+    }
+
+    /**
+     * Returns a hash code of the traffic recorded. It is cached once the
+     * record is frozen, and recomputed on every call, so it follows any
+     * updates, until then.
+     */
+    @Override
+    public int hashCode() {
+        return frozen ? hash : trafficMap.hashCode();
+    }
+
     /**
      * <p>
      * The string representation is the concatenation of strings of the form
@@ -259,11 +357,13 @@ public class Traffic {
      */
     @Override
     public String toString() {
-        String result = ""; // the string representation
-        for (Corridor c : trafficMap.keySet()) {
-            result += c + ": " + trafficMap.get(c) + LINE_SEPARATOR;
+        // the string representation (built in linear time)
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<Corridor, Integer> entry : trafficMap.entrySet()) {
+            result.append(entry.getKey()).append(": ").append(entry.getValue())
+                    .append(LINE_SEPARATOR);
         }
-        return result;
+        return result.toString();
     }
 
     /**
@@ -290,6 +390,9 @@ public class Traffic {
                 return false;
             }
         }
+        if (frozen && hash != trafficMap.hashCode()) {
+            return false;
+        }
         return true;
     }
 
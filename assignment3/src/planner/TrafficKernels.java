@@ -0,0 +1,97 @@
+package planner;
+
+/**
+ * <p>
+ * The inner loops of the safety checks on the dense encoding of a problem:
+ * scaling the traffic of a venue to the size of an event, adding it to the
+ * loads on the corridors, and comparing loads to capacities.
+ * </p>
+ *
+ * <p>
+ * Each kernel is a plain counted loop over int arrays, with no boxing and no
+ * allocation, so that the just-in-time compiler can unroll it. The scaling
+ * gives exactly the result of Venue.getTraffic, including its integer
+ * division. Since the division costs far more than the rest of the loop,
+ * adding an event stops scaling its traffic at the first corridor it would
+ * overload.
+ * </p>
+ */
+final class TrafficKernels {
+
+    /**
+     * Prevents instantiation.
+     */
+    private TrafficKernels() {
+    }
+
+    /**
+     * Scales the traffic of an event of size capacity to an event of the
+     * given size, as Venue.getTraffic does: result[k] is (size * traffic[k])
+     * / capacity.
+     *
+     * @require traffic != null && result.length >= traffic.length && 0 <
+     *          size <= capacity
+     */
+    static void scale(int[] traffic, int size, int capacity, int[] result) {
+        for (int k = 0; k < traffic.length; k++) {
+            result[k] = (size * traffic[k]) / capacity;
+        }
+    }
+
+    /**
+     * Adds the traffic of an event of the given size at a venue of the given
+     * capacity, which generates traffic[k] on corridor corridors[k] for an
+     * event of size capacity, to the loads on the corridors, if every load
+     * stays within its capacity.
+     *
+     * @require traffic.length == corridors.length && 0 < size <= capacity &&
+     *          load and capacities hold every corridor
+     * @ensure returns true iff the loads stay within their capacities, and
+     *         only changes the loads if it returns true
+     */
+    static boolean tryAdd(int[] load, int[] corridors, int[] traffic,
+            int size, int capacity, int[] capacities) {
+        for (int k = 0; k < corridors.length; k++) {
+            int c = corridors[k];
+            int amount = (size * traffic[k]) / capacity;
+            if (load[c] + amount > capacities[c]) {
+                // undo the traffic added so far
+                for (int j = 0; j < k; j++) {
+                    load[corridors[j]] -= (size * traffic[j]) / capacity;
+                }
+                return false;
+            }
+            load[c] += amount;
+        }
+        return true;
+    }
+
+    /**
+     * Takes the traffic of an event, as given to tryAdd, off the loads on the
+     * corridors.
+     *
+     * @require traffic.length == corridors.length && 0 < size <= capacity &&
+     *          the traffic was added to the loads
+     */
+    static void subtract(int[] load, int[] corridors, int[] traffic, int size,
+            int capacity) {
+        for (int k = 0; k < corridors.length; k++) {
+            load[corridors[k]] -= (size * traffic[k]) / capacity;
+        }
+    }
+
+    /**
+     * Adds the traffic of an event, as given to tryAdd, to the loads on the
+     * corridors, whether or not they stay within their capacities.
+     *
+     * @require traffic.length == corridors.length && 0 < size <= capacity &&
+     *          load holds every corridor
+     */
+    static void add(int[] load, int[] corridors, int[] traffic, int size,
+            int capacity) {
+        for (int k = 0; k < corridors.length; k++) {
+            load[corridors[k]] += (size * traffic[k]) / capacity;
+        }
+    }
+
+}
@@ -0,0 +1,384 @@
+package planner;
+
+import java.nio.*;
+import java.util.*;
+
+/**
+ * <p>
+ * The traffic that each venue of a list generates on its corridors, kept
+ * outside the Java heap in compressed sparse row form: an offset into the
+ * rows for each venue, then the index of each corridor a venue uses, then
+ * the traffic an event of the venue's capacity generates on it.
+ * </p>
+ *
+ * <p>
+ * Each entry takes eight bytes of direct memory, instead of the several
+ * hundred bytes of heap a Traffic map takes, and the garbage collector never
+ * has to trace it. The matrix keeps its own table of the corridors and the
+ * name and capacity of each venue, but no Venue. A venue is looked up by its
+ * name, capacity and hash code, and the match is confirmed by comparing its
+ * traffic with the row.
+ * </p>
+ *
+ * <p>
+ * The rows are only ever read in place: the traffic of an event at a venue
+ * is read a corridor at a time with visitTraffic, and CorridorLoads adds the
+ * rows of an allocation straight into its loads. The searches of the
+ * Allocator run over the heap arrays of a VenueNetwork instead.
+ * </p>
+ *
+ * <p>
+ * The memory is allocated when the matrix is built. Close drops the matrix's
+ * references to it, after which its rows cannot be read, but does not free
+ * it: Java 8 has no public way to free a direct buffer, so the memory is
+ * only returned once the garbage collector finds the buffer unreachable.
+ * Rows may be read from several threads at once, but not while the matrix
+ * is being closed.
+ * </p>
+ */
+public final class TrafficMatrix implements AutoCloseable {
+
+    // the name and the capacity of each venue
+    private final String[] names;
+    private final int[] capacities;
+    // the hash code of each venue, which tells apart venues with the same
+    // name and capacity but different traffic
+    private final int[] hashes;
+    // the first venue with each name, and the next venue with the same name
+    // as each venue, or -1 if there is none
+    private final Map<String, Integer> firstNamed;
+    private final int[] nextNamed;
+    // the corridors that the venues generate traffic on
+    final Corridor[] corridors;
+    // the indices of the corridors between each start and end location
+    private final Map<List<Location>, int[]> corridorsByEndpoints;
+    // the number of entries in all the rows
+    private final int entryCount;
+    // the offset of the row of each venue in entryCorridors and traffic,
+    // with the number of entries after the last, or null once closed
+    private volatile IntBuffer offsets;
+    // the corridor and traffic of each entry, or null once closed
+    private volatile IntBuffer entryCorridors;
+    private volatile IntBuffer traffic;
+
+    /*
+     * invariant:
+     *
+     * all fields != null, except the buffers once closed &&
+     *
+     * capacities.length == hashes.length == nextNamed.length ==
+     * names.length &&
+     *
+     * following nextNamed from firstNamed.get(n) visits exactly the venues v
+     * with names[v] equal to n &&
+     *
+     * corridorsByEndpoints maps the start and end of each corridor c to the
+     * indices of the corridors between them, c among them &&
+     *
+     * offsets, entryCorridors and traffic are all null or all non-null &&
+     *
+     * if they are non-null, the entries k of venue v are offsets.get(v) <= k
+     * < offsets.get(v + 1), and the venue generates traffic.get(k) on
+     * corridors[entryCorridors.get(k)] for an event of size capacities[v]
+     */
+
+    /**
+     * Copies the traffic of the given venues out of the heap. Venue v of the
+     * matrix is the venue at index v of the list.
+     *
+     * @param venues
+     *            the venues whose traffic is copied
+     * @throws NullPointerException
+     *             if venues is null or contains null
+     * @throws IllegalArgumentException
+     *             if the venues have too many entries to fit in one buffer
+     */
+    public TrafficMatrix(List<Venue> venues) {
+        int count = venues.size();
+        names = new String[count];
+        capacities = new int[count];
+        hashes = new int[count];
+        firstNamed = new HashMap<>();
+        nextNamed = new int[count];
+        Map<Corridor, Integer> ids = new HashMap<>();
+        List<Corridor> corridorList = new ArrayList<>();
+        long entries = 0;
+        for (int v = count - 1; v >= 0; v--) {
+            Venue venue = venues.get(v);
+            names[v] = venue.getName();
+            capacities[v] = venue.getCapacity();
+            hashes[v] = venue.hashCode();
+            Integer next = firstNamed.put(names[v], v);
+            nextNamed[v] = next == null ? -1 : next;
+            entries += venue.getCapacityTraffic().getCorridorsWithTraffic()
+                    .size();
+        }
+        long bytes = 4L * (count + 1) + 8L * entries;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "The venues have too much traffic for one matrix.");
+        }
+        entryCount = (int) entries;
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) bytes).order(
+                ByteOrder.nativeOrder());
+        IntBuffer rows = section(buffer, 0, count + 1);
+        IntBuffer used = section(buffer, count + 1, entryCount);
+        IntBuffer amounts = section(buffer, count + 1 + entryCount,
+                entryCount);
+        int k = 0;
+        for (int v = 0; v < count; v++) {
+            rows.put(v, k);
+            Traffic capacityTraffic = venues.get(v).getCapacityTraffic();
+            for (Corridor corridor : capacityTraffic
+                    .getCorridorsWithTraffic()) {
+                Integer id = ids.get(corridor);
+                if (id == null) {
+                    id = corridorList.size();
+                    ids.put(corridor, id);
+                    corridorList.add(corridor);
+                }
+                used.put(k, id);
+                amounts.put(k, capacityTraffic.getTraffic(corridor));
+                k++;
+            }
+        }
+        rows.put(count, k);
+        corridors = corridorList.toArray(new Corridor[corridorList.size()]);
+        corridorsByEndpoints = VenueNetwork.indexEndpoints(corridors);
+        offsets = rows;
+        entryCorridors = used;
+        traffic = amounts;
+    }
+
+    /**
+     * Returns the view of length ints of the buffer from the given int.
+     */
+    private static IntBuffer section(ByteBuffer buffer, int start,
+            int length) {
+        ByteBuffer view = buffer.duplicate().order(buffer.order());
+        view.position(4 * start);
+        view.limit(4 * (start + length));
+        return view.slice().order(buffer.order()).asIntBuffer();
+    }
+
+    /**
+     * Returns the number of venues whose traffic is in the matrix.
+     *
+     * @return the number of rows of the matrix
+     */
+    public int getVenueCount() {
+        return names.length;
+    }
+
+    /**
+     * Returns the number of corridors used by each venue, added up over all
+     * the venues.
+     *
+     * @return the number of entries in the matrix
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Returns the number of bytes of direct memory the matrix references,
+     * which is zero once it is closed, even if the garbage collector has not
+     * yet freed them.
+     *
+     * @return the size of the matrix outside the heap
+     */
+    public long getBytes() {
+        return isClosed() ? 0 : 4L * (names.length + 1) + 8L * entryCount;
+    }
+
+    /**
+     * Returns true iff the matrix has been closed.
+     *
+     * @return whether close has been called
+     */
+    public boolean isClosed() {
+        return offsets == null;
+    }
+
+    /**
+     * Passes the traffic generated by hosting the given event at the given
+     * venue to the given visitor, one corridor at a time, until the visitor
+     * asks to stop. The corridors and amounts are those of
+     * Venue.getTraffic, but no Traffic is built.
+     *
+     * @param venue
+     *            a venue of the matrix
+     * @param event
+     *            the event for which the traffic will be generated
+     * @param visitor
+     *            the receiver of the traffic on each corridor
+     * @return true iff the visitor received the traffic on every corridor
+     * @throws NullPointerException
+     *             if venue, event or visitor is null
+     * @throws IllegalArgumentException
+     *             if the venue is not in the matrix, or the size of the event
+     *             exceeds the capacity of the venue
+     * @throws IllegalStateException
+     *             if the matrix is closed
+     */
+    public boolean visitTraffic(Venue venue, Event event, Visitor visitor) {
+        if (venue == null || event == null || visitor == null) {
+            throw new NullPointerException("Parameters cannot be null");
+        }
+        IntBuffer rows = offsets;
+        IntBuffer used = entryCorridors;
+        IntBuffer amounts = traffic;
+        if (rows == null || used == null || amounts == null) {
+            throw new IllegalStateException("The matrix is closed.");
+        }
+        int size = event.getSize();
+        int v = checkedIndexOf(venue, size, rows, used, amounts);
+        for (int k = rows.get(v), end = rows.get(v + 1); k < end; k++) {
+            int amount = (size * amounts.get(k)) / capacities[v];
+            if (amount > 0 && !visitor.visit(corridors[used.get(k)],
+                    amount)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of the given venue in the matrix, which can host an
+     * event of the given size, reading the rows from the given buffers.
+     *
+     * @require rows, used and amounts are the buffers of the matrix
+     * @throws IllegalArgumentException
+     *             if the venue is not in the matrix, or size exceeds its
+     *             capacity
+     */
+    private int checkedIndexOf(Venue venue, int size, IntBuffer rows,
+            IntBuffer used, IntBuffer amounts) {
+        int v = indexOf(venue, rows, used, amounts);
+        if (v < 0) {
+            throw new IllegalArgumentException("The venue " + venue.getName()
+                    + " is not in the matrix.");
+        }
+        if (size > capacities[v]) {
+            throw new IllegalArgumentException(
+                    "The size of the event cannot exceed the venue's capacity");
+        }
+        return v;
+    }
+
+    /**
+     * Returns the index of the given venue in the matrix, or -1 if it isn't
+     * one of its venues. The name, capacity and hash code pick out the
+     * candidates, and the traffic of the venue must match the row of the
+     * candidate, so a venue with different traffic but a colliding hash code
+     * is not mistaken for it.
+     *
+     * @require rows, used and amounts are the buffers of the matrix
+     */
+    private int indexOf(Venue venue, IntBuffer rows, IntBuffer used,
+            IntBuffer amounts) {
+        Integer first = firstNamed.get(venue.getName());
+        for (int v = first == null ? -1 : first; v >= 0; v = nextNamed[v]) {
+            if (capacities[v] == venue.getCapacity()
+                    && hashes[v] == venue.hashCode()
+                    && sameRow(v, venue.frozenCapacityTraffic(), rows, used,
+                            amounts)) {
+                return v;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true iff the row of venue v records exactly the given traffic.
+     *
+     * @require rows, used and amounts are the buffers of the matrix
+     */
+    private boolean sameRow(int v, Traffic capacityTraffic, IntBuffer rows,
+            IntBuffer used, IntBuffer amounts) {
+        int start = rows.get(v);
+        int end = rows.get(v + 1);
+        if (capacityTraffic.getCorridorCount() != end - start) {
+            return false;
+        }
+        for (int k = start; k < end; k++) {
+            if (capacityTraffic.getTraffic(corridors[used.get(k)]) != amounts
+                    .get(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the traffic of an event of the given size at the given venue to
+     * the loads on the corridors of the matrix.
+     *
+     * @require size >= 0 && load.length == corridors.length
+     * @throws NullPointerException
+     *             if venue is null
+     * @throws IllegalArgumentException
+     *             if the venue is not in the matrix, or size exceeds its
+     *             capacity
+     * @throws IllegalStateException
+     *             if the matrix is closed
+     */
+    void addTraffic(Venue venue, int size, long[] load) {
+        IntBuffer rows = offsets;
+        IntBuffer used = entryCorridors;
+        IntBuffer amounts = traffic;
+        if (rows == null || used == null || amounts == null) {
+            throw new IllegalStateException("The matrix is closed.");
+        }
+        int v = checkedIndexOf(venue, size, rows, used, amounts);
+        int capacity = capacities[v];
+        for (int k = rows.get(v), end = rows.get(v + 1); k < end; k++) {
+            load[used.get(k)] += (size * amounts.get(k)) / capacity;
+        }
+    }
+
+    /**
+     * Returns the indices of the corridors between the given start and end
+     * locations, as a list of two locations.
+     */
+    int[] corridorsBetween(List<Location> endpoints) {
+        int[] result = corridorsByEndpoints.get(endpoints);
+        return result == null ? new int[0] : result;
+    }
+
+    /**
+     * Drops the matrix's references to its direct memory, so that its rows
+     * can no longer be read. This does not free the memory, which is only
+     * freed once the garbage collector finds it unreachable. Closing a
+     * closed matrix has no effect.
+     */
+    @Override
+    public void close() {
+        offsets = null;
+        entryCorridors = null;
+        traffic = null;
+    }
+
+    /**
+     * A receiver of the traffic of an event at a venue, one corridor at a
+     * time.
+     */
+    public interface Visitor {
+
+        /**
+         * Receives the traffic on one corridor.
+         *
+         * @param corridor
+         *            a corridor that the event generates traffic on
+         * @param traffic
+         *            the traffic the event generates on it, which is more
+         *            than zero
+         * @return true to receive the traffic on the next corridor, or false
+         *         to stop
+         */
+        boolean visit(Corridor corridor, int traffic);
+
+    }
+
+}
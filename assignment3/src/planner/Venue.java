@@ -29,12 +29,14 @@ package planner;
 public class Venue {
 
     // the name of the venue
-    private String name;
+    private final String name;
     // the capacity of the venue
-    private int capacity;
+    private final int capacity;
     // the traffic that will be generated by hosting an event of maximum
-    // size at the venue
-    private Traffic capacityTraffic;
+    // size at the venue, frozen so that it can't change
+    private final Traffic capacityTraffic;
+    // the hash code of the venue, computed once as it can't change
+    private final int hash;
 
     /*
      * invariant:
@@ -46,7 +48,10 @@ public class Venue {
      * capacityTraffic !=null &&
      * 
      * for each traffic corridor c, capacityTraffic.getTraffic(c) is less than
-     * or equal to capacity
+     * or equal to capacity &&
+     * 
+     * capacityTraffic.isFrozen() && hash is computed from name, capacity and
+     * capacityTraffic as in hashCode
      */
 
     /**
@@ -89,7 +94,8 @@ public class Venue {
         }
         this.name = name;
         this.capacity = capacity;
-        this.capacityTraffic = new Traffic(capacityTraffic);
+        this.capacityTraffic = capacityTraffic.freeze();
+        hash = hash(name, capacity, this.capacityTraffic);
     }
 
     /**
@@ -110,6 +116,26 @@ public class Venue {
         return capacity;
     }
 
+    /**
+     * Returns the traffic that would be generated by hosting an event of size
+     * capacity at this venue.
+     * 
+     * The traffic returned is a copy: modifying it does not affect the venue.
+     * 
+     * @return the traffic generated by an event of maximum size at the venue
+     */
+    public Traffic getCapacityTraffic() {
+        return new Traffic(capacityTraffic);
+    }
+
+    /**
+     * Returns the traffic generated by hosting an event of maximum size at
+     * the venue without copying it, which is safe since it is frozen.
+     */
+    Traffic frozenCapacityTraffic() {
+        return capacityTraffic;
+    }
+
     /**
      * Returns true if the size of the event is less than or equal to the
      * capacity of the venue, and false otherwise.
@@ -209,25 +235,29 @@ public class Venue {
             return false;
         }
         Venue other = (Venue) object; // the venue to compare
-        return (name.equals(other.name) && capacity == other.capacity
+        return (hash == other.hash && name.equals(other.name)
+                && capacity == other.capacity
                 && capacityTraffic.sameTraffic(other.capacityTraffic));
     }
 
     @Override
     public int hashCode() {
-        /*
-         * We create a polynomial hash-code based on name and capacity and
-         * capacityTraffic.
-         * 
-         * We will cheat a bit here and use the fact that traffic objects that
-         * are the same according to the sameTraffic method will produce the
-         * same string representation. There might be neater ways to do this.
-         */
+        return hash;
+    }
+
+    /**
+     * Returns the hash code of a venue with the given name, capacity and
+     * (frozen) capacity traffic.
+     */
+    private static int hash(String name, int capacity,
+            Traffic capacityTraffic) {
+        // We create a polynomial hash-code based on name and capacity and
+        // capacityTraffic, whose hash code is that of the traffic it records.
         final int prime = 31; // an odd base prime
         int result = 1; // the hash code under construction
         result = prime * result + name.hashCode();
         result = prime * result + capacity;
-        result = prime * result + (capacityTraffic.toString()).hashCode();
+        result = prime * result + capacityTraffic.hashCode();
         return result;
     }
 
@@ -258,6 +288,11 @@ public class Venue {
                 return false;
             }
         }
+        // the traffic can't change, and the hash code is up to date
+        if (!capacityTraffic.isFrozen() || !capacityTraffic.checkInvariant()
+                || hash != hash(name, capacity, capacityTraffic)) {
+            return false;
+        }
         return true;
     }
 
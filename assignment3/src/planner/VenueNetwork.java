@@ -0,0 +1,721 @@
+package planner;
+
+import java.util.*;
+
+/**
+ * <p>
+ * An immutable list of venues, together with a dense encoding of the traffic
+ * that each venue generates on the corridors of the municipality.
+ * </p>
+ *
+ * <p>
+ * Building the encoding takes time proportional to the total number of
+ * corridors of all the venues. A network can be built once and then used to
+ * allocate any number of lists of events to its venues without repeating that
+ * work.
+ * </p>
+ */
+public class VenueNetwork {
+
+    // the venues in the network
+    final List<Venue> venues;
+    // the capacity of each venue
+    final int[] capacities;
+    // the corridors that the venues generate traffic on
+    final Corridor[] corridors;
+    // the capacity of each corridor
+    final int[] corridorCapacities;
+    // the corridors that each venue generates traffic on
+    final int[][] venueCorridors;
+    // the traffic an event of maximum size at each venue generates on each
+    // of its corridors, in the same order as venueCorridors
+    final int[][] venueTraffic;
+    // the class of each venue, where venues of the same class have the same
+    // capacity and the same traffic on the same corridors, and so can be
+    // swapped in any allocation
+    final int[] venueClass;
+    // the number of venues before each venue in the same class
+    final int[] classIndex;
+    // the number of classes
+    final int classCount;
+    // the venue indices in ascending order of capacity, and of index for
+    // venues of the same capacity
+    final int[] byCapacity;
+    // the capacity of each venue in byCapacity, in the same order
+    private final int[] sortedCapacities;
+    // the index of each corridor, and the indices of the corridors between
+    // each start and end location, in the numbering of the network whose
+    // venues this network's are a subset of, which may be this one
+    private final Map<Corridor, Integer> corridorIds;
+    private final Map<List<Location>, int[]> corridorsByEndpoints;
+    // the index in that numbering of each corridor, in ascending order, or
+    // null if it is the same as the index in this network
+    private final int[] rootIds;
+    // the venues that generate traffic on each corridor, in ascending order
+    final int[][] corridorVenues;
+    // the position of each corridor among the corridors of each venue using
+    // it, in the same order as corridorVenues
+    final int[][] corridorIndex;
+    // the index of each venue
+    private final Map<Venue, Integer> venueIds;
+
+    /*
+     * invariant:
+     *
+     * all fields != null, except that rootIds may be null &&
+     *
+     * capacities.length == venueCorridors.length == venueTraffic.length ==
+     * venues.size() &&
+     *
+     * corridorCapacities.length == corridors.length &&
+     *
+     * for each v, venueCorridors[v].length == venueTraffic[v].length &&
+     *
+     * venueClass.length == classIndex.length == venues.size() &&
+     *
+     * for each v, 0 <= venueClass[v] < classCount and classIndex[v] is the
+     * number of venues u < v with venueClass[u] == venueClass[v] &&
+     *
+     * byCapacity is a permutation of the venue indices, sorted by capacity
+     * and then index, and sortedCapacities[i] == capacities[byCapacity[i]] &&
+     *
+     * root(corridorIds.get(corridors[c])) == c, where root(i) is i if
+     * rootIds is null, and the index of i in rootIds otherwise &&
+     *
+     * venueIds maps each venue of venues to its index in venues &&
+     *
+     * for each c, corridorVenues[c] are the venues v, in ascending order,
+     * with venueCorridors[v][corridorIndex[c][i]] == c for the venue
+     * corridorVenues[c][i]
+     */
+
+    /**
+     * Builds the network of the given venues. The given list is copied, and
+     * not modified.
+     *
+     * @param venues
+     *            the venues in the network
+     * @throws NullPointerException
+     *             if venues is null or contains null
+     */
+    public VenueNetwork(List<Venue> venues) {
+        this.venues = Collections.unmodifiableList(new ArrayList<>(venues));
+        venueIds = indexVenues(this.venues);
+
+        // the dense index of each corridor
+        Map<Corridor, Integer> ids = new HashMap<>();
+        List<Corridor> corridorList = new ArrayList<>();
+        capacities = new int[venues.size()];
+        venueCorridors = new int[venues.size()][];
+        venueTraffic = new int[venues.size()][];
+        for (int v = 0; v < capacities.length; v++) {
+            Venue venue = this.venues.get(v);
+            Traffic traffic = venue.getCapacityTraffic();
+            Set<Corridor> used = traffic.getCorridorsWithTraffic();
+            capacities[v] = venue.getCapacity();
+            venueCorridors[v] = new int[used.size()];
+            venueTraffic[v] = new int[used.size()];
+            int k = 0;
+            for (Corridor corridor : used) {
+                Integer id = ids.get(corridor);
+                if (id == null) {
+                    id = corridorList.size();
+                    ids.put(corridor, id);
+                    corridorList.add(corridor);
+                }
+                venueCorridors[v][k] = id;
+                venueTraffic[v][k] = traffic.getTraffic(corridor);
+                k++;
+            }
+        }
+
+        venueClass = new int[capacities.length];
+        classIndex = new int[capacities.length];
+        classCount = classify(capacities, venueCorridors, venueTraffic,
+                venueClass, classIndex);
+
+        corridors = corridorList.toArray(new Corridor[corridorList.size()]);
+        corridorCapacities = new int[corridors.length];
+        for (int c = 0; c < corridors.length; c++) {
+            corridorCapacities[c] = corridors[c].getCapacity();
+        }
+        byCapacity = sortByCapacity(capacities);
+        sortedCapacities = sortedCapacities(capacities, byCapacity);
+        corridorIds = ids;
+        corridorsByEndpoints = indexEndpoints(corridors);
+        rootIds = null;
+        corridorVenues = new int[corridors.length][];
+        corridorIndex = new int[corridors.length][];
+        indexCorridors();
+    }
+
+    /**
+     * Builds the network of some of the venues of the given network, with
+     * only the corridors those venues use, where each corridor has its
+     * capacity in the given network less the given load on it, e.g. the
+     * traffic of events held elsewhere. Venue i of the new network is venue
+     * venues[i] of the given one. Unless the venues use a good share of the
+     * corridors of the given network, this takes time in the number of
+     * corridors they use, not in the size of the given network.
+     *
+     * @require network != null && venues holds distinct venue indices of the
+     *          network && (load == null || load.length ==
+     *          network.corridors.length)
+     */
+    VenueNetwork(VenueNetwork network, int[] venues, long[] load) {
+        int entries = 0;
+        for (int v : venues) {
+            entries += network.venueCorridors[v].length;
+        }
+        // the corridor here of each use of a corridor by the venues, and the
+        // corridors of the given network that the venues use, in ascending
+        // order, so that corridor c here is corridor global[c] there
+        int[] local = new int[entries];
+        int[] global = usedCorridors(network, venues, local);
+        int distinct = global.length;
+
+        corridors = new Corridor[distinct];
+        corridorCapacities = new int[distinct];
+        for (int c = 0; c < distinct; c++) {
+            corridors[c] = network.corridors[global[c]];
+            corridorCapacities[c] = (int) (network.corridorCapacities[global[c]]
+                    - (load == null ? 0 : load[global[c]]));
+        }
+        // share the corridor lookups of the given network, which are in the
+        // numbering of its root
+        corridorIds = network.corridorIds;
+        corridorsByEndpoints = network.corridorsByEndpoints;
+        if (network.rootIds == null) {
+            rootIds = global;
+        } else {
+            rootIds = new int[distinct];
+            for (int c = 0; c < distinct; c++) {
+                rootIds[c] = network.rootIds[global[c]];
+            }
+        }
+
+        List<Venue> venueList = new ArrayList<>();
+        capacities = new int[venues.length];
+        venueCorridors = new int[venues.length][];
+        venueTraffic = new int[venues.length][];
+        venueClass = new int[venues.length];
+        classIndex = new int[venues.length];
+        // the class here of each class of the given network used here
+        Map<Integer, Integer> classes = new HashMap<>();
+        List<Integer> classSizes = new ArrayList<>();
+        entries = 0;
+        for (int i = 0; i < venues.length; i++) {
+            int v = venues[i];
+            venueList.add(network.venues.get(v));
+            capacities[i] = network.capacities[v];
+            int[] used = network.venueCorridors[v];
+            venueCorridors[i] = new int[used.length];
+            for (int k = 0; k < used.length; k++) {
+                venueCorridors[i][k] = local[entries++];
+            }
+            venueTraffic[i] = network.venueTraffic[v];
+            Integer id = classes.get(network.venueClass[v]);
+            if (id == null) {
+                id = classSizes.size();
+                classes.put(network.venueClass[v], id);
+                classSizes.add(0);
+            }
+            venueClass[i] = id;
+            classIndex[i] = classSizes.get(id);
+            classSizes.set(id, classIndex[i] + 1);
+        }
+        this.venues = Collections.unmodifiableList(venueList);
+        venueIds = indexVenues(this.venues);
+        classCount = classSizes.size();
+        byCapacity = sortByCapacity(capacities);
+        sortedCapacities = sortedCapacities(capacities, byCapacity);
+        corridorVenues = new int[corridors.length][];
+        corridorIndex = new int[corridors.length][];
+        indexCorridors();
+    }
+
+    /**
+     * Returns the corridors of the given network that the given venues use,
+     * in ascending order, and sets local[k] to the index in the result of
+     * the corridor of the k-th use of a corridor by the venues, in order.
+     * Uses are sorted if they are few next to the corridors of the network,
+     * and marked in a table of every corridor otherwise.
+     *
+     * @require network != null && venues holds venue indices of the network
+     *          && local.length is the number of uses
+     */
+    private static int[] usedCorridors(VenueNetwork network, int[] venues,
+            int[] local) {
+        int[] global = new int[local.length];
+        int distinct = 0;
+        if (8L * local.length < network.corridors.length) {
+            // the index of each corridor followed by the position of its use
+            long[] uses = new long[local.length];
+            int k = 0;
+            for (int v : venues) {
+                for (int c : network.venueCorridors[v]) {
+                    uses[k] = ((long) c << 32) | k;
+                    k++;
+                }
+            }
+            Arrays.sort(uses);
+            for (long use : uses) {
+                int c = (int) (use >>> 32);
+                if (distinct == 0 || global[distinct - 1] != c) {
+                    global[distinct++] = c;
+                }
+                local[(int) use] = distinct - 1;
+            }
+        } else {
+            // one more than the index in the result of each corridor used
+            int[] ids = new int[network.corridors.length];
+            for (int v : venues) {
+                for (int c : network.venueCorridors[v]) {
+                    ids[c] = 1;
+                }
+            }
+            for (int c = 0; c < ids.length; c++) {
+                if (ids[c] != 0) {
+                    global[distinct++] = c;
+                    ids[c] = distinct;
+                }
+            }
+            int k = 0;
+            for (int v : venues) {
+                for (int c : network.venueCorridors[v]) {
+                    local[k++] = ids[c] - 1;
+                }
+            }
+        }
+        return Arrays.copyOf(global, distinct);
+    }
+
+    /**
+     * Builds a copy of the given network in which each corridor has the
+     * given capacity instead, sharing everything else with it.
+     *
+     * @require network != null && corridorCapacities.length ==
+     *          network.corridors.length && each capacity >= 0
+     */
+    private VenueNetwork(VenueNetwork network, int[] corridorCapacities) {
+        venues = network.venues;
+        venueIds = network.venueIds;
+        capacities = network.capacities;
+        corridors = network.corridors;
+        this.corridorCapacities = corridorCapacities;
+        venueCorridors = network.venueCorridors;
+        venueTraffic = network.venueTraffic;
+        venueClass = network.venueClass;
+        classIndex = network.classIndex;
+        classCount = network.classCount;
+        byCapacity = network.byCapacity;
+        sortedCapacities = network.sortedCapacities;
+        corridorIds = network.corridorIds;
+        corridorsByEndpoints = network.corridorsByEndpoints;
+        rootIds = network.rootIds;
+        corridorVenues = network.corridorVenues;
+        corridorIndex = network.corridorIndex;
+    }
+
+    /**
+     * Returns the indices of the given corridors between each start and end
+     * location.
+     */
+    static Map<List<Location>, int[]> indexEndpoints(
+            Corridor[] corridors) {
+        Map<List<Location>, int[]> result = new HashMap<>();
+        for (int c = 0; c < corridors.length; c++) {
+            List<Location> key = CapacityOverrides.key(corridors[c]);
+            int[] between = result.get(key);
+            between = between == null ? new int[1] : Arrays.copyOf(between,
+                    between.length + 1);
+            between[between.length - 1] = c;
+            result.put(key, between);
+        }
+        return result;
+    }
+
+    /**
+     * Puts the venues with the same capacity and the same traffic on the same
+     * corridors in the same class, setting the class of each venue and the
+     * number of venues before it in its class, and returns the number of
+     * classes.
+     *
+     * @require capacities, venueCorridors, venueTraffic, venueClass and
+     *          classIndex have the same length, and the rows of venueCorridors
+     *          and venueTraffic have the same lengths
+     */
+    private static int classify(int[] capacities, int[][] venueCorridors,
+            int[][] venueTraffic, int[] venueClass, int[] classIndex) {
+        // the class of each distinct capacity and traffic
+        Map<List<Long>, Integer> classes = new HashMap<>();
+        // the number of venues in each class so far
+        List<Integer> classSizes = new ArrayList<>();
+        for (int v = 0; v < capacities.length; v++) {
+            long[] pairs = new long[venueCorridors[v].length];
+            for (int k = 0; k < pairs.length; k++) {
+                pairs[k] = ((long) venueCorridors[v][k] << 32)
+                        | venueTraffic[v][k];
+            }
+            Arrays.sort(pairs);
+            List<Long> key = new ArrayList<>();
+            key.add((long) capacities[v]);
+            for (long pair : pairs) {
+                key.add(pair);
+            }
+            Integer id = classes.get(key);
+            if (id == null) {
+                id = classSizes.size();
+                classes.put(key, id);
+                classSizes.add(0);
+            }
+            venueClass[v] = id;
+            classIndex[v] = classSizes.get(id);
+            classSizes.set(id, classIndex[v] + 1);
+        }
+        return classSizes.size();
+    }
+
+    /**
+     * Returns the index of each of the given venues.
+     */
+    private static Map<Venue, Integer> indexVenues(List<Venue> venues) {
+        Map<Venue, Integer> result = new HashMap<>();
+        for (int v = 0; v < venues.size(); v++) {
+            result.put(venues.get(v), v);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Fills in corridorVenues and corridorIndex from venueCorridors.
+     */
+    private void indexCorridors() {
+        int[] counts = new int[corridors.length];
+        for (int[] used : venueCorridors) {
+            for (int c : used) {
+                counts[c]++;
+            }
+        }
+        for (int c = 0; c < corridors.length; c++) {
+            corridorVenues[c] = new int[counts[c]];
+            corridorIndex[c] = new int[counts[c]];
+            counts[c] = 0;
+        }
+        for (int v = 0; v < venueCorridors.length; v++) {
+            for (int k = 0; k < venueCorridors[v].length; k++) {
+                int c = venueCorridors[v][k];
+                corridorVenues[c][counts[c]] = v;
+                corridorIndex[c][counts[c]++] = k;
+            }
+        }
+    }
+
+    /**
+     * Returns the venue indices in ascending order of the given capacities,
+     * and of index for venues of the same capacity.
+     */
+    private static int[] sortByCapacity(int[] capacities) {
+        // each capacity above its index, so that sorting orders by both
+        long[] keys = new long[capacities.length];
+        for (int v = 0; v < keys.length; v++) {
+            keys[v] = ((long) capacities[v] << 32) | v;
+        }
+        Arrays.sort(keys);
+        int[] result = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = (int) keys[i];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the capacity of each venue in the given order.
+     */
+    private static int[] sortedCapacities(int[] capacities, int[] order) {
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = capacities[order[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the position in byCapacity of the first venue that can host an
+     * event of the given size, so that the venues that can host it are those
+     * from there on, the closest fit first.
+     *
+     * @return the position of the first venue with a capacity of at least
+     *         size, or the number of venues if there is none
+     */
+    int firstFit(int size) {
+        int low = 0;
+        int high = sortedCapacities.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedCapacities[middle] < size) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the venues in the network, in the order they were given.
+     *
+     * @return an unmodifiable list of the venues in the network
+     */
+    public List<Venue> getVenues() {
+        return venues;
+    }
+
+    /**
+     * Returns the venues in the network that can host an event of the given
+     * size, found from the network's index of capacities without looking at
+     * the venues that are too small.
+     *
+     * @param size
+     *            the size of the event
+     * @return an unmodifiable view of the venues with a capacity of at least
+     *         size, in ascending order of capacity so that the closest fit is
+     *         first, and in the order they were given for equal capacities
+     */
+    public List<Venue> getVenuesFor(int size) {
+        final int first = firstFit(size);
+        return new AbstractList<Venue>() {
+            @Override
+            public Venue get(int i) {
+                if (i < 0 || i >= size()) {
+                    throw new IndexOutOfBoundsException("No venue " + i);
+                }
+                return venues.get(byCapacity[first + i]);
+            }
+
+            @Override
+            public int size() {
+                return byCapacity.length - first;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of distinct corridors that the venues in the network
+     * generate traffic on.
+     *
+     * @return the number of corridors in the network
+     */
+    public int getCorridorCount() {
+        return corridors.length;
+    }
+
+    /**
+     * Returns a network of the same venues in which the capacities of the
+     * corridors are changed by the given overrides, e.g. to search for an
+     * allocation, or repair one with Allocator.reallocate, while roads are
+     * closed. This takes time proportional to the number of corridors, and
+     * this network is not changed.
+     *
+     * @param overrides
+     *            the changes to the capacities of the corridors, which are
+     *            copied
+     * @return a network whose safety checks use the overridden capacities
+     * @throws NullPointerException
+     *             if overrides is null
+     */
+    public VenueNetwork withOverrides(CapacityOverrides overrides) {
+        int[] result = new int[corridors.length];
+        for (int c = 0; c < corridors.length; c++) {
+            result[c] = overrides.getCapacity(corridors[c]);
+        }
+        return new VenueNetwork(this, result);
+    }
+
+    /**
+     * Returns the capacity of the given corridor in this network, which is
+     * its own capacity unless the network was built with overrides.
+     *
+     * @param corridor
+     *            the corridor to look up
+     * @return the capacity the network's safety checks use for the corridor
+     * @throws NullPointerException
+     *             if corridor is null
+     */
+    public int getCapacity(Corridor corridor) {
+        int c = corridorId(corridor);
+        return c < 0 ? corridor.getCapacity() : corridorCapacities[c];
+    }
+
+    /**
+     * Returns the venues in the network that generate traffic on the given
+     * corridor when they host an event.
+     *
+     * @param corridor
+     *            the corridor to look up
+     * @return an unmodifiable list of the venues using the corridor, in the
+     *         order they were given, which is empty if none of them do
+     * @throws NullPointerException
+     *             if corridor is null
+     */
+    public List<Venue> getVenuesUsing(Corridor corridor) {
+        int c = corridorId(corridor);
+        if (c < 0) {
+            return Collections.emptyList();
+        }
+        List<Venue> result = new ArrayList<>(corridorVenues[c].length);
+        for (int v : corridorVenues[c]) {
+            result.add(venues.get(v));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Returns the events of the given allocation to venues of the network
+     * that generate traffic on the given corridor, together with that
+     * traffic. This takes time proportional to the size of the allocation
+     * and the number of venues using the corridor.
+     *
+     * @param corridor
+     *            the corridor to look up
+     * @param allocation
+     *            an allocation of events to venues of the network; events
+     *            at other venues are ignored
+     * @return a map from each event of the allocation that generates traffic
+     *         on the corridor to the amount of traffic it generates there, as
+     *         defined by Venue.getTraffic
+     * @throws NullPointerException
+     *             if corridor or allocation is null, or allocation contains
+     *             null
+     * @throws IllegalArgumentException
+     *             if an event using the corridor is larger than the capacity
+     *             of its venue
+     */
+    public Map<Event, Integer> getEventsUsing(Corridor corridor,
+            Map<Event, Venue> allocation) {
+        int c = corridorId(corridor);
+        if (allocation == null) {
+            throw new NullPointerException("allocation cannot be null");
+        }
+        Map<Event, Integer> result = new HashMap<>();
+        if (c < 0) {
+            return result;
+        }
+        // the position in corridorVenues[c] of each venue using the corridor
+        Map<Venue, Integer> using = new HashMap<>();
+        for (int i = 0; i < corridorVenues[c].length; i++) {
+            using.put(venues.get(corridorVenues[c][i]), i);
+        }
+        for (Map.Entry<Event, Venue> entry : allocation.entrySet()) {
+            Integer i = using.get(entry.getValue());
+            if (i == null) {
+                continue;
+            }
+            int v = corridorVenues[c][i];
+            int size = entry.getKey().getSize();
+            if (size > capacities[v]) {
+                throw new IllegalArgumentException(
+                        "The size of the event cannot exceed the venue's "
+                                + "capacity");
+            }
+            int traffic = (size * venueTraffic[v][corridorIndex[c][i]])
+                    / capacities[v];
+            if (traffic > 0) {
+                result.put(entry.getKey(), traffic);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns how much more traffic the given corridor could carry on top of
+     * the traffic of the given allocation if its capacity were the given
+     * capacity instead, e.g. after a lane closure. This takes time
+     * proportional to the size of the allocation and the number of venues
+     * using the corridor.
+     *
+     * @param corridor
+     *            the corridor to look up
+     * @param capacity
+     *            the capacity to assume the corridor has
+     * @param allocation
+     *            an allocation of events to venues of the network; events
+     *            at other venues are ignored
+     * @return the capacity less the traffic of the allocation on the
+     *         corridor, which is negative if the corridor would be unsafe
+     * @throws NullPointerException
+     *             if corridor or allocation is null, or allocation contains
+     *             null
+     * @throws IllegalArgumentException
+     *             if capacity is negative, or an event using the corridor is
+     *             larger than the capacity of its venue
+     */
+    public int getHeadroom(Corridor corridor, int capacity,
+            Map<Event, Venue> allocation) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException(
+                    "The capacity of a corridor cannot be negative.");
+        }
+        long headroom = capacity;
+        for (int traffic : getEventsUsing(corridor, allocation).values()) {
+            headroom -= traffic;
+        }
+        return (int) Math.max(headroom, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Returns the index of the given venue in the network, or -1 if it isn't
+     * one of its venues. This may be called from any number of threads at
+     * once.
+     */
+    int indexOf(Venue venue) {
+        Integer v = venueIds.get(venue);
+        return v == null ? -1 : v;
+    }
+
+    /**
+     * Returns the indices of the corridors between the given start and end
+     * locations, as a list of two locations.
+     */
+    int[] corridorsBetween(List<Location> endpoints) {
+        int[] ids = corridorsByEndpoints.get(endpoints);
+        if (ids == null) {
+            return new int[0];
+        }
+        if (rootIds == null) {
+            return ids;
+        }
+        int[] result = new int[ids.length];
+        int count = 0;
+        for (int id : ids) {
+            int c = Arrays.binarySearch(rootIds, id);
+            if (c >= 0) {
+                result[count++] = c;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Returns the index of the corridor in the network, or -1 if no venue
+     * uses it.
+     *
+     * @throws NullPointerException
+     *             if corridor is null
+     */
+    int corridorId(Corridor corridor) {
+        if (corridor == null) {
+            throw new NullPointerException("corridor cannot be null");
+        }
+        Integer id = corridorIds.get(corridor);
+        if (id == null) {
+            return -1;
+        }
+        if (rootIds == null) {
+            return id;
+        }
+        int c = Arrays.binarySearch(rootIds, id);
+        return c < 0 ? -1 : c;
+    }
+
+}
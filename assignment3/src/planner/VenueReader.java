@@ -122,6 +122,8 @@ public class VenueReader {
         AtomicInteger lineNumber = new AtomicInteger(0);
         // the venues that will be read from the file
         List<Venue> venues = new ArrayList<>();
+        // the same venues, for finding duplicates
+        Set<Venue> seen = new HashSet<>();
 
         // read venues one at a time from the file
         while (in.hasNextLine()) {
@@ -132,7 +134,7 @@ public class VenueReader {
             // the venue read
             Venue venue = new Venue(name, capacity, capacityTraffic);
 
-            if (venues.contains(venue)) {
+            if (!seen.add(venue)) {
                 throw new FormatException("Line " + lineNumber
                         + ": duplicate venue detected.");
             }
@@ -0,0 +1,272 @@
+package planner.cli;
+
+import planner.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * <p>
+ * A command line program which allocates the events in an event file to the
+ * venues in a venue file, without a graphical interface.
+ * </p>
+ *
+ * <p>
+ * Usage: BatchAllocator [options] VENUE_FILE EVENT_FILE
+ * </p>
+ *
+ * <p>
+ * The venue file is read with VenueReader and the event file with
+ * EventReader. The allocation is written as one line per event, in the order
+ * of the event file, followed by an empty line and the traffic caused by the
+ * allocation on each corridor.
+ * </p>
+ *
+ * <p>
+ * The options are:
+ * </p>
+ * <ul>
+ * <li>--strategy NAME: the AllocationStrategy to search with</li>
+ * <li>--threads N: the number of threads to search with</li>
+ * <li>--time-limit SECONDS: give up if no allocation has been found in time
+ * </li>
+ * <li>--node-budget N: give up if no allocation has been found after
+ * expanding N partial allocations</li>
+ * <li>--seed N: the seed of the random choices of randomised strategies</li>
+ * <li>--nogood-cache N: remember up to N states from which the backtracking
+ * search found no allocation</li>
+ * <li>--output FILE: write the allocation to FILE instead of standard output
+ * </li>
+ * <li>--metrics: write the metrics of the search to standard error</li>
+ * </ul>
+ *
+ * <p>
+ * The exit status is 0 if an allocation was found, 1 if there is no safe
+ * allocation, 2 if the time limit or node budget was reached and 3 if the
+ * arguments or input files are invalid. When the limit is reached the number
+ * of events in the best partial allocation found is reported.
+ * </p>
+ */
+public class BatchAllocator {
+
+    // the exit status when a safe allocation was found
+    private final static int FOUND = 0;
+    // the exit status when there is no safe allocation
+    private final static int NOT_FOUND = 1;
+    // the exit status when the time limit or node budget was reached
+    private final static int BUDGET_EXHAUSTED = 2;
+    // the exit status when the arguments or files are invalid
+    private final static int INVALID = 3;
+
+    // the usage message
+    private final static String USAGE = "Usage: BatchAllocator [--strategy "
+            + Arrays.toString(AllocationStrategy.values())
+            + "] [--threads N] [--time-limit SECONDS] [--node-budget N] "
+            + "[--seed N] [--nogood-cache N] [--output FILE] [--metrics] "
+            + "VENUE_FILE EVENT_FILE";
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.err));
+    }
+
+    /**
+     * Runs the program with the given command line arguments, returning its
+     * exit status.
+     *
+     * @param args
+     *            the command line arguments
+     * @param err
+     *            where to write error messages to
+     * @return the exit status of the program
+     */
+    public static int run(String[] args, PrintStream err) {
+        AllocationOptions options = new AllocationOptions();
+        // the time limit in seconds, or zero for none
+        long timeLimit = 0;
+        // the file to write to, or null for standard output
+        String output = null;
+        // the venue and event files
+        List<String> files = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                case "--strategy":
+                    options.setStrategy(AllocationStrategy.valueOf(value(args,
+                            ++i).toUpperCase()));
+                    break;
+                case "--threads":
+                    options.setThreads(Integer.parseInt(value(args, ++i)));
+                    break;
+                case "--time-limit":
+                    timeLimit = Long.parseLong(value(args, ++i));
+                    if (timeLimit < 0) {
+                        throw new IllegalArgumentException(
+                                "The time limit cannot be negative.");
+                    }
+                    break;
+                case "--node-budget":
+                    options.setNodeBudget(Long.parseLong(value(args, ++i)));
+                    break;
+                case "--seed":
+                    options.setSeed(Long.parseLong(value(args, ++i)));
+                    break;
+                case "--nogood-cache":
+                    options.setNogoodCacheSize(Integer.parseInt(value(args,
+                            ++i)));
+                    break;
+                case "--output":
+                    output = value(args, ++i);
+                    break;
+                case "--metrics":
+                    options.setCollectMetrics(true);
+                    break;
+                default:
+                    files.add(args[i]);
+                }
+            }
+            if (files.size() != 2) {
+                throw new IllegalArgumentException(
+                        "Expected a venue file and an event file.");
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return INVALID;
+        }
+
+        List<Venue> venues;
+        List<Event> events;
+        try {
+            venues = VenueReader.read(files.get(0));
+            events = EventReader.read(files.get(1));
+        } catch (IOException | FormatException e) {
+            err.println(e.getMessage());
+            return INVALID;
+        }
+
+        AllocationResult result;
+        try {
+            result = allocate(events, venues, options, timeLimit);
+        } catch (TimeoutException e) {
+            err.println("No allocation was found within " + timeLimit
+                    + " seconds.");
+            return BUDGET_EXHAUSTED;
+        }
+        if (result.getMetrics() != null) {
+            err.println(result.getMetrics());
+        }
+        switch (result.getStatus()) {
+        case INFEASIBLE:
+            err.println("There is no safe allocation of the events.");
+            if (result.getInfeasibility() != null) {
+                err.println(result.getInfeasibility());
+            }
+            return NOT_FOUND;
+        case BUDGET_EXHAUSTED:
+            err.println("No allocation was found within the limits. The best "
+                    + "partial allocation placed "
+                    + result.getPartialAllocation().size() + " of "
+                    + events.size() + " events.");
+            return BUDGET_EXHAUSTED;
+        default:
+            break;
+        }
+        Map<Event, Venue> allocation = result.getAllocation();
+
+        if (output == null) {
+            write(events, allocation, System.out);
+            return FOUND;
+        }
+        try (PrintStream out = new PrintStream(output)) {
+            write(events, allocation, out);
+        } catch (IOException e) {
+            err.println(e.getMessage());
+            return INVALID;
+        }
+        return FOUND;
+    }
+
+    /**
+     * Returns the value of the option at the given index of the arguments.
+     *
+     * @throws IllegalArgumentException
+     *             if there is no argument at that index
+     */
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(args[index - 1]
+                    + " requires a value.");
+        }
+        return args[index];
+    }
+
+    /**
+     * Allocates the events to the venues, giving up once the time limit is
+     * reached.
+     *
+     * @param timeLimit
+     *            the time limit in seconds, or zero for no limit
+     * @return the result of the search
+     * @throws TimeoutException
+     *             if the time limit was reached by a strategy which can't
+     *             keep to it itself
+     */
+    private static AllocationResult allocate(final List<Event> events,
+            final List<Venue> venues, final AllocationOptions options,
+            long timeLimit) throws TimeoutException {
+        if (options.getStrategy() != AllocationStrategy.EXHAUSTIVE) {
+            options.setTimeLimit(timeLimit, TimeUnit.SECONDS);
+            return Allocator.search(events, venues, options);
+        }
+        if (timeLimit == 0) {
+            return Allocator.search(events, venues, options);
+        }
+
+        // search on a daemon thread, so that it doesn't keep the program
+        // running once the time limit is reached
+        ExecutorService executor = Executors.newSingleThreadExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "allocator");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        try {
+            return executor.submit(new Callable<AllocationResult>() {
+                @Override
+                public AllocationResult call() {
+                    return Allocator.search(events, venues, options);
+                }
+            }).get(timeLimit, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the allocation of each event, in order, followed by an empty line
+     * and the traffic caused by the allocation.
+     */
+    private static void write(List<Event> events,
+            Map<Event, Venue> allocation, PrintStream out) {
+        Traffic traffic = new Traffic();
+        for (Event event : events) {
+            Venue venue = allocation.get(event);
+            out.println(event + " at " + venue.getName() + " ("
+                    + venue.getCapacity() + ")");
+            traffic.addTraffic(venue.getTraffic(event));
+        }
+        out.println();
+        out.print(traffic);
+    }
+
+}
@@ -0,0 +1,34 @@
+package planner.cli;
+
+import java.util.Random;
+
+/**
+ * How the capacities of generated venues are spread between the smallest and
+ * largest capacity.
+ */
+public enum CapacityDistribution {
+    // every capacity is equally likely
+    UNIFORM {
+        @Override
+        int next(Random random, int min, int max) {
+            return min + random.nextInt(max - min + 1);
+        }
+    },
+    // most venues are small and a few are large, following a Pareto
+    // distribution with shape 1.5
+    LONG_TAIL {
+        @Override
+        int next(Random random, int min, int max) {
+            double pareto = min / Math.pow(1 - random.nextDouble(), 1 / 1.5);
+            return (int) Math.min(max, Math.floor(pareto));
+        }
+    };
+
+    /**
+     * Returns a random capacity from the distribution.
+     *
+     * @require random != null && 0 < min <= max
+     * @ensure min <= \result <= max
+     */
+    abstract int next(Random random, int min, int max);
+}
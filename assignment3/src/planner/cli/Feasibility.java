@@ -0,0 +1,16 @@
+package planner.cli;
+
+/**
+ * How hard it should be to safely allocate the events of a generated
+ * workload.
+ */
+public enum Feasibility {
+    // there is a safe allocation, and the corridors have no room to spare
+    // on top of it
+    TIGHT,
+    // there is a safe allocation, and the corridors can take three times
+    // the traffic it causes
+    LOOSE,
+    // there is no safe allocation
+    INFEASIBLE
+}
@@ -0,0 +1,101 @@
+package planner.cli;
+
+import planner.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * An immutable list of venues and a list of events to allocate to them, such
+ * as one made by a WorkloadGenerator.
+ */
+public class Workload {
+
+    // the venues of the workload
+    private final List<Venue> venues;
+    // the events of the workload
+    private final List<Event> events;
+
+    /**
+     * Creates a workload of the given venues and events. The given lists are
+     * copied, and not modified.
+     *
+     * @param venues
+     *            the venues of the workload
+     * @param events
+     *            the events to allocate to the venues
+     * @throws NullPointerException
+     *             if either list is null
+     */
+    public Workload(List<Venue> venues, List<Event> events) {
+        this.venues = Collections.unmodifiableList(new ArrayList<>(venues));
+        this.events = Collections.unmodifiableList(new ArrayList<>(events));
+    }
+
+    /**
+     * Returns the venues of the workload.
+     *
+     * @return an unmodifiable list of the venues
+     */
+    public List<Venue> getVenues() {
+        return venues;
+    }
+
+    /**
+     * Returns the events of the workload.
+     *
+     * @return an unmodifiable list of the events
+     */
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    /**
+     * Writes the venues to a file in the format read by VenueReader, and the
+     * events to a file in the format read by EventReader.
+     *
+     * @param venueFile
+     *            the name of the file to write the venues to
+     * @param eventFile
+     *            the name of the file to write the events to
+     * @throws IOException
+     *             if either file cannot be written
+     */
+    public void write(String venueFile, String eventFile) throws IOException {
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(
+                new FileWriter(venueFile)))) {
+            writeVenues(venues, out);
+        }
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(
+                new FileWriter(eventFile)))) {
+            for (Event event : events) {
+                out.println(event.getName());
+                out.println(event.getSize());
+                out.println();
+            }
+        }
+    }
+
+    /**
+     * Writes the venues in the format read by VenueReader.
+     *
+     * @param venues
+     *            the venues to write
+     * @param out
+     *            where to write the venues to
+     */
+    public static void writeVenues(List<Venue> venues, PrintWriter out) {
+        for (Venue venue : venues) {
+            out.println(venue.getName());
+            out.println(venue.getCapacity());
+            Traffic traffic = venue.getCapacityTraffic();
+            for (Corridor corridor : traffic.getCorridorsWithTraffic()) {
+                out.println(corridor.getStart() + ", " + corridor.getEnd()
+                        + ", " + corridor.getCapacity() + ": "
+                        + traffic.getTraffic(corridor));
+            }
+            out.println();
+        }
+    }
+
+}
@@ -0,0 +1,535 @@
+package planner.cli;
+
+import planner.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * <p>
+ * Generates random venues and events to allocate to them, for benchmarks and
+ * scaling tests. The same seed and parameters always generate the same
+ * workload.
+ * </p>
+ *
+ * <p>
+ * The venues are spread over a network of corridors between locations, each
+ * venue using a random set of corridors. An allocation of the events to
+ * distinct venues is planted in the workload, and the corridor capacities are
+ * then chosen so that the planted allocation is safe (TIGHT or LOOSE), or so
+ * that no allocation is safe (INFEASIBLE). An infeasible workload shares one
+ * extra corridor between all the venues, which cannot carry the traffic of
+ * all the events wherever they are held.
+ * </p>
+ *
+ * <p>
+ * An adversarial workload instead puts identical venues in a ring, where
+ * neighbouring venues share a corridor that only has room for one event. The
+ * events can't be told apart by size, and neither the venue capacities nor
+ * any single corridor show whether they can be allocated, so a search has to
+ * try most ways of placing them. A feasible adversarial workload has 2 *
+ * events venues, with an extra corridor that rules out the allocation that is
+ * tried first; an infeasible one has 2 * events - 1 venues. The venue count,
+ * capacity and corridor parameters are not used.
+ * </p>
+ *
+ * <p>
+ * As a command line program the usage is: WorkloadGenerator [options]
+ * VENUE_FILE EVENT_FILE, where each option is a setter of this class, e.g.
+ * --corridors-per-venue 4 or --feasibility TIGHT, or --adversarial.
+ * </p>
+ */
+public class WorkloadGenerator {
+
+    // the usage message
+    private final static String USAGE = "Usage: WorkloadGenerator [--seed N] "
+            + "[--venues N] [--events N] [--locations N] [--corridors N] "
+            + "[--corridors-per-venue N] [--min-capacity N] "
+            + "[--max-capacity N] [--distribution "
+            + Arrays.toString(CapacityDistribution.values())
+            + "] [--traffic-ratio R] [--feasibility "
+            + Arrays.toString(Feasibility.values())
+            + "] [--adversarial] VENUE_FILE EVENT_FILE";
+
+    // how much more traffic the corridors of a LOOSE workload can take than
+    // the planted allocation causes
+    private final static int LOOSE_SLACK = 3;
+
+    // the seed of the random numbers
+    private long seed = 0;
+    // the number of venues
+    private int venues = 100;
+    // the number of events
+    private int events = 50;
+    // the number of locations the corridors are between
+    private int locations = 100;
+    // the number of corridors in the network
+    private int corridors = 200;
+    // the number of corridors each venue uses
+    private int corridorsPerVenue = 4;
+    // the smallest and largest venue capacities
+    private int minCapacity = 50;
+    private int maxCapacity = 1000;
+    // how the venue capacities are spread
+    private CapacityDistribution distribution = CapacityDistribution.UNIFORM;
+    // the most traffic a venue causes on a corridor, for each person
+    private double trafficRatio = 0.5;
+    // whether there is a safe allocation
+    private Feasibility feasibility = Feasibility.LOOSE;
+    // whether to generate an adversarial workload
+    private boolean adversarial = false;
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if venues is negative
+     */
+    public void setVenues(int venues) {
+        this.venues = nonNegative(venues, "venues");
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if events is negative
+     */
+    public void setEvents(int events) {
+        this.events = nonNegative(events, "events");
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if locations < 2
+     */
+    public void setLocations(int locations) {
+        if (locations < 2) {
+            throw new IllegalArgumentException(
+                    "There must be at least two locations.");
+        }
+        this.locations = locations;
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if corridors is not positive
+     */
+    public void setCorridors(int corridors) {
+        this.corridors = positive(corridors, "corridors");
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if corridorsPerVenue is negative
+     */
+    public void setCorridorsPerVenue(int corridorsPerVenue) {
+        this.corridorsPerVenue = nonNegative(corridorsPerVenue,
+                "corridors per venue");
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if minCapacity is not positive
+     */
+    public void setMinCapacity(int minCapacity) {
+        this.minCapacity = positive(minCapacity, "minimum capacity");
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if maxCapacity is not positive
+     */
+    public void setMaxCapacity(int maxCapacity) {
+        this.maxCapacity = positive(maxCapacity, "maximum capacity");
+    }
+
+    /**
+     * @throws NullPointerException
+     *             if distribution is null
+     */
+    public void setDistribution(CapacityDistribution distribution) {
+        if (distribution == null) {
+            throw new NullPointerException("distribution cannot be null");
+        }
+        this.distribution = distribution;
+    }
+
+    /**
+     * Sets the most traffic a venue causes on each of its corridors when it
+     * hosts an event of maximum size, as a fraction of its capacity.
+     *
+     * @throws IllegalArgumentException
+     *             unless 0 < trafficRatio <= 1
+     */
+    public void setTrafficRatio(double trafficRatio) {
+        if (!(trafficRatio > 0 && trafficRatio <= 1)) {
+            throw new IllegalArgumentException(
+                    "The traffic ratio must be greater than 0 and at most 1.");
+        }
+        this.trafficRatio = trafficRatio;
+    }
+
+    /**
+     * @throws NullPointerException
+     *             if feasibility is null
+     */
+    public void setFeasibility(Feasibility feasibility) {
+        if (feasibility == null) {
+            throw new NullPointerException("feasibility cannot be null");
+        }
+        this.feasibility = feasibility;
+    }
+
+    public void setAdversarial(boolean adversarial) {
+        this.adversarial = adversarial;
+    }
+
+    /**
+     * Generates the workload described by the parameters.
+     *
+     * @return the generated workload
+     * @throws IllegalStateException
+     *             if the parameters don't describe a possible workload, e.g.
+     *             there are more events than venues in a feasible workload,
+     *             or more corridors than pairs of locations
+     */
+    public Workload generate() {
+        if (minCapacity > maxCapacity) {
+            throw new IllegalStateException(
+                    "The minimum capacity is larger than the maximum.");
+        }
+        if (feasibility == Feasibility.INFEASIBLE && events == 0) {
+            throw new IllegalStateException(
+                    "An infeasible workload needs at least one event.");
+        }
+        Random random = new Random(seed);
+        return adversarial ? generateAdversarial(random) : generateRandom(
+                random);
+    }
+
+    /**
+     * Generates a workload with a random network and a planted allocation.
+     */
+    private Workload generateRandom(Random random) {
+        if (feasibility != Feasibility.INFEASIBLE && events > venues) {
+            throw new IllegalStateException("A feasible workload can't have "
+                    + "more events than venues.");
+        }
+        if ((long) corridors > (long) locations * (locations - 1)) {
+            throw new IllegalStateException("There are only "
+                    + (long) locations * (locations - 1)
+                    + " corridors between " + locations + " locations.");
+        }
+
+        Corridor[] network = new Corridor[corridors];
+        int[] capacities = new int[venues];
+        int[][] venueCorridors = new int[venues][];
+        int[][] venueTraffic = new int[venues][];
+        // the largest traffic any venue causes on each corridor
+        int[] largest = new int[corridors];
+        int largestCapacity = 0;
+        for (int v = 0; v < venues; v++) {
+            capacities[v] = distribution.next(random, minCapacity,
+                    maxCapacity);
+            largestCapacity = Math.max(largestCapacity, capacities[v]);
+            venueCorridors[v] = distinct(random, Math.min(corridorsPerVenue,
+                    corridors), corridors);
+            venueTraffic[v] = new int[venueCorridors[v].length];
+            for (int k = 0; k < venueTraffic[v].length; k++) {
+                int c = venueCorridors[v][k];
+                venueTraffic[v][k] = 1 + random.nextInt(Math.max(1,
+                        (int) (trafficRatio * capacities[v])));
+                largest[c] = Math.max(largest[c], venueTraffic[v][k]);
+            }
+        }
+
+        // plant an allocation of as many events as possible at distinct
+        // venues; any more events are too many to allocate
+        int[] planted = distinct(random, Math.min(events, venues), venues);
+        int[] sizes = new int[events];
+        long[] load = new long[corridors];
+        long totalSize = 0;
+        for (int e = 0; e < events; e++) {
+            if (e < planted.length) {
+                int v = planted[e];
+                sizes[e] = 1 + random.nextInt(capacities[v]);
+                for (int k = 0; k < venueCorridors[v].length; k++) {
+                    load[venueCorridors[v][k]] += ((long) sizes[e]
+                            * venueTraffic[v][k]) / capacities[v];
+                }
+            } else {
+                sizes[e] = 1 + random.nextInt(maxCapacity);
+            }
+            totalSize += sizes[e];
+        }
+
+        Location[] places = new Location[locations];
+        for (int l = 0; l < locations; l++) {
+            places[l] = new Location("L" + l);
+        }
+        Set<Long> pairs = new HashSet<>();
+        for (int c = 0; c < corridors; c++) {
+            int start;
+            int end;
+            do {
+                start = random.nextInt(locations);
+                end = random.nextInt(locations);
+            } while (start == end || !pairs.add((long) start * locations
+                    + end));
+            long planned = feasibility == Feasibility.TIGHT ? load[c]
+                    : LOOSE_SLACK * load[c];
+            int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(Math
+                    .max(largest[c], 1), planned));
+            network[c] = new Corridor(places[start], places[end], capacity);
+        }
+
+        /*
+         * Every venue causes traffic equal to its capacity on the bottleneck,
+         * so an event causes traffic equal to its size wherever it is held,
+         * and the events can only all be held if their total size fits.
+         */
+        Corridor bottleneck = null;
+        if (feasibility == Feasibility.INFEASIBLE && events <= venues
+                && events > 0) {
+            for (int e = 0; e < events && totalSize <= largestCapacity; e++) {
+                totalSize += capacities[planted[e]] - sizes[e];
+                sizes[e] = capacities[planted[e]];
+            }
+            if (totalSize > largestCapacity) {
+                bottleneck = new Corridor(new Location("Centre"),
+                        new Location("Exit"), largestCapacity);
+            } else {
+                // the events are too small to overload any corridor, so
+                // make one too big for every venue instead
+                sizes[events - 1] = largestCapacity + 1;
+            }
+        }
+
+        List<Venue> venueList = new ArrayList<>();
+        for (int v = 0; v < venues; v++) {
+            Traffic traffic = new Traffic();
+            for (int k = 0; k < venueCorridors[v].length; k++) {
+                traffic.updateTraffic(network[venueCorridors[v][k]],
+                        venueTraffic[v][k]);
+            }
+            if (bottleneck != null) {
+                traffic.updateTraffic(bottleneck, capacities[v]);
+            }
+            venueList.add(new Venue("Venue " + v, capacities[v], traffic));
+        }
+        return new Workload(venueList, events(sizes));
+    }
+
+    /**
+     * Generates an adversarial workload.
+     */
+    private Workload generateAdversarial(Random random) {
+        if (events < 2) {
+            throw new IllegalStateException(
+                    "An adversarial workload needs at least two events.");
+        }
+        boolean feasible = feasibility != Feasibility.INFEASIBLE;
+        int ring = feasible ? 2 * events : 2 * events - 1;
+        int capacity = maxCapacity;
+        int traffic = Math.max(1, (int) (trafficRatio * capacity));
+
+        Location[] places = new Location[ring];
+        for (int v = 0; v < ring; v++) {
+            places[v] = new Location("R" + v);
+        }
+        List<Traffic> venueTraffic = new ArrayList<>();
+        for (int v = 0; v < ring; v++) {
+            venueTraffic.add(new Traffic());
+        }
+        for (int v = 0; v < ring; v++) {
+            int next = (v + 1) % ring;
+            Corridor shared = new Corridor(places[v], places[next], traffic);
+            venueTraffic.get(v).updateTraffic(shared, traffic);
+            venueTraffic.get(next).updateTraffic(shared, traffic);
+        }
+        if (feasible) {
+            /*
+             * The only safe allocations of an even ring are the even venues
+             * and the odd venues. Venues 0 and 2 also share a corridor, which
+             * leaves only the odd venues, but a search that tries the first
+             * venue first has to rule out everything with venue 0 in it.
+             */
+            Corridor chord = new Corridor(places[0], places[2], traffic);
+            venueTraffic.get(0).updateTraffic(chord, traffic);
+            venueTraffic.get(2).updateTraffic(chord, traffic);
+        }
+
+        List<Venue> venueList = new ArrayList<>();
+        for (int v = 0; v < ring; v++) {
+            venueList.add(new Venue("Venue " + v, capacity, venueTraffic.get(
+                    v)));
+        }
+        int[] sizes = new int[events];
+        Arrays.fill(sizes, capacity);
+        return new Workload(venueList, events(sizes));
+    }
+
+    /**
+     * Returns events with the given sizes, in order.
+     */
+    private static List<Event> events(int[] sizes) {
+        List<Event> result = new ArrayList<>();
+        for (int e = 0; e < sizes.length; e++) {
+            result.add(new Event("Event " + e, sizes[e]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns count distinct random integers from 0 to bound - 1.
+     *
+     * @require 0 <= count <= bound
+     */
+    private static int[] distinct(Random random, int count, int bound) {
+        // the chosen integers, and the positions they were swapped from
+        Map<Integer, Integer> swapped = new HashMap<>();
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(bound - i);
+            Integer atJ = swapped.get(j);
+            Integer atI = swapped.get(i);
+            result[i] = atJ == null ? j : atJ;
+            swapped.put(j, atI == null ? i : atI);
+        }
+        return result;
+    }
+
+    /**
+     * Returns value if it is at least zero.
+     *
+     * @throws IllegalArgumentException
+     *             if value is negative
+     */
+    private static int nonNegative(int value, String name) {
+        if (value < 0) {
+            throw new IllegalArgumentException("The number of " + name
+                    + " cannot be negative.");
+        }
+        return value;
+    }
+
+    /**
+     * Returns value if it is greater than zero.
+     *
+     * @throws IllegalArgumentException
+     *             if value is not positive
+     */
+    private static int positive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("The " + name
+                    + " must be greater than zero.");
+        }
+        return value;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.err));
+    }
+
+    /**
+     * Runs the program with the given command line arguments, returning its
+     * exit status: 0 if the files were written, and 1 otherwise.
+     *
+     * @param args
+     *            the command line arguments
+     * @param err
+     *            where to write error messages to
+     * @return the exit status of the program
+     */
+    public static int run(String[] args, PrintStream err) {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        // the venue and event files
+        List<String> files = new ArrayList<>();
+        Workload workload;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                case "--seed":
+                    generator.setSeed(Long.parseLong(value(args, ++i)));
+                    break;
+                case "--venues":
+                    generator.setVenues(Integer.parseInt(value(args, ++i)));
+                    break;
+                case "--events":
+                    generator.setEvents(Integer.parseInt(value(args, ++i)));
+                    break;
+                case "--locations":
+                    generator.setLocations(Integer.parseInt(value(args,
+                            ++i)));
+                    break;
+                case "--corridors":
+                    generator.setCorridors(Integer.parseInt(value(args,
+                            ++i)));
+                    break;
+                case "--corridors-per-venue":
+                    generator.setCorridorsPerVenue(Integer.parseInt(value(
+                            args, ++i)));
+                    break;
+                case "--min-capacity":
+                    generator.setMinCapacity(Integer.parseInt(value(args,
+                            ++i)));
+                    break;
+                case "--max-capacity":
+                    generator.setMaxCapacity(Integer.parseInt(value(args,
+                            ++i)));
+                    break;
+                case "--distribution":
+                    generator.setDistribution(CapacityDistribution.valueOf(
+                            value(args, ++i).toUpperCase()));
+                    break;
+                case "--traffic-ratio":
+                    generator.setTrafficRatio(Double.parseDouble(value(args,
+                            ++i)));
+                    break;
+                case "--feasibility":
+                    generator.setFeasibility(Feasibility.valueOf(value(args,
+                            ++i).toUpperCase()));
+                    break;
+                case "--adversarial":
+                    generator.setAdversarial(true);
+                    break;
+                default:
+                    files.add(args[i]);
+                }
+            }
+            if (files.size() != 2) {
+                throw new IllegalArgumentException(
+                        "Expected a venue file and an event file.");
+            }
+            workload = generator.generate();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return 1;
+        }
+
+        try {
+            workload.write(files.get(0), files.get(1));
+        } catch (IOException e) {
+            err.println(e.getMessage());
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the value of the option at the given index of the arguments.
+     *
+     * @throws IllegalArgumentException
+     *             if there is no argument at that index
+     */
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(args[index - 1]
+                    + " requires a value.");
+        }
+        return args[index];
+    }
+
+}
@@ -56,6 +56,9 @@ public class EventAllocatorController {
         this.view.addRemoveEventHandler(new clickRemoveEvent());
         // handle when the Exit menu item is clicked
         this.view.addExitHandler(new clickExit());
+        // handle when the Undo and Redo menu items are clicked
+        this.view.addUndoHandler(new clickUndo());
+        this.view.addRedoHandler(new clickRedo());
 
         try {
             // attempt to load the venues from the venues.txt file
@@ -129,6 +132,34 @@ public class EventAllocatorController {
         }
     }
 
+    /**
+     * Event handler for when the undo menu item is clicked, which reverts the
+     * last change to the allocation.
+     */
+    private class clickUndo implements EventHandler<ActionEvent> {
+        @Override
+        public void handle(final ActionEvent e){
+            if (model.undo()) {
+                view.update();
+                view.addEventClickHandler(new clickEvent());
+            }
+        }
+    }
+
+    /**
+     * Event handler for when the redo menu item is clicked, which reapplies
+     * the last undone change to the allocation.
+     */
+    private class clickRedo implements EventHandler<ActionEvent> {
+        @Override
+        public void handle(final ActionEvent e){
+            if (model.redo()) {
+                view.update();
+                view.addEventClickHandler(new clickEvent());
+            }
+        }
+    }
+
     /**
      * Event handler for when an event item is clicked, removes the event if
      * possible.
@@ -7,28 +7,50 @@ import java.util.*;
 
 /**
  * The model for the event allocator program.
+ *
+ * The allocation and its traffic are kept in immutable snapshots which share
+ * their structure with the previous snapshot, so that the history of changes
+ * can be kept for undo and redo at the cost of only the changes themselves.
  */
 public class EventAllocatorModel {
 
     // a list of all the venues in the model
     private List<Venue> venues;
-    // a list of all the events in the model
-    private List<Event> events;
-    // an allocation that allocates events to venues
-    private Map<Event, Venue> allocation;
+    // the venues of the model, indexed by capacity and corridor
+    private VenueNetwork network;
+    // the current allocation of events to venues and its traffic
+    private Snapshot current;
+    // the snapshots before the current one, the most recent first
+    private Deque<Snapshot> undoHistory;
+    // the snapshots undone to reach the current one, the most recent first
+    private Deque<Snapshot> redoHistory;
+    // every corridor that the loaded venues can generate traffic on
+    private Set<Corridor> corridors;
+    // the corridors whose traffic has changed since they were last taken
+    private Set<Corridor> changedCorridors;
+    // an index for suggesting venues that can safely host an event
+    private VenueSuggestions suggestions;
+    // the traffic of the venues kept off the heap, or null if traffic is
+    // looked up from the venues themselves
+    private TrafficMatrix matrix;
 
     /*
      * invariant:
      *
-     * venues != null && events != null && allocation != null &&
+     * venues != null && current != null && undoHistory != null &&
+     *
+     * redoHistory != null && corridors != null && changedCorridors != null &&
      *
-     * length of events == amount of mappings in allocation &&
+     * suggestions != null && network is the network of exactly venues &&
      *
-     * length of events <= length of venues &&
+     * matrix is null or an open matrix of exactly venues &&
      *
-     * traffic generated by allocation is safe &&
+     * amount of mappings in current.allocation <= length of venues &&
      *
-     * for each event mapped to a venue in allocation, venue can host event
+     * traffic generated by current.allocation is safe &&
+     *
+     * for each event mapped to a venue in current.allocation, venue can host
+     * event
      */
 
     /**
@@ -37,12 +59,18 @@ public class EventAllocatorModel {
     public EventAllocatorModel(){
         // initialize the instance variables
         venues = new ArrayList<>();
-        events = new ArrayList<>();
-        allocation = new HashMap<>();
+        current = new Snapshot();
+        undoHistory = new ArrayDeque<>();
+        redoHistory = new ArrayDeque<>();
+        corridors = new HashSet<>();
+        changedCorridors = new HashSet<>();
+        network = new VenueNetwork(venues);
+        suggestions = new VenueSuggestions(network);
     }
 
     /**
-     * Load all the venues from the given filename into the model.
+     * Load all the venues from the given filename into the model. This clears
+     * the allocation and its undo history.
      *
      * @param filename the name of the file to load.
      * @throws IOException thrown if there is an error opening the file.
@@ -50,8 +78,27 @@ public class EventAllocatorModel {
      */
     public void loadVenues(String filename) throws IOException, FormatException{
         venues = VenueReader.read(filename);
-        events = new ArrayList<>();
-        allocation = new HashMap<>();
+        current = new Snapshot();
+        undoHistory.clear();
+        redoHistory.clear();
+        network = new VenueNetwork(venues);
+        suggestions = new VenueSuggestions(network);
+        if (matrix != null) {
+            // build the new matrix before closing the old, so that the model
+            // keeps a usable matrix if building it fails
+            TrafficMatrix old = matrix;
+            matrix = new TrafficMatrix(venues);
+            old.close();
+        }
+
+        // every corridor of the old and the new venues has changed
+        changedCorridors.addAll(corridors);
+        corridors = new HashSet<>();
+        for (Venue venue : venues) {
+            corridors.addAll(venue.getCapacityTraffic()
+                    .getCorridorsWithTraffic());
+        }
+        changedCorridors.addAll(corridors);
     }
 
     /**
@@ -94,14 +141,14 @@ public class EventAllocatorModel {
         }
 
         // check that the venue does not already have an associated event
-        if (allocation.containsValue(venue)){
+        if (current.venues.containsKey(venue)){
             throw new IllegalArgumentException("The venue already has an event");
         }
 
         // creates an event object and ensures that is doesn't already
         // exist within the current allocation
         Event event = new Event(eventName, size);
-        if (events.contains(event)){
+        if (current.allocation.containsKey(event)){
             throw new IllegalArgumentException("The specified event is " +
                     "already allocated to a venue");
         }
@@ -123,18 +170,21 @@ public class EventAllocatorModel {
      */
     public boolean addEvent(Event event, Venue venue){
         // ensure that venue can host this event
-        if (venue.canHost(event)) {
-            // add the traffic generated by the event at this venue
-            Traffic traffic = new Traffic(getTraffic());
-            traffic.addTraffic(venue.getTraffic(event));
-            // ensure that the combined traffic is safe
-            if(traffic.isSafe()){
-                events.add(event);
-                allocation.put(event, venue);
-                return true;
-            }
+        if (!venue.canHost(event)) {
+            return false;
         }
-        return false;
+
+        // the current traffic is safe, so only the corridors used by the
+        // event can become unsafe when its traffic is added
+        TrafficUpdate update = new TrafficUpdate(1);
+        if (!visitTraffic(venue, event, update)) {
+            return false;
+        }
+
+        change(new Snapshot(current.allocation.plus(event, venue),
+                current.venues.plus(venue, event), update.traffic,
+                update.changed));
+        return true;
     }
 
     /**
@@ -143,8 +193,191 @@ public class EventAllocatorModel {
      * @param event the event to remove from the allocation.
      */
     public void removeEvent(Event event){
-        events.remove(event);
-        allocation.remove(event);
+        Venue venue = current.allocation.get(event);
+        if (venue == null) {
+            return;
+        }
+
+        // take the traffic generated by the event away from the total
+        TrafficUpdate update = new TrafficUpdate(-1);
+        visitTraffic(venue, event, update);
+
+        change(new Snapshot(current.allocation.minus(event),
+                current.venues.minus(venue), update.traffic, update.changed));
+    }
+
+    /**
+     * Sets whether the traffic of the events added and removed is read from
+     * a TrafficMatrix of the loaded venues, which is kept off the heap,
+     * instead of from the venues. The model still keeps the venues, so this
+     * saves no memory; it only spares building a Traffic for each event
+     * added or removed. The matrix is rebuilt whenever venues are loaded, and
+     * closed when this is turned off.
+     *
+     * @param enabled whether to look traffic up from a TrafficMatrix.
+     */
+    public void setOffHeapTraffic(boolean enabled){
+        if (enabled && matrix == null) {
+            matrix = new TrafficMatrix(venues);
+        } else if (!enabled && matrix != null) {
+            matrix.close();
+            matrix = null;
+        }
+    }
+
+    /**
+     * Returns true iff the traffic of the loaded venues is kept off the heap.
+     *
+     * @return whether traffic is looked up from a TrafficMatrix.
+     */
+    public boolean isOffHeapTraffic(){
+        return matrix != null;
+    }
+
+    /**
+     * Passes the traffic generated by hosting the event at the venue to the
+     * visitor, from the matrix if there is one, until the visitor stops.
+     *
+     * @return true iff the visitor received the traffic on every corridor.
+     */
+    private boolean visitTraffic(Venue venue, Event event,
+            TrafficMatrix.Visitor visitor){
+        if (matrix != null) {
+            return matrix.visitTraffic(venue, event, visitor);
+        }
+        Traffic eventTraffic = venue.getTraffic(event);
+        for (Corridor corridor : eventTraffic.getCorridorsWithTraffic()) {
+            int amount = eventTraffic.getTraffic(corridor);
+            if (!visitor.visit(corridor, amount)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The traffic of the current allocation with the traffic of an event
+     * added or taken away, one corridor at a time, stopping at the first
+     * corridor that adding the event makes unsafe.
+     */
+    private class TrafficUpdate implements TrafficMatrix.Visitor {
+
+        // 1 to add the traffic of the event, or -1 to take it away
+        private final int sign;
+        // the traffic after the corridors visited so far
+        private PersistentMap<Corridor, Integer> traffic;
+        // the corridors visited so far
+        private final Set<Corridor> changed;
+
+        /**
+         * Starts an update of the current traffic.
+         *
+         * @param sign 1 to add the event's traffic, or -1 to take it away.
+         */
+        private TrafficUpdate(int sign){
+            this.sign = sign;
+            traffic = current.traffic;
+            changed = new HashSet<>();
+        }
+
+        @Override
+        public boolean visit(Corridor corridor, int amount){
+            int total = getTraffic(corridor) + sign * amount;
+            if (total > corridor.getCapacity()) {
+                return false;
+            }
+            traffic = total == 0 ? traffic.minus(corridor) : traffic.plus(
+                    corridor, total);
+            changed.add(corridor);
+            return true;
+        }
+    }
+
+    /**
+     * Returns true iff there is a change to the allocation to undo.
+     *
+     * @return whether undo would change the allocation.
+     */
+    public boolean canUndo(){
+        return !undoHistory.isEmpty();
+    }
+
+    /**
+     * Returns true iff there is an undone change to the allocation to redo.
+     *
+     * @return whether redo would change the allocation.
+     */
+    public boolean canRedo(){
+        return !redoHistory.isEmpty();
+    }
+
+    /**
+     * Reverts the most recent change to the allocation which hasn't been
+     * undone, if there is one.
+     *
+     * @return true iff a change was undone.
+     */
+    public boolean undo(){
+        if (undoHistory.isEmpty()) {
+            return false;
+        }
+        markChanged(current.changed);
+        redoHistory.push(current);
+        current = undoHistory.pop();
+        return true;
+    }
+
+    /**
+     * Reapplies the most recently undone change to the allocation, if there
+     * has been no other change since.
+     *
+     * @return true iff a change was redone.
+     */
+    public boolean redo(){
+        if (redoHistory.isEmpty()) {
+            return false;
+        }
+        undoHistory.push(current);
+        current = redoHistory.pop();
+        markChanged(current.changed);
+        return true;
+    }
+
+    /**
+     * Makes the given snapshot the current allocation, recording the previous
+     * allocation so it can be undone.
+     *
+     * @param next the snapshot following the current one.
+     */
+    private void change(Snapshot next){
+        undoHistory.push(current);
+        redoHistory.clear();
+        current = next;
+        markChanged(next.changed);
+    }
+
+    /**
+     * Records that the traffic on the given corridors has changed.
+     *
+     * @param changed the corridors whose traffic has changed.
+     */
+    private void markChanged(Set<Corridor> changed){
+        changedCorridors.addAll(changed);
+        suggestions.invalidate(changed);
+    }
+
+    /**
+     * Returns the venues which do not have an event and could safely host an
+     * event of the given size on top of the current allocation. The venues
+     * are ordered by how closely their capacity fits the event, the closest
+     * fit first.
+     *
+     * @param size the size of the event.
+     * @return the venues which could safely host an event of the given size.
+     */
+    public List<Venue> getSuggestedVenues(int size){
+        return suggestions.suggest(size, current.traffic,
+                current.venues.keySet());
     }
 
     /**
@@ -178,7 +411,7 @@ public class EventAllocatorModel {
      * @return the venue associated with the given event.
      */
     public Venue getVenue(Event event){
-        return allocation.get(event);
+        return current.allocation.get(event);
     }
 
     /**
@@ -188,6 +421,7 @@ public class EventAllocatorModel {
      */
     public List<Event> getEvents(){
         // sort the events list using the EventComparator
+        List<Event> events = new ArrayList<>(current.allocation.keySet());
         Collections.sort(events, new EventComparator());
         return events;
     }
@@ -199,14 +433,87 @@ public class EventAllocatorModel {
      */
     public Traffic getTraffic(){
         Traffic traffic = new Traffic();
-        for (Event event : allocation.keySet()) {
-            Venue venue = allocation.get(event);
-
-            traffic.addTraffic(venue.getTraffic(event));
+        for (Map.Entry<Corridor, Integer> entry : current.traffic.entrySet()) {
+            traffic.updateTraffic(entry.getKey(), entry.getValue());
         }
         return traffic;
     }
 
+    /**
+     * Returns the traffic caused by the current allocation on one corridor.
+     *
+     * @param corridor the corridor to look up.
+     * @return traffic on the corridor caused by the current allocation.
+     */
+    public int getTraffic(Corridor corridor){
+        Integer amount = current.traffic.get(corridor);
+        return amount == null ? 0 : amount;
+    }
+
+    /**
+     * Returns every corridor that the loaded venues can generate traffic on.
+     *
+     * @return an unmodifiable set of the corridors of the loaded venues.
+     */
+    public Set<Corridor> getCorridors(){
+        return Collections.unmodifiableSet(corridors);
+    }
+
+    /**
+     * Returns the corridors whose traffic has changed (or which have been
+     * added or removed by loading venues) since this method was last called.
+     *
+     * @return the corridors changed since the last call.
+     */
+    public Set<Corridor> takeChangedCorridors(){
+        Set<Corridor> changed = changedCorridors;
+        changedCorridors = new HashSet<>();
+        return changed;
+    }
+
+}
+
+/**
+ * An immutable snapshot of the allocation of events to venues.
+ */
+class Snapshot {
+
+    // an allocation that allocates events to venues
+    final PersistentMap<Event, Venue> allocation;
+    // the inverse of allocation
+    final PersistentMap<Venue, Event> venues;
+    // the traffic generated by allocation on each corridor with traffic
+    final PersistentMap<Corridor, Integer> traffic;
+    // the corridors whose traffic differs from the previous snapshot
+    final Set<Corridor> changed;
+
+    /**
+     * Creates an empty snapshot.
+     */
+    Snapshot(){
+        this(PersistentMap.<Event, Venue>empty(),
+                PersistentMap.<Venue, Event>empty(),
+                PersistentMap.<Corridor, Integer>empty(),
+                Collections.<Corridor>emptySet());
+    }
+
+    /**
+     * Creates a snapshot of the given allocation.
+     *
+     * @param allocation the allocation of events to venues.
+     * @param venues the inverse of allocation.
+     * @param traffic the traffic generated by allocation.
+     * @param changed the corridors whose traffic differs from the previous
+     *                snapshot.
+     */
+    Snapshot(PersistentMap<Event, Venue> allocation,
+             PersistentMap<Venue, Event> venues,
+             PersistentMap<Corridor, Integer> traffic, Set<Corridor> changed){
+        this.allocation = allocation;
+        this.venues = venues;
+        this.traffic = traffic;
+        this.changed = changed;
+    }
 }
 
 /**
@@ -1,12 +1,15 @@
 package planner.gui;
 
 import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.scene.Cursor;
 import javafx.scene.Node;
 import javafx.scene.control.*;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
@@ -34,11 +37,13 @@ public class EventAllocatorView {
     private MenuItem[] menuItems;
     // a list of the buttons added to the view
     private Button[] buttons;
+    // the table showing the traffic on each corridor
+    private TrafficTable trafficTable;
 
     /*
      * invariant:
      *
-     * root != null && scene != null && model != null
+     * root != null && scene != null && model != null && trafficTable != null
      */
 
     /**
@@ -55,13 +60,16 @@ public class EventAllocatorView {
         scene = new Scene(root);
 
         // initialize the menu and button item lists
-        menuItems = new MenuItem[4];
+        menuItems = new MenuItem[6];
         buttons = new Button[2];
 
         // load the menu and set it to the top of the view
         root.setTop(loadMenu());
         // load the buttons and set it to the left side of the view
         root.setLeft(loadButtons());
+        // set the traffic table to the right side of the view
+        trafficTable = new TrafficTable();
+        root.setRight(trafficTable);
     }
 
     /**
@@ -71,6 +79,10 @@ public class EventAllocatorView {
         addTraffic();
         addEvents();
         addVenues();
+
+        // only enable undo and redo when there is something to undo or redo
+        menuItems[4].setDisable(!model.canUndo());
+        menuItems[5].setDisable(!model.canRedo());
     }
 
     /**
@@ -99,7 +111,17 @@ public class EventAllocatorView {
         file.getItems().addAll(menuItems[0], new SeparatorMenuItem(),
                 menuItems[1], menuItems[2], new SeparatorMenuItem(),
                 menuItems[3]);
-        menuBar.getMenus().add(file);
+
+        final Menu edit = new Menu("Edit");
+        menuItems[4] = new MenuItem("Undo");
+        menuItems[4].setAccelerator(KeyCombination.keyCombination(
+                "Shortcut+Z"));
+        menuItems[5] = new MenuItem("Redo");
+        menuItems[5].setAccelerator(KeyCombination.keyCombination(
+                "Shortcut+Y"));
+
+        edit.getItems().addAll(menuItems[4], menuItems[5]);
+        menuBar.getMenus().addAll(file, edit);
 
         return menuBar;
     }
@@ -184,11 +206,10 @@ public class EventAllocatorView {
     }
 
     /**
-     * Adds the traffic representation to the right side of the view.
+     * Updates the rows of the traffic table whose traffic has changed.
      */
     private void addTraffic(){
-        Text text = new Text(model.getTraffic().toString());
-        root.setRight(text);
+        trafficTable.update(model, model.takeChangedCorridors());
     }
 
     /**
@@ -218,8 +239,8 @@ public class EventAllocatorView {
      * @param callback The callback for when the dialog has been filled out.
      */
     public void showNewEventDialog(Callback<List<String>, Boolean> callback){
-        // create the dialog box based on the current venues
-        NewEventDialog dialog = new NewEventDialog(model.getVenues());
+        // create the dialog box which suggests venues from the model
+        NewEventDialog dialog = new NewEventDialog(model);
 
         // show the dialog box and wait for a user response
         Optional<List<String>> result = dialog.showAndWait();
@@ -276,6 +297,24 @@ public class EventAllocatorView {
         menuItems[3].setOnAction(handler);
     }
 
+    /**
+     * Attach the undo handler to the undo menu item.
+     *
+     * @param handler An event handler for when the undo menu item is pressed.
+     */
+    public void addUndoHandler(EventHandler<ActionEvent> handler){
+        menuItems[4].setOnAction(handler);
+    }
+
+    /**
+     * Attach the redo handler to the redo menu item.
+     *
+     * @param handler An event handler for when the redo menu item is pressed.
+     */
+    public void addRedoHandler(EventHandler<ActionEvent> handler){
+        menuItems[5].setOnAction(handler);
+    }
+
     /**
      * Attach the click event handler to all of the event nodes.
      *
@@ -304,14 +343,16 @@ class NewEventDialog extends Dialog<List<String>>{
     // a text field for inputting the size of the event
     private TextField eventSize;
     // a dropdown box for selecting which venue to add the event to
-    private ComboBox venueList;
+    private ComboBox<String> venueList;
 
     /**
-     * Create a new NewEventDialog adding the venues to the dropdown box.
+     * Create a new NewEventDialog adding the venues to the dropdown box. Once
+     * a size has been entered only the venues which could safely host an event
+     * of that size are shown.
      *
-     * @param venues A list of venues to add to the dropdown venue selector box.
+     * @param model The model to suggest venues from.
      */
-    NewEventDialog(List<Venue> venues){
+    NewEventDialog(final EventAllocatorModel model){
         super();
 
         // configure the dialog display options
@@ -333,15 +374,24 @@ class NewEventDialog extends Dialog<List<String>>{
 
         // load the venue selector input loading in the list of venues as
         // required
-        venueList = new ComboBox();
-        for (Venue venue : venues) {
-            venueList.getItems().add(venue.getName() + " (" +
-                    venue.getCapacity() + ")");
-        }
-        // store the venue list as user data
-        venueList.setUserData(venues);
+        venueList = new ComboBox<>();
+        showVenues(model.getVenues());
         venueList.setPromptText("Venue");
 
+        // narrow down the venues to suggestions whenever the size changes
+        eventSize.textProperty().addListener(new ChangeListener<String>() {
+            @Override
+            public void changed(ObservableValue<? extends String> observable,
+                                String oldSize, String newSize) {
+                try {
+                    showVenues(model.getSuggestedVenues(
+                            Integer.parseInt(newSize)));
+                } catch (NumberFormatException e) {
+                    showVenues(model.getVenues());
+                }
+            }
+        });
+
         // add the input display to the grid view
         grid.add(new Label("Event Name:"), 0, 0);
         grid.add(eventName, 1, 0);
@@ -401,4 +451,26 @@ class NewEventDialog extends Dialog<List<String>>{
             }
         });
     }
+
+    /**
+     * Replace the venues in the dropdown box, keeping the selected venue if
+     * it is still one of them.
+     *
+     * @param venues A list of venues to add to the dropdown venue selector box.
+     */
+    private void showVenues(List<Venue> venues){
+        String selected = venueList.getValue();
+
+        List<String> names = new ArrayList<>();
+        for (Venue venue : venues) {
+            names.add(venue.getName() + " (" + venue.getCapacity() + ")");
+        }
+        venueList.getItems().setAll(names);
+        // store the venue list as user data
+        venueList.setUserData(venues);
+
+        if (selected != null && names.contains(selected)) {
+            venueList.setValue(selected);
+        }
+    }
 }
\ No newline at end of file
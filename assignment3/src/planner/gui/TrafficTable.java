@@ -0,0 +1,243 @@
+package planner.gui;
+
+import javafx.beans.Observable;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
+import javafx.scene.paint.Color;
+import javafx.util.Callback;
+import planner.*;
+
+import java.util.*;
+
+/**
+ * A table showing the load on each corridor against its capacity, coloured
+ * as a heatmap and sortable by utilisation.
+ *
+ * Rows are kept between updates so that a change to one event only updates
+ * the rows of the corridors it uses.
+ */
+public class TrafficTable extends TableView<TrafficTable.CorridorLoad> {
+
+    // the rows of the table, indexed by their corridor
+    private Map<Corridor, CorridorLoad> rows;
+    // the rows of the table, which report changes to their traffic
+    private ObservableList<CorridorLoad> loads;
+
+    /*
+     * invariant:
+     *
+     * rows != null && loads != null &&
+     *
+     * loads contains exactly the values of rows
+     */
+
+    /**
+     * Creates an empty traffic table sorted by descending utilisation.
+     */
+    @SuppressWarnings("unchecked")
+    TrafficTable() {
+        super();
+        rows = new HashMap<>();
+
+        // the extractor makes a change in traffic re-sort only that row
+        loads = FXCollections.observableArrayList(
+                new Callback<CorridorLoad, Observable[]>() {
+                    @Override
+                    public Observable[] call(CorridorLoad load) {
+                        return new Observable[] { load.trafficProperty() };
+                    }
+                });
+        SortedList<CorridorLoad> sorted = new SortedList<>(loads);
+        sorted.comparatorProperty().bind(comparatorProperty());
+        setItems(sorted);
+
+        TableColumn<CorridorLoad, Corridor> corridor = new TableColumn<>(
+                "Corridor");
+        corridor.setCellValueFactory(new PropertyValueFactory<CorridorLoad,
+                Corridor>("corridor"));
+
+        TableColumn<CorridorLoad, Number> load = new TableColumn<>("Traffic");
+        load.setCellValueFactory(new PropertyValueFactory<CorridorLoad,
+                Number>("traffic"));
+
+        TableColumn<CorridorLoad, Number> capacity = new TableColumn<>(
+                "Capacity");
+        capacity.setCellValueFactory(new PropertyValueFactory<CorridorLoad,
+                Number>("capacity"));
+
+        TableColumn<CorridorLoad, Number> utilisation = new TableColumn<>(
+                "Utilisation");
+        utilisation.setCellValueFactory(new PropertyValueFactory<CorridorLoad,
+                Number>("utilisation"));
+        utilisation.setCellFactory(new Callback<TableColumn<CorridorLoad,
+                Number>, TableCell<CorridorLoad, Number>>() {
+            @Override
+            public TableCell<CorridorLoad, Number> call(
+                    TableColumn<CorridorLoad, Number> column) {
+                return new UtilisationCell();
+            }
+        });
+        utilisation.setSortType(TableColumn.SortType.DESCENDING);
+
+        getColumns().addAll(corridor, load, capacity, utilisation);
+        getSortOrder().add(utilisation);
+        setColumnResizePolicy(CONSTRAINED_RESIZE_POLICY);
+    }
+
+    /**
+     * Brings the table up to date with the model, updating only the rows of
+     * the given corridors.
+     *
+     * A changed corridor that the model no longer has is removed from the
+     * table, and a changed corridor that the table does not show yet is added.
+     *
+     * @param model the model to read the traffic from.
+     * @param changed the corridors whose traffic may have changed.
+     */
+    void update(EventAllocatorModel model, Set<Corridor> changed) {
+        Set<Corridor> corridors = model.getCorridors();
+        // rows to be removed from and added to the table in bulk
+        Set<CorridorLoad> removed = new HashSet<>();
+        List<CorridorLoad> added = new ArrayList<>();
+
+        for (Corridor corridor : changed) {
+            CorridorLoad row = rows.get(corridor);
+            if (!corridors.contains(corridor)) {
+                if (row != null) {
+                    removed.add(rows.remove(corridor));
+                }
+            } else if (row == null) {
+                row = new CorridorLoad(corridor, model.getTraffic(corridor));
+                rows.put(corridor, row);
+                added.add(row);
+            } else {
+                row.setTraffic(model.getTraffic(corridor));
+            }
+        }
+
+        if (!removed.isEmpty()) {
+            loads.removeAll(removed);
+        }
+        if (!added.isEmpty()) {
+            loads.addAll(added);
+        }
+    }
+
+    /**
+     * A row of the table: the traffic on one corridor.
+     */
+    public static class CorridorLoad {
+
+        // the corridor of the row
+        private final Corridor corridor;
+        // the traffic currently on the corridor
+        private final ReadOnlyIntegerWrapper traffic;
+        // the fraction of the capacity of the corridor that is in use
+        private final ReadOnlyDoubleWrapper utilisation;
+
+        /**
+         * Creates a row for the given corridor and its traffic.
+         *
+         * @param corridor the corridor of the row.
+         * @param traffic the traffic currently on the corridor.
+         */
+        CorridorLoad(Corridor corridor, int traffic) {
+            this.corridor = corridor;
+            this.traffic = new ReadOnlyIntegerWrapper(traffic);
+            this.utilisation = new ReadOnlyDoubleWrapper(
+                    utilisationOf(traffic));
+        }
+
+        /**
+         * Returns the corridor of this row.
+         *
+         * @return the corridor of this row.
+         */
+        public Corridor getCorridor() {
+            return corridor;
+        }
+
+        /**
+         * Returns the traffic on the corridor of this row.
+         *
+         * @return the traffic on the corridor.
+         */
+        public ReadOnlyIntegerProperty trafficProperty() {
+            return traffic.getReadOnlyProperty();
+        }
+
+        /**
+         * Returns the capacity of the corridor of this row.
+         *
+         * @return the capacity of the corridor.
+         */
+        public int getCapacity() {
+            return corridor.getCapacity();
+        }
+
+        /**
+         * Returns the fraction of the capacity of the corridor in use.
+         *
+         * @return the utilisation of the corridor.
+         */
+        public ReadOnlyDoubleProperty utilisationProperty() {
+            return utilisation.getReadOnlyProperty();
+        }
+
+        /**
+         * Updates the traffic on the corridor of this row.
+         *
+         * @param amount the new traffic on the corridor.
+         */
+        private void setTraffic(int amount) {
+            utilisation.set(utilisationOf(amount));
+            traffic.set(amount);
+        }
+
+        /**
+         * Returns the fraction of the capacity of the corridor that the
+         * given traffic uses.
+         *
+         * @param amount an amount of traffic on the corridor.
+         * @return amount as a fraction of the capacity of the corridor.
+         */
+        private double utilisationOf(int amount) {
+            return (double) amount / corridor.getCapacity();
+        }
+    }
+
+    /**
+     * A table cell showing a utilisation as a percentage on a background
+     * which ranges from green (unused) to red (at capacity).
+     */
+    private static class UtilisationCell extends TableCell<CorridorLoad,
+            Number> {
+        @Override
+        protected void updateItem(Number item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null) {
+                setText(null);
+                setBackground(null);
+                return;
+            }
+            double utilisation = item.doubleValue();
+            setText(String.format("%.0f%%", utilisation * 100));
+            Color colour = Color.LIMEGREEN.interpolate(Color.RED,
+                    Math.min(utilisation, 1));
+            setBackground(new Background(new BackgroundFill(colour,
+                    CornerRadii.EMPTY, null)));
+        }
+    }
+}
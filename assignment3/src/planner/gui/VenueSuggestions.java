@@ -0,0 +1,121 @@
+package planner.gui;
+
+import planner.*;
+
+import java.util.*;
+
+/**
+ * An index over the venues of a network for quickly finding the venues that
+ * could safely host an event of a given size on top of some existing traffic.
+ * The network finds the venues large enough for the event, and the venues
+ * on each corridor.
+ *
+ * For each venue the index remembers the largest event it could safely host
+ * given the remaining headroom on its corridors. Only the venues on corridors
+ * whose traffic has changed need this to be recalculated.
+ */
+class VenueSuggestions {
+
+    // the venues, indexed by capacity and by the corridors they use
+    private VenueNetwork network;
+    // the corridors of each venue and its traffic for an event of maximum size
+    private Map<Venue, Traffic> capacityTraffic;
+    // the largest event that each venue can safely host, if already known
+    private Map<Venue, Integer> largestSafeSize;
+
+    /*
+     * invariant:
+     *
+     * all fields != null &&
+     *
+     * capacityTraffic has the capacity traffic of each venue of network &&
+     *
+     * each value of largestSafeSize is correct for the current traffic
+     */
+
+    /**
+     * Creates an index over the venues of the given network, with no traffic.
+     *
+     * @param network the network of the venues to index.
+     */
+    VenueSuggestions(VenueNetwork network) {
+        this.network = network;
+        capacityTraffic = new HashMap<>();
+        largestSafeSize = new HashMap<>();
+        for (Venue venue : network.getVenues()) {
+            capacityTraffic.put(venue, venue.getCapacityTraffic());
+        }
+    }
+
+    /**
+     * Forgets what is known about the venues that use the given corridors,
+     * which must be called whenever the traffic on those corridors changes.
+     *
+     * @param corridors the corridors whose traffic has changed.
+     */
+    void invalidate(Set<Corridor> corridors) {
+        for (Corridor corridor : corridors) {
+            for (Venue venue : network.getVenuesUsing(corridor)) {
+                largestSafeSize.remove(venue);
+            }
+        }
+    }
+
+    /**
+     * Returns the venues that are not in use and could safely host an event
+     * of the given size on top of the given traffic. The venues are ordered
+     * by how closely their capacity fits the event, the closest first.
+     *
+     * @param size the size of the event.
+     * @param traffic the traffic on each corridor with traffic, which the
+     *                venues have been invalidated with.
+     * @param used the venues which already host an event.
+     * @return the venues that could safely host an event of the given size.
+     */
+    List<Venue> suggest(int size, Map<Corridor, Integer> traffic,
+            Set<Venue> used) {
+        List<Venue> result = new ArrayList<>();
+        for (Venue venue : network.getVenuesFor(size)) {
+            if (!used.contains(venue)
+                    && largestSafeSize(venue, traffic) >= size) {
+                result.add(venue);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the largest event that the venue can safely host on top of the
+     * given traffic, calculating it if it isn't already known.
+     *
+     * @param venue a venue in the index.
+     * @param traffic the traffic on each corridor with traffic, which the
+     *                venues have been invalidated with.
+     * @return the largest size of event the venue can safely host.
+     */
+    private int largestSafeSize(Venue venue, Map<Corridor, Integer> traffic) {
+        Integer known = largestSafeSize.get(venue);
+        if (known != null) {
+            return known;
+        }
+
+        int capacity = venue.getCapacity();
+        long largest = capacity;
+        Traffic venueTraffic = capacityTraffic.get(venue);
+        for (Corridor corridor : venueTraffic.getCorridorsWithTraffic()) {
+            Integer load = traffic.get(corridor);
+            long headroom = corridor.getCapacity() - (load == null ? 0 : load);
+            long amount = venueTraffic.getTraffic(corridor);
+            /*
+             * An event of size K generates (K * amount) / capacity traffic,
+             * which fits in the headroom iff K * amount < (headroom + 1) *
+             * capacity.
+             */
+            largest = Math.min(largest, ((headroom + 1) * capacity - 1)
+                    / amount);
+        }
+        int result = (int) Math.max(largest, 0);
+        largestSafeSize.put(venue, result);
+        return result;
+    }
+}
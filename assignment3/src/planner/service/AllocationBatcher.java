@@ -0,0 +1,198 @@
+package planner.service;
+
+import planner.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Allocates lists of events to the venues of one venue network on behalf of
+ * many concurrent clients, sharing the search work between them.
+ * </p>
+ *
+ * <p>
+ * Requests for the same set of events which arrive while a search for that
+ * set is running are batched onto that search rather than starting another,
+ * and the results of recent searches are kept so that repeated requests are
+ * answered without searching at all. Only results that settle the request,
+ * by finding a safe allocation or proving there is none, are kept; a search
+ * that ran out of budget or was cancelled is run again on the next request.
+ * </p>
+ */
+public class AllocationBatcher {
+
+    // the venues that events are allocated to
+    private final VenueNetwork network;
+    // how to search for allocations
+    private final AllocationOptions options;
+    // the threads which run the searches
+    private final ExecutorService workers;
+    // the searches in progress, by the set of events being allocated
+    private final ConcurrentMap<Set<Event>,
+            CompletableFuture<AllocationResult>> running;
+    // the results of recent searches which found an allocation or proved
+    // there is none
+    private final Map<Set<Event>, AllocationResult> recent;
+
+    // the number of requests made
+    private final AtomicLong requests;
+    // the number of searches run
+    private final AtomicLong searches;
+
+    /*
+     * invariant:
+     *
+     * all fields != null && searches <= requests
+     */
+
+    /**
+     * Creates a batcher which allocates events to the given network.
+     *
+     * @param network
+     *            the venues that events are allocated to
+     * @param options
+     *            how to search for allocations, which must not be modified
+     *            afterwards
+     * @param workers
+     *            the number of searches that may run at the same time
+     * @param cacheSize
+     *            the number of recent results to keep
+     * @throws IllegalArgumentException
+     *             if workers is less than one or cacheSize is negative
+     */
+    public AllocationBatcher(VenueNetwork network, AllocationOptions options,
+            int workers, final int cacheSize) {
+        if (workers < 1 || cacheSize < 0) {
+            throw new IllegalArgumentException(
+                    "There must be at least one worker, and a cache size of "
+                            + "at least zero.");
+        }
+        this.network = network;
+        this.options = options;
+        this.workers = Executors.newFixedThreadPool(workers);
+        running = new ConcurrentHashMap<>();
+        recent = new LinkedHashMap<Set<Event>, AllocationResult>(16, 0.75f,
+                true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Set<Event>, AllocationResult> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        requests = new AtomicLong();
+        searches = new AtomicLong();
+    }
+
+    /**
+     * Returns the venues that events are allocated to.
+     *
+     * @return the venue network of the batcher
+     */
+    public VenueNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * Requests a safe allocation of the given events to the venues of the
+     * network. The future is completed with the result of the search, whose
+     * status tells whether an allocation was found, there is none, or the
+     * search stopped before it could tell.
+     *
+     * @param events
+     *            the events to allocate, without duplicates
+     * @return a future for the result of allocating the events, which fails
+     *         with the executor's exception if the search cannot be started,
+     *         e.g. once the batcher is shut down
+     */
+    public Future<AllocationResult> allocate(List<Event> events) {
+        requests.incrementAndGet();
+        final Set<Event> key = Collections.unmodifiableSet(new HashSet<>(
+                events));
+        synchronized (recent) {
+            AllocationResult cached = recent.get(key);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        final CompletableFuture<AllocationResult> result =
+                new CompletableFuture<>();
+        CompletableFuture<AllocationResult> batch = running.putIfAbsent(key,
+                result);
+        if (batch != null) {
+            return batch;
+        }
+
+        searches.incrementAndGet();
+        Runnable search = new Runnable() {
+            @Override
+            public void run() {
+                AllocationResult allocation = null;
+                // anything thrown by the search, including Errors
+                Throwable failure = null;
+                try {
+                    allocation = Allocator.search(new ArrayList<>(key),
+                            network, options);
+                    if (allocation.getStatus()
+                            != AllocationStatus.BUDGET_EXHAUSTED) {
+                        synchronized (recent) {
+                            recent.put(key, allocation);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure = e;
+                } finally {
+                    // later requests start a new search or use the cache
+                    running.remove(key, result);
+                }
+                if (failure == null) {
+                    result.complete(allocation);
+                } else {
+                    result.completeExceptionally(failure);
+                    if (failure instanceof Error) {
+                        throw (Error) failure;
+                    }
+                }
+            }
+        };
+        try {
+            workers.execute(search);
+        } catch (RuntimeException e) {
+            // e.g. rejected once shut down: don't leave later requests
+            // waiting on a search that will never run
+            running.remove(key, result);
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of requests made to the batcher.
+     *
+     * @return the number of calls to allocate
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of searches run by the batcher. The difference
+     * between this and the number of requests is the number of requests that
+     * shared the work of another.
+     *
+     * @return the number of searches run
+     */
+    public long getSearches() {
+        return searches.get();
+    }
+
+    /**
+     * Stops the batcher from starting any more searches.
+     */
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+}
@@ -0,0 +1,320 @@
+package planner.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import planner.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * <p>
+ * A long running HTTP server which allocates lists of events to the venues
+ * read from a venue file, so that the venues are read and preprocessed only
+ * once for any number of requests.
+ * </p>
+ *
+ * <p>
+ * Usage: AllocationServer [--port N] [--strategy NAME] [--threads N]
+ * [--workers N] [--cache N] VENUE_FILE
+ * </p>
+ *
+ * <p>
+ * POST /allocate takes a JSON list of events, as read by Json.readEvents, and
+ * responds with the status of the search and the allocation, e.g.
+ * </p>
+ *
+ * <p>
+ * {"status": "FOUND", "allocated": 1, "allocation": [{"event": "Concert",
+ * "size": 120, "venue": "The Gabba"}], "traffic": [{"corridor":
+ * "Corridor l1 to l2 (200)", "traffic": 90}]}
+ * </p>
+ *
+ * <p>
+ * where the events are in the order of the request. Unless the status is
+ * FOUND, "allocation" is null: INFEASIBLE means there is no safe allocation,
+ * and BUDGET_EXHAUSTED that the search stopped before it could tell, in which
+ * case "allocated" is the number of events it could place. Requests are shared
+ * between concurrent clients by an AllocationBatcher. GET /stats responds with
+ * the number of requests and searches made.
+ * </p>
+ *
+ * <p>
+ * Malformed requests are answered with 400, and request bodies of more than
+ * MAX_BODY bytes with 413. Any other failure while handling a request is
+ * answered with 500, so every exchange is answered and closed.
+ * </p>
+ */
+public class AllocationServer {
+
+    // the usage message
+    private final static String USAGE = "Usage: AllocationServer [--port N] "
+            + "[--strategy " + Arrays.toString(AllocationStrategy.values())
+            + "] [--threads N] [--workers N] [--cache N] VENUE_FILE";
+
+    // the largest request body read, in bytes
+    final static int MAX_BODY = 1 << 20;
+
+    // the batcher which allocates the events of each request
+    private final AllocationBatcher batcher;
+    // the HTTP server
+    private final HttpServer server;
+
+    /**
+     * Creates a server, which is not yet started, on the given port.
+     *
+     * @param batcher
+     *            the batcher to allocate the events of each request with
+     * @param port
+     *            the port to listen on, or 0 for any free port
+     * @throws IOException
+     *             if the server cannot listen on the port
+     */
+    public AllocationServer(AllocationBatcher batcher, int port)
+            throws IOException {
+        this.batcher = batcher;
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/allocate", new AllocateHandler());
+        server.createContext("/stats", new StatsHandler());
+        server.setExecutor(Executors.newCachedThreadPool());
+    }
+
+    /**
+     * Starts the server in the background.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting at most the given number of seconds for
+     * requests in progress to finish.
+     *
+     * @param delay
+     *            the number of seconds to wait
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        batcher.shutdown();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the port of the server
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public static void main(String[] args) {
+        AllocationOptions options = new AllocationOptions();
+        int port = 8080;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int cacheSize = 1024;
+        String venueFile = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "--strategy":
+                    options.setStrategy(AllocationStrategy.valueOf(String
+                            .valueOf(value).toUpperCase()));
+                    i++;
+                    break;
+                case "--threads":
+                    options.setThreads(Integer.parseInt(value));
+                    i++;
+                    break;
+                case "--workers":
+                    workers = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "--cache":
+                    cacheSize = Integer.parseInt(value);
+                    i++;
+                    break;
+                default:
+                    if (venueFile != null) {
+                        throw new IllegalArgumentException(
+                                "Expected one venue file.");
+                    }
+                    venueFile = args[i];
+                }
+            }
+            if (venueFile == null) {
+                throw new IllegalArgumentException("Expected a venue file.");
+            }
+
+            VenueNetwork network = new VenueNetwork(VenueReader.read(
+                    venueFile));
+            AllocationServer server = new AllocationServer(
+                    new AllocationBatcher(network, options, workers,
+                            cacheSize), port);
+            server.start();
+            System.err.println("Allocating to " + network.getVenues().size()
+                    + " venues on port " + server.getPort());
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(3);
+        } catch (IOException | FormatException e) {
+            System.err.println(e.getMessage());
+            System.exit(3);
+        }
+    }
+
+    /**
+     * Returns the JSON response for the given result of allocating the given
+     * events.
+     */
+    private static String toJson(List<Event> events,
+            AllocationResult search) {
+        StringBuilder result = new StringBuilder("{\"status\": ").append(
+                Json.quote(search.getStatus().name())).append(
+                        ", \"allocated\": ").append(search
+                                .getPartialAllocation().size());
+        Map<Event, Venue> allocation = search.getAllocation();
+        if (allocation == null) {
+            return result.append(", \"allocation\": null}").toString();
+        }
+        result.append(", \"allocation\": [");
+        Traffic traffic = new Traffic();
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            Venue venue = allocation.get(event);
+            traffic.addTraffic(venue.getTraffic(event));
+            result.append(i == 0 ? "" : ", ").append("{\"event\": ").append(
+                    Json.quote(event.getName())).append(", \"size\": ")
+                    .append(event.getSize()).append(", \"venue\": ").append(
+                            Json.quote(venue.getName())).append("}");
+        }
+        result.append("], \"traffic\": [");
+        String separator = "";
+        for (Corridor corridor : new TreeSet<>(traffic
+                .getCorridorsWithTraffic())) {
+            result.append(separator).append("{\"corridor\": ").append(Json
+                    .quote(corridor.toString())).append(", \"traffic\": ")
+                    .append(traffic.getTraffic(corridor)).append("}");
+            separator = ", ";
+        }
+        return result.append("]}").toString();
+    }
+
+    /**
+     * Sends the given JSON response, and closes the exchange.
+     */
+    private static void respond(HttpExchange exchange, int status, String json)
+            throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+                "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Reads the whole body of a request as UTF-8 text, or returns null
+     * without reading all of it if it is more than MAX_BODY bytes long.
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (body.size() + read > MAX_BODY) {
+                    return null;
+                }
+                body.write(buffer, 0, read);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A handler which answers every request: anything thrown while serving it
+     * is answered with 500, if nothing has been sent yet, and the exchange is
+     * always closed.
+     */
+    private abstract static class Handler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                serve(exchange);
+            } catch (RuntimeException | Error e) {
+                // e.g. a StackOverflowError or OutOfMemoryError; answering
+                // fails if the response was already started
+                respond(exchange, 500, "{\"error\": " + Json.quote(String
+                        .valueOf(e)) + "}");
+            } finally {
+                exchange.close();
+            }
+        }
+
+        /**
+         * Serves the request of the given exchange.
+         */
+        abstract void serve(HttpExchange exchange) throws IOException;
+
+    }
+
+    /**
+     * Handles requests to allocate a list of events.
+     */
+    private class AllocateHandler extends Handler {
+        @Override
+        void serve(HttpExchange exchange) throws IOException {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                respond(exchange, 405, "{\"error\": \"POST expected\"}");
+                return;
+            }
+            String body = readBody(exchange);
+            if (body == null) {
+                respond(exchange, 413, "{\"error\": \"request body larger "
+                        + "than " + MAX_BODY + " bytes\"}");
+                return;
+            }
+            try {
+                List<Event> events = Json.readEvents(body);
+                AllocationResult result = batcher.allocate(events).get();
+                respond(exchange, 200, toJson(events, result));
+            } catch (FormatException e) {
+                respond(exchange, 400, "{\"error\": " + Json.quote(e
+                        .getMessage()) + "}");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                respond(exchange, 503, "{\"error\": \"interrupted\"}");
+            } catch (ExecutionException e) {
+                respond(exchange, 500, "{\"error\": " + Json.quote(String
+                        .valueOf(e.getCause())) + "}");
+            }
+        }
+    }
+
+    /**
+     * Handles requests for the statistics of the batcher.
+     */
+    private class StatsHandler extends Handler {
+        @Override
+        void serve(HttpExchange exchange) throws IOException {
+            respond(exchange, 200, "{\"venues\": " + batcher.getNetwork()
+                    .getVenues().size() + ", \"requests\": " + batcher
+                    .getRequests() + ", \"searches\": " + batcher
+                    .getSearches() + "}");
+        }
+    }
+
+}
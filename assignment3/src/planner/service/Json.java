@@ -0,0 +1,345 @@
+package planner.service;
+
+import planner.*;
+
+import java.util.*;
+
+/**
+ * Reads and writes the small subset of JSON used by the allocation service.
+ *
+ * Objects are read as maps, arrays as lists, strings as strings, numbers as
+ * longs (only integers are supported), and true, false and null as the
+ * corresponding Java values. Arrays and objects may be nested at most
+ * MAX_DEPTH deep, so that deeply nested text is rejected instead of
+ * overflowing the stack of the recursive reader.
+ */
+class Json {
+
+    // the deepest that arrays and objects may be nested
+    final static int MAX_DEPTH = 32;
+
+    // the text being read
+    private final String text;
+    // the position of the next character to read
+    private int position;
+    // the number of arrays and objects being read around the position
+    private int depth;
+
+    /*
+     * invariant: text != null && 0 <= position <= text.length() && 0 <=
+     * depth <= MAX_DEPTH
+     */
+
+    /**
+     * Creates a reader of the given text.
+     */
+    private Json(String text) {
+        this.text = text;
+        this.position = 0;
+        this.depth = 0;
+    }
+
+    /**
+     * <p>
+     * Reads a list of events from the given JSON text, which is either an
+     * array of events or an object with an "events" member that is an array
+     * of events. Each event is an object with a string "name" and an integer
+     * "size", e.g.
+     * </p>
+     *
+     * <p>
+     * [{"name": "Concert", "size": 120}, {"name": "Market", "size": 40}]
+     * </p>
+     *
+     * @param text
+     *            the JSON text to read
+     * @return the events read, in order
+     * @throws FormatException
+     *             if the text is not JSON of the form above, is nested more
+     *             than MAX_DEPTH deep, or contains an invalid or duplicate
+     *             event
+     */
+    static List<Event> readEvents(String text) throws FormatException {
+        Json reader = new Json(text);
+        Object value = reader.readValue();
+        reader.skipWhitespace();
+        if (reader.position != text.length()) {
+            throw reader.error("unexpected text after the events");
+        }
+
+        if (value instanceof Map) {
+            value = ((Map<?, ?>) value).get("events");
+        }
+        if (!(value instanceof List)) {
+            throw new FormatException("Expected an array of events.");
+        }
+        List<Event> events = new ArrayList<>();
+        Set<Event> seen = new HashSet<>();
+        for (Object item : (List<?>) value) {
+            if (!(item instanceof Map)) {
+                throw new FormatException("Event " + events.size()
+                        + ": expected an object.");
+            }
+            Object name = ((Map<?, ?>) item).get("name");
+            Object size = ((Map<?, ?>) item).get("size");
+            if (!(name instanceof String) || ((String) name).isEmpty()) {
+                throw new FormatException("Event " + events.size()
+                        + ": name must be a non-empty string.");
+            }
+            if (!(size instanceof Long) || (Long) size <= 0
+                    || (Long) size > Integer.MAX_VALUE) {
+                throw new FormatException("Event " + events.size()
+                        + ": size must be a positive integer.");
+            }
+            Event event = new Event((String) name, ((Long) size).intValue());
+            if (!seen.add(event)) {
+                throw new FormatException("Event " + events.size()
+                        + ": duplicate event detected.");
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * Returns the given string as a quoted JSON string.
+     *
+     * @param string
+     *            the string to quote
+     * @return the JSON representation of the string
+     */
+    static String quote(String string) {
+        StringBuilder result = new StringBuilder("\"");
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < 0x20) {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    /**
+     * Reads the value starting at the next non-whitespace character.
+     */
+    private Object readValue() throws FormatException {
+        skipWhitespace();
+        if (position == text.length()) {
+            throw error("value expected");
+        }
+        char c = text.charAt(position);
+        switch (c) {
+        case '{':
+            return readObject();
+        case '[':
+            return readArray();
+        case '"':
+            return readString();
+        case 't':
+            return readLiteral("true", Boolean.TRUE);
+        case 'f':
+            return readLiteral("false", Boolean.FALSE);
+        case 'n':
+            return readLiteral("null", null);
+        default:
+            return readNumber();
+        }
+    }
+
+    /**
+     * Reads an object, starting at its opening brace.
+     */
+    private Map<String, Object> readObject() throws FormatException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        enter();
+        position++;
+        skipWhitespace();
+        if (consume('}')) {
+            depth--;
+            return result;
+        }
+        do {
+            skipWhitespace();
+            if (position == text.length() || text.charAt(position) != '"') {
+                throw error("member name expected");
+            }
+            String name = readString();
+            skipWhitespace();
+            if (!consume(':')) {
+                throw error("':' expected");
+            }
+            result.put(name, readValue());
+            skipWhitespace();
+        } while (consume(','));
+        if (!consume('}')) {
+            throw error("'}' expected");
+        }
+        depth--;
+        return result;
+    }
+
+    /**
+     * Reads an array, starting at its opening bracket.
+     */
+    private List<Object> readArray() throws FormatException {
+        List<Object> result = new ArrayList<>();
+        enter();
+        position++;
+        skipWhitespace();
+        if (consume(']')) {
+            depth--;
+            return result;
+        }
+        do {
+            result.add(readValue());
+            skipWhitespace();
+        } while (consume(','));
+        if (!consume(']')) {
+            throw error("']' expected");
+        }
+        depth--;
+        return result;
+    }
+
+    /**
+     * Starts reading an array or object, one level deeper.
+     *
+     * @throws FormatException
+     *             if that is more than MAX_DEPTH levels deep
+     */
+    private void enter() throws FormatException {
+        if (depth == MAX_DEPTH) {
+            throw error("arrays and objects nested more than " + MAX_DEPTH
+                    + " deep");
+        }
+        depth++;
+    }
+
+    /**
+     * Reads a string, starting at its opening quote.
+     */
+    private String readString() throws FormatException {
+        StringBuilder result = new StringBuilder();
+        position++;
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return result.toString();
+            }
+            if (c != '\\') {
+                result.append(c);
+                continue;
+            }
+            if (position == text.length()) {
+                break;
+            }
+            char escaped = text.charAt(position++);
+            switch (escaped) {
+            case 'b':
+                result.append('\b');
+                break;
+            case 'f':
+                result.append('\f');
+                break;
+            case 'n':
+                result.append('\n');
+                break;
+            case 'r':
+                result.append('\r');
+                break;
+            case 't':
+                result.append('\t');
+                break;
+            case 'u':
+                if (position + 4 > text.length()) {
+                    throw error("invalid unicode escape");
+                }
+                try {
+                    result.append((char) Integer.parseInt(text.substring(
+                            position, position + 4), 16));
+                } catch (NumberFormatException e) {
+                    throw error("invalid unicode escape");
+                }
+                position += 4;
+                break;
+            default:
+                result.append(escaped);
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    /**
+     * Reads an integer, which has no leading zeros and fits in a long.
+     */
+    private Long readNumber() throws FormatException {
+        int start = position;
+        if (position < text.length() && text.charAt(position) == '-') {
+            position++;
+        }
+        int digits = position;
+        while (position < text.length() && text.charAt(position) >= '0'
+                && text.charAt(position) <= '9') {
+            position++;
+        }
+        if (position - digits > 1 && text.charAt(digits) == '0') {
+            throw error("integer without leading zeros expected");
+        }
+        if (position < text.length() && ".eE".indexOf(text.charAt(
+                position)) >= 0) {
+            throw error("only integers are supported");
+        }
+        try {
+            return Long.parseLong(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            throw error("integer expected");
+        }
+    }
+
+    /**
+     * Reads the given literal, returning the given value.
+     */
+    private Object readLiteral(String literal, Object value)
+            throws FormatException {
+        if (!text.startsWith(literal, position)) {
+            throw error("'" + literal + "' expected");
+        }
+        position += literal.length();
+        return value;
+    }
+
+    /**
+     * Consumes the next character if it is the given character, returning
+     * true iff it was.
+     */
+    private boolean consume(char c) {
+        if (position < text.length() && text.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Advances past any whitespace.
+     */
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text
+                .charAt(position))) {
+            position++;
+        }
+    }
+
+    /**
+     * Returns an exception describing an error at the current position.
+     */
+    private FormatException error(String message) {
+        return new FormatException("Character " + position + ": " + message
+                + ".");
+    }
+
+}
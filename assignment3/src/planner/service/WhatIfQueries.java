@@ -0,0 +1,308 @@
+package planner.service;
+
+import planner.*;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>
+ * Answers many concurrent what-if queries about the allocation of events to
+ * the venues of one venue network: whether an event could be added at a
+ * venue, and which venues could host an event.
+ * </p>
+ *
+ * <p>
+ * Queries are answered from an immutable snapshot of the current allocation
+ * and its traffic. Publishing a new allocation replaces the snapshot with an
+ * atomic write, so queries never block an update and an update never waits
+ * for queries; each query sees the snapshot current when it started.
+ * </p>
+ *
+ * <p>
+ * Each query runs as a task of its own. On a runtime with virtual threads
+ * every task gets its own virtual thread, so that a burst of queries does
+ * not queue behind a fixed number of workers; otherwise the tasks share a
+ * pool with a thread per processor.
+ * </p>
+ */
+public class WhatIfQueries {
+
+    // the venues that events are allocated to
+    private final VenueNetwork network;
+    // the allocation and traffic that queries are answered from
+    private final AtomicReference<Snapshot> snapshot;
+    // the threads which run the queries
+    private final ExecutorService executor;
+    // whether executor gives each query its own virtual thread
+    private final boolean virtualThreads;
+    // the venues of the network, for checking membership
+    private final Set<Venue> venues;
+
+    // the number of queries made
+    private final AtomicLong queries;
+
+    /*
+     * invariant:
+     *
+     * all fields != null && snapshot.get() != null &&
+     *
+     * venues holds the venues of network
+     */
+
+    /**
+     * Creates a query executor for the given network, with no events
+     * allocated.
+     *
+     * @param network
+     *            the venues that events are allocated to
+     * @throws NullPointerException
+     *             if network is null
+     */
+    public WhatIfQueries(VenueNetwork network) {
+        if (network == null) {
+            throw new NullPointerException("network cannot be null");
+        }
+        this.network = network;
+        venues = new HashSet<>(network.getVenues());
+        snapshot = new AtomicReference<>(new Snapshot(
+                Collections.<Event, Venue>emptyMap()));
+        ExecutorService virtual = virtualThreadExecutor();
+        virtualThreads = virtual != null;
+        executor = virtualThreads ? virtual : Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors());
+        queries = new AtomicLong();
+    }
+
+    /**
+     * Returns an executor which starts a new virtual thread for each task, or
+     * null if the runtime has no virtual threads. It is looked up reflectively
+     * so that this class still runs on older runtimes.
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the venues that events are allocated to.
+     *
+     * @return the venue network of the queries
+     */
+    public VenueNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * Returns true iff each query runs on its own virtual thread.
+     *
+     * @return whether the runtime has virtual threads
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Makes the given allocation the one that later queries are answered
+     * from. Queries already running still use the allocation published
+     * before.
+     *
+     * @param allocation
+     *            a safe allocation of events to venues of the network, which
+     *            is copied
+     * @throws NullPointerException
+     *             if allocation is null or contains null
+     * @throws IllegalArgumentException
+     *             if a venue of the allocation is not in the network, or
+     *             cannot host its event
+     */
+    public void publish(Map<Event, Venue> allocation) {
+        snapshot.set(new Snapshot(allocation));
+    }
+
+    /**
+     * Returns the allocation that queries are currently answered from.
+     *
+     * @return an unmodifiable copy of the last allocation published
+     */
+    public Map<Event, Venue> getAllocation() {
+        return snapshot.get().allocation;
+    }
+
+    /**
+     * Asks whether the given event could be added to the current allocation
+     * at the given venue: the event is not allocated, the venue is free and
+     * can host it, and the traffic stays safe.
+     *
+     * @param event
+     *            the event to add
+     * @param venue
+     *            the venue to add it at
+     * @return a future for whether the event could be added at the venue
+     * @throws NullPointerException
+     *             if event or venue is null
+     */
+    public Future<Boolean> canAdd(final Event event, final Venue venue) {
+        if (event == null || venue == null) {
+            throw new NullPointerException("Parameters cannot be null");
+        }
+        queries.incrementAndGet();
+        final Snapshot current = snapshot.get();
+        return submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return !current.allocation.containsKey(event)
+                        && venues.contains(venue)
+                        && current.canAdd(event, venue);
+            }
+        });
+    }
+
+    /**
+     * Asks which venues the given event could be added at in the current
+     * allocation.
+     *
+     * @param event
+     *            the event to add
+     * @return a future for the venues that the event could be added at, in
+     *         ascending order of capacity so that the closest fit is first,
+     *         which is empty if the event is already allocated
+     * @throws NullPointerException
+     *             if event is null
+     */
+    public Future<List<Venue>> suggest(final Event event) {
+        if (event == null) {
+            throw new NullPointerException("event cannot be null");
+        }
+        queries.incrementAndGet();
+        final Snapshot current = snapshot.get();
+        return submit(new Callable<List<Venue>>() {
+            @Override
+            public List<Venue> call() {
+                List<Venue> result = new ArrayList<>();
+                if (current.allocation.containsKey(event)) {
+                    return result;
+                }
+                // only the venues large enough for the event are looked at
+                for (Venue venue : network.getVenuesFor(event.getSize())) {
+                    if (current.canAdd(event, venue)) {
+                        result.add(venue);
+                    }
+                }
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Runs the given query on the executor.
+     */
+    private <T> Future<T> submit(final Callable<T> query) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result.complete(query.call());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the number of queries made.
+     *
+     * @return the number of calls to canAdd and suggest
+     */
+    public long getQueries() {
+        return queries.get();
+    }
+
+    /**
+     * Stops the executor from starting any more queries.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * An immutable allocation of events to the venues of the network,
+     * together with its traffic.
+     */
+    private class Snapshot {
+
+        // the allocation of events to venues
+        private final Map<Event, Venue> allocation;
+        // the venues hosting an event
+        private final Set<Venue> used;
+        // the traffic generated by the allocation
+        private final Traffic traffic;
+
+        /*
+         * invariant: all fields != null && used is the set of values of
+         * allocation && traffic is the frozen traffic of the allocation
+         */
+
+        /**
+         * Creates a snapshot of the given allocation.
+         *
+         * @throws NullPointerException
+         *             if allocation is null or contains null
+         * @throws IllegalArgumentException
+         *             if a venue of the allocation is not in the network, or
+         *             cannot host its event
+         */
+        private Snapshot(Map<Event, Venue> allocation) {
+            Traffic total = new Traffic();
+            for (Map.Entry<Event, Venue> entry : allocation.entrySet()) {
+                if (!venues.contains(entry.getValue())) {
+                    throw new IllegalArgumentException("The venue "
+                            + entry.getValue().getName()
+                            + " is not in the network.");
+                }
+                total.addTraffic(entry.getValue().getTraffic(entry
+                        .getKey()));
+            }
+            this.allocation = Collections.unmodifiableMap(new HashMap<>(
+                    allocation));
+            used = Collections.unmodifiableSet(new HashSet<>(allocation
+                    .values()));
+            traffic = total.freeze();
+        }
+
+        /**
+         * Returns true iff the free venue can host the event without making
+         * the traffic unsafe.
+         *
+         * @require event != null && venue != null && venue is in the network
+         *          && event is not allocated
+         */
+        private boolean canAdd(Event event, Venue venue) {
+            if (used.contains(venue) || !venue.canHost(event)) {
+                return false;
+            }
+            // the current traffic is safe, so only the corridors of the
+            // event can become unsafe
+            Traffic added = venue.getTraffic(event);
+            Traffic result = new Traffic();
+            for (Corridor corridor : added.getCorridorsWithTraffic()) {
+                result.updateTraffic(corridor, traffic.getTraffic(corridor)
+                        + added.getTraffic(corridor));
+            }
+            return result.isSafe();
+        }
+
+    }
+
+}
@@ -0,0 +1,534 @@
+package planner;
+
+import org.junit.Assert;
+import org.junit.Test;
+import planner.cli.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import javax.management.*;
+
+/**
+ * Tests for the strategies of the {@link Allocator} implementation class,
+ * checked against the exhaustive search of {@link ReferenceAllocator}.
+ */
+public class AllocatorTest {
+
+    /**
+     * Test that every exact strategy, and the enumeration behind
+     * allocate(List, List), finds a safe allocation exactly when the
+     * reference exhaustive search does, on small random problems.
+     */
+    @Test(timeout = 20000)
+    public void testStrategiesAgree() {
+        Random random = new Random(2002);
+        for (int round = 0; round < 200; round++) {
+            List<Venue> venues = randomVenues(random, 3 + random.nextInt(5),
+                    1 + random.nextInt(4));
+            List<Event> events = randomEvents(random, 1 + random.nextInt(
+                    venues.size()));
+            Map<Event, Venue> expected = ReferenceAllocator.allocate(
+                    new ArrayList<>(events), new ArrayList<>(venues));
+            Assert.assertEquals("round " + round, expected == null, Allocator
+                    .allocate(new ArrayList<>(events), new ArrayList<>(
+                            venues)) == null);
+
+            for (AllocationStrategy strategy : AllocationStrategy.values()) {
+                if (strategy == AllocationStrategy.LOCAL_SEARCH) {
+                    // can't tell that there is no safe allocation
+                    continue;
+                }
+                for (int threads : new int[] { 1, 3 }) {
+                    AllocationOptions options = new AllocationOptions();
+                    options.setStrategy(strategy);
+                    options.setThreads(threads);
+                    Map<Event, Venue> allocation = Allocator.allocate(events,
+                            venues, options);
+                    Assert.assertEquals(strategy + " on round " + round,
+                            expected == null, allocation == null);
+                    if (allocation != null) {
+                        checkSafeAllocation(events, allocation);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that skipping venues equivalent to ones already tried doesn't miss
+     * any safe allocations.
+     */
+    @Test(timeout = 20000)
+    public void testEquivalentVenues() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            // venues that only differ from some other venues by name
+            List<Venue> venues = new ArrayList<>();
+            for (Venue venue : randomVenues(random, 2 + random.nextInt(3),
+                    1 + random.nextInt(3))) {
+                int copies = 1 + random.nextInt(3);
+                for (int copy = 0; copy < copies; copy++) {
+                    venues.add(new Venue(venue.getName() + "." + copy, venue
+                            .getCapacity(), venue.getCapacityTraffic()));
+                }
+            }
+            Collections.shuffle(venues, random);
+            List<Event> events = randomEvents(random, 1 + random.nextInt(
+                    Math.min(venues.size(), 5)));
+            Map<Event, Venue> expected = ReferenceAllocator.allocate(
+                    new ArrayList<>(events), new ArrayList<>(venues));
+            Map<Event, Venue> allocation = Allocator.allocate(events, venues,
+                    new AllocationOptions());
+            Assert.assertEquals("round " + round, expected == null,
+                    allocation == null);
+            if (allocation != null) {
+                checkSafeAllocation(events, allocation);
+            }
+        }
+    }
+
+    /**
+     * Test that metrics are only returned when they are collected.
+     */
+    @Test
+    public void testMetrics() throws JMException {
+        Random random = new Random(3);
+        List<Venue> venues = randomVenues(random, 6, 3);
+        List<Event> events = randomEvents(random, 4);
+        AllocationOptions options = new AllocationOptions();
+        Assert.assertNull(Allocator.search(events, venues, options)
+                .getMetrics());
+
+        options.setCollectMetrics(true);
+        AllocationResult result = Allocator.search(events, venues, options);
+        SearchMetrics metrics = result.getMetrics();
+        Assert.assertEquals(Allocator.allocate(events, venues,
+                new AllocationOptions()), result.getAllocation());
+        Assert.assertTrue(metrics.getNodes() > 0);
+        Assert.assertEquals(result.getAllocation() == null ? 0 : events
+                .size(), result.getAllocation() == null ? 0 : metrics
+                        .getMaxDepth());
+        Assert.assertTrue(metrics.getSearchNanos() >= 0);
+        Assert.assertTrue(ManagementFactory.getPlatformMBeanServer()
+                .isRegistered(new ObjectName(AllocatorMetrics.NAME)));
+    }
+
+    /**
+     * Test that a search stops once its node budget or time runs out or it is
+     * cancelled, with a safe partial allocation.
+     */
+    @Test(timeout = 20000)
+    public void testBudgets() {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setEvents(14);
+        generator.setAdversarial(true);
+        generator.setFeasibility(Feasibility.INFEASIBLE);
+        Workload workload = generator.generate();
+        List<Event> events = workload.getEvents();
+
+        AllocationOptions budgeted = new AllocationOptions();
+        budgeted.setNodeBudget(10000);
+        AllocationOptions timed = new AllocationOptions();
+        timed.setThreads(3);
+        timed.setTimeLimit(100, TimeUnit.MILLISECONDS);
+        AllocationOptions cancelled = new AllocationOptions();
+        cancelled.setCancellationToken(new CancellationToken());
+        cancelled.getCancellationToken().cancel();
+
+        for (AllocationOptions options : Arrays.asList(budgeted, timed,
+                cancelled)) {
+            AllocationResult result = Allocator.search(events, workload
+                    .getVenues(), options);
+            Assert.assertEquals(AllocationStatus.BUDGET_EXHAUSTED, result
+                    .getStatus());
+            Assert.assertNull(result.getAllocation());
+            Map<Event, Venue> partial = result.getPartialAllocation();
+            List<Event> placed = new ArrayList<>(partial.keySet());
+            checkSafeAllocation(placed, partial);
+        }
+        Assert.assertEquals(events.size() - 1, Allocator.search(events,
+                workload.getVenues(), budgeted).getPartialAllocation()
+                .size());
+    }
+
+    /**
+     * Test that the status tells feasible and infeasible problems apart.
+     */
+    @Test
+    public void testStatus() {
+        Random random = new Random(11);
+        for (int round = 0; round < 50; round++) {
+            List<Venue> venues = randomVenues(random, 5, 3);
+            List<Event> events = randomEvents(random, 1 + random.nextInt(5));
+            Map<Event, Venue> expected = ReferenceAllocator.allocate(
+                    new ArrayList<>(events), new ArrayList<>(venues));
+            AllocationResult result = Allocator.search(events, venues,
+                    new AllocationOptions());
+            Assert.assertEquals(expected == null
+                    ? AllocationStatus.INFEASIBLE : AllocationStatus.FOUND,
+                    result.getStatus());
+            if (expected != null) {
+                Assert.assertEquals(result.getAllocation(), result
+                        .getPartialAllocation());
+            }
+        }
+    }
+
+    /**
+     * Test that the checks made before searching explain why there is no safe
+     * allocation, without searching.
+     */
+    @Test
+    public void testInfeasibility() {
+        Random random = new Random(5);
+        AllocationOptions options = new AllocationOptions();
+        options.setCollectMetrics(true);
+
+        // events that need more venues than can host them
+        for (int round = 0; round < 100; round++) {
+            List<Venue> venues = randomVenues(random, 1 + random.nextInt(6),
+                    2);
+            List<Event> events = randomEvents(random, 1 + random.nextInt(8));
+            AllocationResult result = Allocator.search(events, venues,
+                    options);
+            Infeasibility infeasibility = result.getInfeasibility();
+            if (infeasibility != null && infeasibility.getCorridors()
+                    .isEmpty()) {
+                Assert.assertEquals(AllocationStatus.INFEASIBLE, result
+                        .getStatus());
+                Assert.assertEquals(0, result.getMetrics().getNodes());
+                Set<Venue> hosts = new HashSet<>();
+                for (Event event : infeasibility.getEvents()) {
+                    for (Venue venue : venues) {
+                        if (venue.canHost(event)) {
+                            hosts.add(venue);
+                        }
+                    }
+                }
+                Assert.assertEquals(infeasibility.getEvents().size() - 1,
+                        hosts.size());
+            }
+        }
+
+        // a corridor that every venue uses, which can't carry every event
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setFeasibility(Feasibility.INFEASIBLE);
+        Workload workload = generator.generate();
+        AllocationResult result = Allocator.search(workload.getEvents(),
+                workload.getVenues(), options);
+        Assert.assertEquals(AllocationStatus.INFEASIBLE, result.getStatus());
+        Assert.assertEquals(0, result.getMetrics().getNodes());
+        Assert.assertEquals(1, result.getInfeasibility().getCorridors()
+                .size());
+        Assert.assertEquals(workload.getEvents(), result.getInfeasibility()
+                .getEvents());
+    }
+
+    /**
+     * Test that splitting a network of many separate corridors into
+     * components finds a safe allocation wherever the events are shared out.
+     */
+    @Test(timeout = 20000)
+    public void testDecomposition() {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setVenues(300);
+        generator.setEvents(150);
+        generator.setLocations(300);
+        generator.setCorridors(300);
+        generator.setCorridorsPerVenue(1);
+        generator.setFeasibility(Feasibility.TIGHT);
+        for (long seed = 0; seed < 3; seed++) {
+            generator.setSeed(seed);
+            Workload workload = generator.generate();
+            for (int threads : new int[] { 1, 3 }) {
+                AllocationOptions options = new AllocationOptions();
+                options.setStrategy(AllocationStrategy.DECOMPOSITION);
+                options.setThreads(threads);
+                AllocationResult result = Allocator.search(workload
+                        .getEvents(), workload.getVenues(), options);
+                Assert.assertEquals(AllocationStatus.FOUND, result
+                        .getStatus());
+                checkSafeAllocation(workload.getEvents(), result
+                        .getAllocation());
+            }
+        }
+    }
+
+    /**
+     * Test that the pseudo-Boolean encoding solves a large problem with many
+     * shared corridors, which backtracking takes far longer on.
+     */
+    @Test(timeout = 20000)
+    public void testPseudoBoolean() {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setSeed(7);
+        generator.setVenues(500);
+        generator.setEvents(200);
+        generator.setLocations(200);
+        generator.setCorridors(300);
+        generator.setCorridorsPerVenue(6);
+        generator.setFeasibility(Feasibility.TIGHT);
+        Workload workload = generator.generate();
+        AllocationOptions options = new AllocationOptions();
+        options.setStrategy(AllocationStrategy.PSEUDO_BOOLEAN);
+        AllocationResult result = Allocator.search(workload.getEvents(),
+                workload.getVenues(), options);
+        Assert.assertEquals(AllocationStatus.FOUND, result.getStatus());
+        checkSafeAllocation(workload.getEvents(), result.getAllocation());
+    }
+
+    /**
+     * Test that reallocating after an event changes finds a safe allocation
+     * exactly when searching from scratch does, and that removing an event
+     * moves no other event.
+     */
+    @Test(timeout = 20000)
+    public void testReallocate() {
+        Random random = new Random(38);
+        for (int round = 0; round < 100; round++) {
+            List<Venue> venues = randomVenues(random, 3 + random.nextInt(5),
+                    1 + random.nextInt(4));
+            VenueNetwork network = new VenueNetwork(venues);
+            List<Event> events = randomEvents(random, 1 + random.nextInt(
+                    venues.size()));
+            AllocationOptions options = new AllocationOptions();
+            Map<Event, Venue> previous = Allocator.allocate(events, network,
+                    options);
+            if (previous == null) {
+                continue;
+            }
+
+            List<Event> changed = new ArrayList<>(events);
+            int index = random.nextInt(changed.size());
+            if (round % 2 == 0) {
+                Event event = changed.get(index);
+                changed.set(index, new Event(event.getName(), event.getSize()
+                        + 1 + random.nextInt(20)));
+            } else {
+                changed.add(new Event("added", 1 + random.nextInt(50)));
+            }
+            Map<Event, Venue> expected = Allocator.allocate(changed, network,
+                    options);
+            AllocationResult result = Allocator.reallocate(changed, network,
+                    previous, options);
+            Assert.assertEquals("round " + round, expected == null, result
+                    .getAllocation() == null);
+            if (expected != null) {
+                checkSafeAllocation(changed, result.getAllocation());
+            }
+
+            changed = new ArrayList<>(events);
+            changed.remove(index);
+            result = Allocator.reallocate(changed, network, previous,
+                    options);
+            for (Event event : changed) {
+                Assert.assertEquals(previous.get(event), result
+                        .getAllocation().get(event));
+            }
+        }
+    }
+
+    /**
+     * Test that local search finds a safe allocation of small problems that
+     * have one, and otherwise runs out of budget with a safe partial
+     * allocation.
+     */
+    @Test(timeout = 20000)
+    public void testLocalSearch() {
+        Random random = new Random(39);
+        for (int round = 0; round < 100; round++) {
+            List<Venue> venues = randomVenues(random, 3 + random.nextInt(5),
+                    1 + random.nextInt(4));
+            List<Event> events = randomEvents(random, 1 + random.nextInt(
+                    venues.size()));
+            Map<Event, Venue> expected = ReferenceAllocator.allocate(
+                    new ArrayList<>(events), new ArrayList<>(venues));
+
+            AllocationOptions options = new AllocationOptions();
+            options.setStrategy(AllocationStrategy.LOCAL_SEARCH);
+            options.setThreads(1 + round % 2);
+            options.setSeed(round);
+            options.setNodeBudget(20000);
+            AllocationResult result = Allocator.search(events, venues,
+                    options);
+            if (expected != null) {
+                Assert.assertEquals("round " + round, AllocationStatus.FOUND,
+                        result.getStatus());
+                checkSafeAllocation(events, result.getAllocation());
+            } else {
+                Assert.assertNotEquals(AllocationStatus.FOUND, result
+                        .getStatus());
+                List<Event> placed = new ArrayList<>(result
+                        .getPartialAllocation().keySet());
+                checkSafeAllocation(placed, result.getPartialAllocation());
+            }
+        }
+    }
+
+    /**
+     * Test that remembering the states with no safe allocation, even in a
+     * cache too small to hold them all, doesn't miss any safe allocations,
+     * and saves searching them again.
+     */
+    @Test(timeout = 20000)
+    public void testNogoodCache() {
+        Random random = new Random(40);
+        for (int round = 0; round < 200; round++) {
+            List<Venue> venues = randomVenues(random, 3 + random.nextInt(5),
+                    1 + random.nextInt(4));
+            List<Event> events = randomEvents(random, 1 + random.nextInt(
+                    venues.size()));
+            Map<Event, Venue> expected = ReferenceAllocator.allocate(
+                    new ArrayList<>(events), new ArrayList<>(venues));
+            AllocationOptions options = new AllocationOptions();
+            options.setThreads(1 + round % 2);
+            options.setNogoodCacheSize(round % 3 == 0 ? 2 : 1000);
+            Map<Event, Venue> allocation = Allocator.allocate(events, venues,
+                    options);
+            Assert.assertEquals("round " + round, expected == null,
+                    allocation == null);
+            if (allocation != null) {
+                checkSafeAllocation(events, allocation);
+            }
+        }
+
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setEvents(8);
+        generator.setAdversarial(true);
+        generator.setFeasibility(Feasibility.INFEASIBLE);
+        Workload workload = generator.generate();
+        AllocationOptions options = new AllocationOptions();
+        options.setCollectMetrics(true);
+        SearchMetrics plain = Allocator.search(workload.getEvents(), workload
+                .getVenues(), options).getMetrics();
+        options.setNogoodCacheSize(100000);
+        AllocationResult result = Allocator.search(workload.getEvents(),
+                workload.getVenues(), options);
+        Assert.assertEquals(AllocationStatus.INFEASIBLE, result.getStatus());
+        SearchMetrics cached = result.getMetrics();
+        Assert.assertTrue(cached.getNogoodHits() > 0);
+        Assert.assertTrue(cached.getNogoodBytes() > 0);
+        Assert.assertTrue(cached.getNodes() < plain.getNodes());
+    }
+
+    /**
+     * Test that an allocation is a map from each allocated event to its venue
+     * that agrees with the venue indices it is stored as.
+     */
+    @Test
+    public void testAllocation() {
+        Random random = new Random(42);
+        List<Venue> venues = randomVenues(random, 8, 2);
+        List<Event> events = randomEvents(random, 4);
+        for (AllocationStrategy strategy : AllocationStrategy.values()) {
+            AllocationOptions options = new AllocationOptions();
+            options.setStrategy(strategy);
+            Map<Event, Venue> map = Allocator.allocate(events, venues,
+                    options);
+            if (map == null) {
+                continue;
+            }
+            Allocation allocation = (Allocation) map;
+            Map<Event, Venue> copy = new HashMap<>(allocation);
+            Assert.assertEquals(copy, allocation);
+            Assert.assertEquals(allocation, copy);
+            Assert.assertEquals(copy.hashCode(), allocation.hashCode());
+            for (int e = 0; e < events.size(); e++) {
+                Assert.assertEquals(venues.get(allocation.getVenueIndex(e)),
+                        allocation.get(events.get(e)));
+            }
+            Assert.assertNull(allocation.get(new Event("other", 1)));
+            try {
+                allocation.put(events.get(0), venues.get(0));
+                Assert.fail();
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+        }
+
+        // allocations of the same problem share its index of the events
+        Problem problem = new Problem(events, venues);
+        Allocation first = problem.toMap(new int[] { 0, 1, -1, 2 });
+        Allocation second = problem.toMap(new int[] { 0, 1, -1, 2 });
+        Allocation third = problem.toMap(new int[] { 0, 2, -1, 1 });
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(first.hashCode(), second.hashCode());
+        Assert.assertNotEquals(first, third);
+        Assert.assertEquals(venues.get(2), third.get(events.get(1)));
+        Assert.assertFalse(third.containsKey(events.get(2)));
+        Assert.assertEquals(new HashMap<>(first), second);
+    }
+
+    /**
+     * Test that the given lists are not modified.
+     */
+    @Test
+    public void testInputsUnchanged() {
+        Random random = new Random(1);
+        List<Venue> venues = randomVenues(random, 6, 3);
+        List<Event> events = randomEvents(random, 4);
+        List<Venue> venuesCopy = new ArrayList<>(venues);
+        List<Event> eventsCopy = new ArrayList<>(events);
+
+        Allocator.allocate(events, venues, new AllocationOptions());
+        Allocator.allocate(events, venues);
+
+        Assert.assertEquals(venuesCopy, venues);
+        Assert.assertEquals(eventsCopy, events);
+    }
+
+    /**
+     * Returns venues with random capacities and traffic on a random network
+     * of the given number of corridors.
+     */
+    static List<Venue> randomVenues(Random random, int venueCount,
+            int corridorCount) {
+        List<Corridor> corridors = new ArrayList<>();
+        for (int i = 0; i < corridorCount; i++) {
+            corridors.add(new Corridor(new Location("start" + i),
+                    new Location("end" + i), 5 + random.nextInt(60)));
+        }
+        List<Venue> venues = new ArrayList<>();
+        for (int i = 0; i < venueCount; i++) {
+            int capacity = 5 + random.nextInt(50);
+            Traffic traffic = new Traffic();
+            for (Corridor corridor : corridors) {
+                if (random.nextInt(3) == 0) {
+                    traffic.updateTraffic(corridor, 1 + random.nextInt(Math
+                            .min(capacity, corridor.getCapacity())));
+                }
+            }
+            venues.add(new Venue("v" + i, capacity, traffic));
+        }
+        return venues;
+    }
+
+    /**
+     * Returns the given number of events of random sizes.
+     */
+    static List<Event> randomEvents(Random random, int eventCount) {
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < eventCount; i++) {
+            events.add(new Event("e" + i, 1 + random.nextInt(50)));
+        }
+        return events;
+    }
+
+    /**
+     * Checks that the given allocation is a safe allocation of the events.
+     */
+    static void checkSafeAllocation(List<Event> events,
+            Map<Event, Venue> allocation) {
+        Assert.assertEquals(new HashSet<>(events), allocation.keySet());
+        Assert.assertEquals(events.size(), new HashSet<>(allocation.values())
+                .size());
+        Traffic traffic = new Traffic();
+        for (Event event : events) {
+            Venue venue = allocation.get(event);
+            Assert.assertTrue(venue.canHost(event));
+            traffic.addTraffic(venue.getTraffic(event));
+        }
+        Assert.assertTrue(traffic.isSafe());
+    }
+}
@@ -0,0 +1,157 @@
+package planner;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests for the {@link ConcurrentAllocation} class.
+ */
+public class ConcurrentAllocationTest {
+
+    /**
+     * Test that threads adding and removing events at the same time never
+     * make the traffic of a concurrent allocation unsafe, and that its
+     * corridor counters match the events left allocated.
+     */
+    @Test(timeout = 20000)
+    public void testConcurrentAllocation() throws Exception {
+        Random random = new Random(49);
+        final List<Venue> venues = AllocatorTest.randomVenues(random, 30, 4);
+        final List<Event> events = AllocatorTest.randomEvents(random, 60);
+        final ConcurrentAllocation allocation = new ConcurrentAllocation(
+                new VenueNetwork(venues));
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final Random local = new Random(t);
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 20000; i++) {
+                        Event event = events.get(local.nextInt(events
+                                .size()));
+                        if (local.nextInt(3) == 0) {
+                            allocation.removeEvent(event);
+                        } else {
+                            allocation.addEvent(event, venues.get(local
+                                    .nextInt(venues.size())));
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<Event, Venue> result = allocation.getAllocation();
+        Assert.assertFalse(result.isEmpty());
+        AllocatorTest.checkSafeAllocation(new ArrayList<>(result.keySet()),
+                result);
+        Traffic traffic = new Traffic();
+        for (Map.Entry<Event, Venue> entry : result.entrySet()) {
+            Assert.assertSame(entry.getValue(), allocation.getVenue(entry
+                    .getKey()));
+            traffic.addTraffic(entry.getValue().getTraffic(entry.getKey()));
+        }
+        for (Venue venue : venues) {
+            for (Corridor corridor : venue.getCapacityTraffic()
+                    .getCorridorsWithTraffic()) {
+                Assert.assertEquals(traffic.getTraffic(corridor), allocation
+                        .getTraffic(corridor));
+            }
+        }
+    }
+
+    /**
+     * Test that of two additions contending for the last of a corridor's
+     * capacity exactly one succeeds, and that an addition which fails while
+     * a competing addition is rolled back succeeds when it is retried.
+     */
+    @Test(timeout = 20000)
+    public void testContention() throws Exception {
+        Corridor shared = new Corridor(new Location("a"), new Location("b"),
+                100);
+        Corridor full = new Corridor(new Location("b"), new Location("c"),
+                10);
+        Venue venue1 = new Venue("v1", 60, traffic(shared, 60, null, 0));
+        Venue venue2 = new Venue("v2", 60, traffic(shared, 60, null, 0));
+        Venue blocked = new Venue("v3", 60, traffic(shared, 60, full, 20));
+        final ConcurrentAllocation allocation = new ConcurrentAllocation(
+                new VenueNetwork(Arrays.asList(venue1, venue2, blocked)));
+        Event event1 = new Event("e1", 60);
+        Event event2 = new Event("e2", 60);
+
+        for (int round = 0; round < 500; round++) {
+            boolean[] added = race(allocation, event1, venue1, event2,
+                    venue2);
+            Assert.assertTrue("round " + round, added[0] != added[1]);
+            Assert.assertEquals(60, allocation.getTraffic(shared));
+            allocation.removeEvent(added[0] ? event1 : event2);
+            Assert.assertEquals(0, allocation.getTraffic(shared));
+        }
+
+        for (int round = 0; round < 500; round++) {
+            boolean[] added = race(allocation, event1, blocked, event2,
+                    venue2);
+            // the blocked venue generates too much traffic on the full
+            // corridor, so only its reservation on the shared one can get in
+            // the way
+            Assert.assertFalse(added[0]);
+            if (!added[1]) {
+                Assert.assertTrue(allocation.addEvent(event2, venue2));
+            }
+            Assert.assertEquals(60, allocation.getTraffic(shared));
+            Assert.assertEquals(0, allocation.getTraffic(full));
+            Assert.assertTrue(allocation.removeEvent(event2));
+        }
+    }
+
+    /**
+     * Adds the two events to their venues from two threads started at the
+     * same time, and returns whether each was added.
+     */
+    private static boolean[] race(final ConcurrentAllocation allocation,
+            final Event event1, final Venue venue1, final Event event2,
+            final Venue venue2) throws Exception {
+        final CyclicBarrier start = new CyclicBarrier(2);
+        final AtomicBoolean added1 = new AtomicBoolean();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    start.await();
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    return;
+                }
+                added1.set(allocation.addEvent(event1, venue1));
+            }
+        };
+        thread.start();
+        start.await();
+        boolean added2 = allocation.addEvent(event2, venue2);
+        thread.join();
+        return new boolean[] { added1.get(), added2 };
+    }
+
+    /**
+     * Returns the traffic of the given amounts on the given corridors, where
+     * a null corridor is left out.
+     */
+    private static Traffic traffic(Corridor corridor1, int amount1,
+            Corridor corridor2, int amount2) {
+        Traffic result = new Traffic();
+        result.updateTraffic(corridor1, amount1);
+        if (corridor2 != null) {
+            result.updateTraffic(corridor2, amount2);
+        }
+        return result;
+    }
+
+}
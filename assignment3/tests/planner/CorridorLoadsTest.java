@@ -0,0 +1,68 @@
+package planner;
+
+import org.junit.Assert;
+import org.junit.Test;
+import planner.cli.*;
+
+import java.util.*;
+
+/**
+ * Tests for the {@link CorridorLoads} class.
+ */
+public class CorridorLoadsTest {
+
+    /**
+     * Test that closing part of a corridor only flags the corridor if the
+     * allocation no longer fits it, and that reallocating with the reduced
+     * capacity finds an allocation that does.
+     */
+    @Test(timeout = 20000)
+    public void testCapacityOverrides() {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setVenues(60);
+        generator.setEvents(30);
+        generator.setSeed(46);
+        Workload workload = generator.generate();
+        VenueNetwork network = new VenueNetwork(workload.getVenues());
+        Map<Event, Venue> allocation = Allocator.allocate(workload
+                .getEvents(), network, new AllocationOptions());
+        Assert.assertNotNull(allocation);
+        CorridorLoads loads = new CorridorLoads(network, allocation);
+
+        Corridor busiest = null;
+        for (Venue venue : allocation.values()) {
+            for (Corridor corridor : venue.getCapacityTraffic()
+                    .getCorridorsWithTraffic()) {
+                if (busiest == null || loads.getLoad(corridor) > loads
+                        .getLoad(busiest)) {
+                    busiest = corridor;
+                }
+            }
+        }
+        int load = (int) loads.getLoad(busiest);
+        CapacityOverrides overrides = new CapacityOverrides();
+        overrides.setCapacity(busiest.getStart(), busiest.getEnd(), load);
+        Assert.assertTrue(loads.getUnsafeCorridors(overrides).isEmpty());
+        overrides.setCapacity(busiest.getStart(), busiest.getEnd(), load / 2);
+        Assert.assertEquals(Collections.singleton(busiest), loads
+                .getUnsafeCorridors(overrides));
+
+        VenueNetwork closed = network.withOverrides(overrides);
+        Assert.assertEquals(load / 2, closed.getCapacity(busiest));
+        Assert.assertEquals(busiest.getCapacity(), network.getCapacity(
+                busiest));
+        AllocationResult result = Allocator.reallocate(workload.getEvents(),
+                closed, allocation, new AllocationOptions());
+        if (result.getStatus() == AllocationStatus.FOUND) {
+            CorridorLoads repaired = new CorridorLoads(closed, result
+                    .getAllocation());
+            Assert.assertTrue(repaired.getUnsafeCorridors(overrides)
+                    .isEmpty());
+            Assert.assertTrue(repaired.getLoad(busiest) <= load / 2);
+        } else {
+            Assert.assertEquals(AllocationStatus.INFEASIBLE, result
+                    .getStatus());
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package planner;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Tests for the {@link EventReader} class.
+ */
+public class EventReaderTest {
+
+    // an event description
+    private final static String CONCERT = "Concert\n120\n\n";
+    // an event with the same name as CONCERT but a different size
+    private final static String SMALL_CONCERT = "Concert\n60\n\n";
+    // another event description
+    private final static String FAIR = "Fair\n20\n\n";
+
+    /**
+     * Test that the events of a well-formed file are read in order.
+     */
+    @Test
+    public void testRead() throws IOException, FormatException {
+        Assert.assertEquals(Arrays.asList(new Event("Concert", 120),
+                new Event("Fair", 20), new Event("Concert", 60)), read(CONCERT
+                + FAIR + SMALL_CONCERT));
+    }
+
+    /**
+     * Test that an empty file has no events.
+     */
+    @Test
+    public void testEmptyFile() throws IOException, FormatException {
+        Assert.assertTrue(read("").isEmpty());
+    }
+
+    /**
+     * Test that malformed lines are rejected with the number of the line.
+     */
+    @Test
+    public void testMalformed() throws IOException {
+        checkRejected(CONCERT + "Fair\ntwenty\n\n", "Line 5");
+        checkRejected(CONCERT + "Fair\n0\n\n", "Line 5");
+        checkRejected(CONCERT + "Fair\n 20\n\n", "Line 5");
+        checkRejected(CONCERT + "\n20\n\n", "Line 4");
+        checkRejected(CONCERT + "Fair\n20\nextra\n", "Line 6");
+        checkRejected(CONCERT + "Fair\n20\n", "empty line expected");
+    }
+
+    /**
+     * Test that a file describing the same event twice is rejected.
+     */
+    @Test
+    public void testDuplicateEvents() throws IOException {
+        checkRejected(CONCERT + FAIR + CONCERT, "duplicate event");
+    }
+
+    /**
+     * Checks that reading a file with the given contents throws a
+     * FormatException whose message contains the given text.
+     */
+    private static void checkRejected(String contents, String message)
+            throws IOException {
+        try {
+            read(contents);
+            Assert.fail("A malformed file was read: " + contents);
+        } catch (FormatException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(
+                    message));
+        }
+    }
+
+    /**
+     * Returns the events read from a file with the given contents.
+     */
+    private static List<Event> read(String contents) throws IOException,
+            FormatException {
+        Path file = Files.createTempFile("events", ".txt");
+        try {
+            Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+            return EventReader.read(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
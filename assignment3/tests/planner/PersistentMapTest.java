@@ -0,0 +1,103 @@
+package planner;
+
+import org.junit.Assert;
+import org.junit.Test;
+import java.util.*;
+
+/**
+ * Tests for the {@link PersistentMap} implementation class.
+ */
+public class PersistentMapTest {
+
+    /**
+     * A key with a chosen hash code, for forcing hash collisions.
+     */
+    private static class Key {
+        private int hash;
+        private int id;
+
+        Key(int hash, int id) {
+            this.hash = hash;
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Key && ((Key) object).id == id;
+        }
+    }
+
+    /**
+     * Test that adding and removing mappings does not change the original.
+     */
+    @Test
+    public void testOriginalUnchanged() {
+        PersistentMap<String, Integer> empty = PersistentMap.empty();
+        PersistentMap<String, Integer> one = empty.plus("a", 1);
+        PersistentMap<String, Integer> two = one.plus("b", 2);
+        PersistentMap<String, Integer> changed = two.plus("a", 3);
+        PersistentMap<String, Integer> removed = changed.minus("b");
+
+        Assert.assertEquals(0, empty.size());
+        Assert.assertEquals(Collections.singletonMap("a", 1), one);
+        Assert.assertEquals(2, two.size());
+        Assert.assertEquals((Integer) 1, two.get("a"));
+        Assert.assertEquals((Integer) 3, changed.get("a"));
+        Assert.assertEquals(Collections.singletonMap("a", 3), removed);
+        Assert.assertNull(removed.get("b"));
+        Assert.assertSame(two, two.plus("b", 2));
+        Assert.assertSame(two, two.minus("c"));
+    }
+
+    /**
+     * Test that every version of the map agrees with a HashMap after random
+     * additions and removals, including keys whose hash codes collide.
+     */
+    @Test
+    public void testRandomVersions() {
+        Random random = new Random(2002);
+        for (int hashes : new int[] { 4, 1024, Integer.MAX_VALUE }) {
+            PersistentMap<Key, Integer> map = PersistentMap.empty();
+            Map<Key, Integer> expected = new HashMap<>();
+            List<PersistentMap<Key, Integer>> versions = new ArrayList<>();
+            List<Map<Key, Integer>> copies = new ArrayList<>();
+
+            for (int i = 0; i < 5000; i++) {
+                int id = random.nextInt(400);
+                Key key = new Key(random.nextInt(hashes) ^ (id % 3), id);
+                if (random.nextInt(3) == 0) {
+                    map = map.minus(key);
+                    expected.remove(key);
+                } else {
+                    int value = random.nextInt(4);
+                    map = map.plus(key, value);
+                    expected.put(key, value);
+                }
+                Assert.assertEquals(expected.size(), map.size());
+                if (i % 250 == 0) {
+                    versions.add(map);
+                    copies.add(new HashMap<>(expected));
+                }
+            }
+
+            Assert.assertEquals(expected, map);
+            Assert.assertEquals(expected.hashCode(), map.hashCode());
+            for (int i = 0; i < versions.size(); i++) {
+                Assert.assertEquals(copies.get(i), versions.get(i));
+            }
+        }
+    }
+
+    /**
+     * Test that null keys and values are rejected.
+     */
+    @Test(expected = NullPointerException.class)
+    public void testNullValue() {
+        PersistentMap.<String, Integer>empty().plus("a", null);
+    }
+}
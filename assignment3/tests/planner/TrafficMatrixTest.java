@@ -0,0 +1,120 @@
+package planner;
+
+import org.junit.Assert;
+import org.junit.Test;
+import planner.cli.*;
+
+import java.util.*;
+
+/**
+ * Tests for the {@link TrafficMatrix} class.
+ */
+public class TrafficMatrixTest {
+
+    /**
+     * Test that the off-heap traffic matrix gives the same traffic and loads
+     * as the venues, and that its rows cannot be read once it is closed.
+     */
+    @Test
+    public void testTrafficMatrix() {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setVenues(40);
+        generator.setEvents(20);
+        generator.setSeed(48);
+        Workload workload = generator.generate();
+        VenueNetwork network = new VenueNetwork(workload.getVenues());
+        Map<Event, Venue> allocation = Allocator.allocate(workload
+                .getEvents(), network, new AllocationOptions());
+        Assert.assertNotNull(allocation);
+
+        TrafficMatrix matrix = new TrafficMatrix(workload.getVenues());
+        Assert.assertTrue(matrix.getBytes() > 0);
+        for (Map.Entry<Event, Venue> entry : allocation.entrySet()) {
+            final Traffic traffic = new Traffic();
+            Assert.assertTrue(matrix.visitTraffic(entry.getValue(), entry
+                    .getKey(), new TrafficMatrix.Visitor() {
+                        @Override
+                        public boolean visit(Corridor corridor, int amount) {
+                            traffic.updateTraffic(corridor, amount);
+                            return true;
+                        }
+                    }));
+            Assert.assertEquals(entry.getValue().getTraffic(entry.getKey()),
+                    traffic);
+        }
+        CorridorLoads heap = new CorridorLoads(network, allocation);
+        CorridorLoads offHeap = new CorridorLoads(matrix, allocation);
+        for (Venue venue : workload.getVenues()) {
+            for (Corridor corridor : venue.getCapacityTraffic()
+                    .getCorridorsWithTraffic()) {
+                Assert.assertEquals(heap.getLoad(corridor), offHeap.getLoad(
+                        corridor));
+            }
+        }
+
+        matrix.close();
+        Assert.assertTrue(matrix.isClosed());
+        Assert.assertEquals(0, matrix.getBytes());
+        Venue venue = allocation.values().iterator().next();
+        try {
+            matrix.visitTraffic(venue, new Event("e", 1),
+                    new TrafficMatrix.Visitor() {
+                        @Override
+                        public boolean visit(Corridor corridor, int amount) {
+                            return true;
+                        }
+                    });
+            Assert.fail("A closed matrix was used");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    /**
+     * Test that a venue is only found in the matrix if its traffic matches,
+     * even if it has the same name, capacity and hash code as a venue of the
+     * matrix.
+     */
+    @Test
+    public void testHashCollision() {
+        Corridor corridor1 = new Corridor(new Location("a"), new Location("b"),
+                100);
+        Corridor corridor2 = new Corridor(new Location("b"), new Location("c"),
+                100);
+        // find two different traffic records with the same hash code
+        Map<Integer, Traffic> byHash = new HashMap<>();
+        Traffic first = null;
+        Traffic second = null;
+        for (int x = 1; x <= 50 && first == null; x++) {
+            for (int y = 1; y <= 50 && first == null; y++) {
+                Traffic traffic = new Traffic();
+                traffic.updateTraffic(corridor1, x);
+                traffic.updateTraffic(corridor2, y);
+                Traffic other = byHash.put(traffic.hashCode(), traffic);
+                if (other != null) {
+                    first = other;
+                    second = traffic;
+                }
+            }
+        }
+        Assert.assertNotNull(first);
+        Venue venue = new Venue("v", 50, first);
+        Venue collision = new Venue("v", 50, second);
+        Assert.assertEquals(venue.hashCode(), collision.hashCode());
+        Assert.assertNotEquals(venue, collision);
+
+        TrafficMatrix matrix = new TrafficMatrix(Collections.singletonList(
+                venue));
+        Event event = new Event("e", 50);
+        CorridorLoads loads = new CorridorLoads(matrix, Collections
+                .singletonMap(event, venue));
+        Assert.assertEquals(first.getTraffic(corridor1), loads.getLoad(
+                corridor1));
+        try {
+            new CorridorLoads(matrix, Collections.singletonMap(event,
+                    collision));
+            Assert.fail("A venue with different traffic was found");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+}
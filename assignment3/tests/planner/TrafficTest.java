@@ -0,0 +1,83 @@
+package planner;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link Traffic} class.
+ */
+public class TrafficTest {
+
+    // corridors for the traffic records
+    private final Corridor corridor1 = new Corridor(new Location("a"),
+            new Location("b"), 100);
+    private final Corridor corridor2 = new Corridor(new Location("b"),
+            new Location("c"), 50);
+
+    /**
+     * Test that a frozen record is equal to, and has the same hash code as,
+     * an unfrozen record of the same traffic, and not to one of different
+     * traffic.
+     */
+    @Test
+    public void testFrozenEquality() {
+        Traffic traffic = new Traffic();
+        traffic.updateTraffic(corridor1, 30);
+        traffic.updateTraffic(corridor2, 20);
+        Traffic frozen = traffic.freeze();
+
+        Assert.assertTrue(frozen.isFrozen());
+        Assert.assertFalse(traffic.isFrozen());
+        Assert.assertNotSame(traffic, frozen);
+        Assert.assertSame(frozen, frozen.freeze());
+        Assert.assertEquals(traffic, frozen);
+        Assert.assertEquals(frozen, traffic);
+        Assert.assertEquals(traffic.hashCode(), frozen.hashCode());
+        Assert.assertTrue(frozen.sameTraffic(traffic));
+
+        // the frozen record does not see later changes to the original
+        traffic.updateTraffic(corridor1, 1);
+        Assert.assertNotEquals(traffic, frozen);
+        // the hash code of an unfrozen record follows its updates
+        Assert.assertEquals(traffic.freeze().hashCode(), traffic.hashCode());
+        Assert.assertEquals(30, frozen.getTraffic(corridor1));
+        traffic.updateTraffic(corridor1, -1);
+        Assert.assertEquals(traffic, frozen);
+        Assert.assertEquals(traffic.hashCode(), frozen.hashCode());
+
+        Assert.assertEquals(new Traffic(), new Traffic().freeze());
+        Assert.assertNotEquals(frozen, new Traffic().freeze());
+    }
+
+    /**
+     * Test that a frozen record cannot be updated, but copies of it can.
+     */
+    @Test
+    public void testFrozenUpdates() {
+        Traffic traffic = new Traffic();
+        traffic.updateTraffic(corridor1, 30);
+        Traffic frozen = traffic.freeze();
+        try {
+            frozen.updateTraffic(corridor1, 5);
+            Assert.fail("A frozen record was updated");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            frozen.addTraffic(traffic);
+            Assert.fail("Traffic was added to a frozen record");
+        } catch (UnsupportedOperationException expected) {
+        }
+        Assert.assertEquals(30, frozen.getTraffic(corridor1));
+
+        Traffic copy = new Traffic(frozen);
+        Assert.assertFalse(copy.isFrozen());
+        copy.addTraffic(frozen);
+        Assert.assertEquals(60, copy.getTraffic(corridor1));
+        Assert.assertEquals(30, frozen.getTraffic(corridor1));
+
+        // a frozen record can still be added to others
+        traffic.addTraffic(frozen);
+        Assert.assertEquals(60, traffic.getTraffic(corridor1));
+    }
+
+}
@@ -0,0 +1,96 @@
+package planner;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Tests for the {@link VenueNetwork} class.
+ */
+public class VenueNetworkTest {
+
+    /**
+     * Test that the corridor queries of a network agree with the traffic of
+     * each venue.
+     */
+    @Test
+    public void testCorridorQueries() {
+        Random random = new Random(45);
+        List<Venue> venues = AllocatorTest.randomVenues(random, 12, 4);
+        List<Event> events = AllocatorTest.randomEvents(random, 5);
+        VenueNetwork network = new VenueNetwork(venues);
+        Map<Event, Venue> allocation = new HashMap<>();
+        for (Event event : events) {
+            for (Venue venue : venues) {
+                if (venue.canHost(event) && !allocation.containsValue(
+                        venue)) {
+                    allocation.put(event, venue);
+                    break;
+                }
+            }
+        }
+
+        Set<Corridor> corridors = new HashSet<>();
+        for (Venue venue : venues) {
+            corridors.addAll(venue.getCapacityTraffic()
+                    .getCorridorsWithTraffic());
+        }
+        for (Corridor corridor : corridors) {
+            List<Venue> using = new ArrayList<>();
+            for (Venue venue : venues) {
+                if (venue.getCapacityTraffic().getTraffic(corridor) > 0) {
+                    using.add(venue);
+                }
+            }
+            Assert.assertEquals(using, network.getVenuesUsing(corridor));
+
+            Map<Event, Integer> expected = new HashMap<>();
+            int total = 0;
+            for (Map.Entry<Event, Venue> entry : allocation.entrySet()) {
+                int traffic = entry.getValue().getTraffic(entry.getKey())
+                        .getTraffic(corridor);
+                if (traffic > 0) {
+                    expected.put(entry.getKey(), traffic);
+                    total += traffic;
+                }
+            }
+            Assert.assertEquals(expected, network.getEventsUsing(corridor,
+                    allocation));
+            Assert.assertEquals(10 - total, network.getHeadroom(corridor, 10,
+                    allocation));
+        }
+        Corridor unused = new Corridor(new Location("a"), new Location("b"),
+                1);
+        Assert.assertTrue(network.getVenuesUsing(unused).isEmpty());
+        Assert.assertEquals(1, network.getHeadroom(unused, 1, allocation));
+    }
+
+    /**
+     * Test that the venues for an event are exactly those that can host it,
+     * the closest fit first.
+     */
+    @Test
+    public void testVenuesFor() {
+        List<Venue> venues = AllocatorTest.randomVenues(new Random(50), 15,
+                3);
+        VenueNetwork network = new VenueNetwork(venues);
+        for (int size = 0; size <= 60; size += 5) {
+            List<Venue> expected = new ArrayList<>();
+            for (Venue venue : venues) {
+                if (venue.getCapacity() >= size) {
+                    expected.add(venue);
+                }
+            }
+            List<Venue> found = network.getVenuesFor(size);
+            Assert.assertEquals(new HashSet<>(expected), new HashSet<>(
+                    found));
+            Assert.assertEquals(expected.size(), found.size());
+            for (int i = 1; i < found.size(); i++) {
+                Assert.assertTrue(found.get(i - 1).getCapacity() <= found
+                        .get(i).getCapacity());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package planner;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Tests for the {@link VenueReader} class.
+ */
+public class VenueReaderTest {
+
+    // a venue description
+    private final static String GABBA = "The Gabba\n200\n"
+            + "l1, l2, 200: 150\nl2, l3, 100: 50\n\n";
+    // a venue with the same name as GABBA but a different capacity
+    private final static String SMALL_GABBA = "The Gabba\n150\n"
+            + "l1, l2, 200: 150\nl2, l3, 100: 50\n\n";
+    // another venue description
+    private final static String TIVOLI = "Tivoli\n50\n\n";
+
+    /**
+     * Test that a file describing the same venue twice is rejected, but one
+     * with different venues of the same name is read.
+     */
+    @Test
+    public void testDuplicateVenues() throws IOException, FormatException {
+        try {
+            read(GABBA + TIVOLI + GABBA);
+            Assert.fail("A duplicate venue was read");
+        } catch (FormatException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(
+                    "duplicate venue"));
+        }
+
+        List<Venue> venues = read(GABBA + TIVOLI + SMALL_GABBA);
+        Assert.assertEquals(3, venues.size());
+        Assert.assertEquals("The Gabba", venues.get(2).getName());
+        Assert.assertEquals(150, venues.get(2).getCapacity());
+        Assert.assertNotEquals(venues.get(0), venues.get(2));
+    }
+
+    /**
+     * Returns the venues read from a file with the given contents.
+     */
+    private static List<Venue> read(String contents) throws IOException,
+            FormatException {
+        Path file = Files.createTempFile("venues", ".txt");
+        try {
+            Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+            return VenueReader.read(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package planner;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link Venue} class.
+ */
+public class VenueTest {
+
+    // a corridor for the traffic of the venues
+    private final Corridor corridor = new Corridor(new Location("a"),
+            new Location("b"), 100);
+
+    /**
+     * Test that the capacity traffic of a venue is a mutable copy, and that
+     * changing it or the traffic the venue was made with changes neither the
+     * venue nor its hash code.
+     */
+    @Test
+    public void testCapacityTrafficCopy() {
+        Traffic traffic = new Traffic();
+        traffic.updateTraffic(corridor, 40);
+        Venue venue = new Venue("Venue", 50, traffic);
+        int hash = venue.hashCode();
+
+        traffic.updateTraffic(corridor, 10);
+        Traffic copy = venue.getCapacityTraffic();
+        Assert.assertFalse(copy.isFrozen());
+        Assert.assertEquals(40, copy.getTraffic(corridor));
+        copy.updateTraffic(corridor, 5);
+        Assert.assertEquals(45, copy.getTraffic(corridor));
+
+        Assert.assertEquals(40, venue.getCapacityTraffic().getTraffic(
+                corridor));
+        Assert.assertNotSame(copy, venue.getCapacityTraffic());
+        Assert.assertEquals(hash, venue.hashCode());
+        Assert.assertTrue(venue.checkInvariant());
+    }
+
+    /**
+     * Test that venues with the same name, capacity and traffic are equal and
+     * have the same hash code, and that the others are not equal.
+     */
+    @Test
+    public void testEquality() {
+        Traffic traffic = new Traffic();
+        traffic.updateTraffic(corridor, 40);
+        Venue venue = new Venue("Venue", 50, traffic);
+        Venue same = new Venue("Venue", 50, traffic.freeze());
+        Assert.assertEquals(venue, same);
+        Assert.assertEquals(venue.hashCode(), same.hashCode());
+
+        Traffic other = new Traffic(traffic);
+        other.updateTraffic(corridor, 1);
+        Assert.assertNotEquals(venue, new Venue("Venue", 50, other));
+        Assert.assertNotEquals(venue, new Venue("Venue", 60, traffic));
+        Assert.assertNotEquals(venue, new Venue("Other", 50, traffic));
+    }
+
+}
@@ -0,0 +1,86 @@
+package planner.cli;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Tests for the {@link BatchAllocator} class.
+ */
+public class BatchAllocatorTest {
+
+    // the venues allocated to
+    private final static String VENUES = "The Gabba\n200\n"
+            + "l1, l2, 200: 150\nl2, l3, 100: 50\n\n"
+            + "Tivoli\n50\n\n"
+            + "Suncorp Stadium\n100\nl0, l1, 100: 25\nl1, l2, 200: 70\n\n";
+
+    /**
+     * Test that a feasible input exits with status 0 and writes the venue of
+     * each event, in the order of the event file.
+     */
+    @Test(timeout = 20000)
+    public void testFeasible() throws IOException {
+        Path venues = write(VENUES);
+        Path events = write("Concert\n150\n\nFair\n40\n\n");
+        Path output = Files.createTempFile("allocation", ".txt");
+        try {
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            Assert.assertEquals(0, BatchAllocator.run(new String[] {
+                    "--output", output.toString(), venues.toString(),
+                    events.toString() }, new PrintStream(err, true)));
+            List<String> lines = Files.readAllLines(output,
+                    StandardCharsets.UTF_8);
+            Assert.assertEquals("Concert (150) at The Gabba (200)", lines
+                    .get(0));
+            Assert.assertTrue(lines.get(1).startsWith("Fair (40) at "));
+            Assert.assertEquals("", lines.get(2));
+            Assert.assertEquals(0, err.size());
+        } finally {
+            Files.delete(venues);
+            Files.delete(events);
+            Files.delete(output);
+        }
+    }
+
+    /**
+     * Test that an input with no safe allocation exits with status 1 and
+     * says so, and that invalid arguments exit with status 3.
+     */
+    @Test(timeout = 20000)
+    public void testInfeasible() throws IOException {
+        Path venues = write(VENUES);
+        // both events need the one venue large enough for them
+        Path events = write("Concert\n150\n\nFestival\n180\n\n");
+        try {
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            Assert.assertEquals(1, BatchAllocator.run(new String[] {
+                    venues.toString(), events.toString() }, new PrintStream(
+                    err, true)));
+            Assert.assertTrue(err.toString().contains(
+                    "There is no safe allocation of the events."));
+
+            err.reset();
+            Assert.assertEquals(3, BatchAllocator.run(new String[] {
+                    venues.toString() }, new PrintStream(err, true)));
+            Assert.assertTrue(err.toString().contains("Usage"));
+        } finally {
+            Files.delete(venues);
+            Files.delete(events);
+        }
+    }
+
+    /**
+     * Returns a new temporary file with the given contents.
+     */
+    private static Path write(String contents) throws IOException {
+        Path file = Files.createTempFile("batch", ".txt");
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+}
@@ -0,0 +1,76 @@
+package planner.cli;
+
+import org.junit.Assert;
+import org.junit.Test;
+import planner.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Tests for the {@link WorkloadGenerator} class.
+ */
+public class WorkloadGeneratorTest {
+
+    /**
+     * Test that generated workloads are only feasible when asked to be.
+     */
+    @Test(timeout = 20000)
+    public void testFeasibility() {
+        for (long seed = 0; seed < 20; seed++) {
+            for (Feasibility feasibility : Feasibility.values()) {
+                for (boolean adversarial : new boolean[] { false, true }) {
+                    WorkloadGenerator generator = new WorkloadGenerator();
+                    generator.setSeed(seed);
+                    generator.setVenues(8);
+                    generator.setEvents(adversarial ? 3 : 5);
+                    generator.setLocations(6);
+                    generator.setCorridors(12);
+                    generator.setCorridorsPerVenue(3);
+                    generator.setFeasibility(feasibility);
+                    generator.setAdversarial(adversarial);
+                    Workload workload = generator.generate();
+
+                    Map<Event, Venue> allocation = Allocator.allocate(
+                            new ArrayList<>(workload.getEvents()),
+                            new ArrayList<>(workload.getVenues()));
+                    Assert.assertEquals(feasibility + " with seed " + seed,
+                            feasibility != Feasibility.INFEASIBLE,
+                            allocation != null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that the same parameters generate the same workload, and that the
+     * written files can be read back in.
+     */
+    @Test
+    public void testRepeatableAndReadable() throws IOException,
+            FormatException {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setSeed(2002);
+        generator.setDistribution(CapacityDistribution.LONG_TAIL);
+        generator.setFeasibility(Feasibility.TIGHT);
+        Workload workload = generator.generate();
+        Assert.assertEquals(workload.getVenues(), generator.generate()
+                .getVenues());
+        Assert.assertEquals(workload.getEvents(), generator.generate()
+                .getEvents());
+
+        File venueFile = File.createTempFile("venues", ".txt");
+        File eventFile = File.createTempFile("events", ".txt");
+        try {
+            workload.write(venueFile.getPath(), eventFile.getPath());
+            Assert.assertEquals(workload.getVenues(), VenueReader.read(
+                    venueFile.getPath()));
+            Assert.assertEquals(workload.getEvents(), EventReader.read(
+                    eventFile.getPath()));
+        } finally {
+            venueFile.delete();
+            eventFile.delete();
+        }
+    }
+
+}
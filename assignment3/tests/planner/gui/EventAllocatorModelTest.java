@@ -0,0 +1,115 @@
+package planner.gui;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import planner.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Tests for the {@link EventAllocatorModel} class.
+ */
+public class EventAllocatorModelTest {
+
+    // the venues loaded into the model
+    private final static String VENUES = "The Gabba\n200\n"
+            + "l1, l2, 200: 150\nl2, l3, 100: 50\n\n"
+            + "Tivoli\n50\n\n"
+            + "Suncorp Stadium\n100\nl0, l1, 100: 25\nl1, l2, 200: 70\n\n";
+
+    // the model under test
+    private EventAllocatorModel model;
+
+    /**
+     * Creates a model with the venues loaded.
+     */
+    @Before
+    public void setUp() throws IOException, FormatException {
+        Path file = Files.createTempFile("venues", ".txt");
+        try {
+            Files.write(file, VENUES.getBytes(StandardCharsets.UTF_8));
+            model = new EventAllocatorModel();
+            model.loadVenues(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test that undo and redo move between allocations and their traffic,
+     * and that a new change after an undo discards what could be redone.
+     */
+    @Test
+    public void testUndoRedo() {
+        Corridor shared = new Corridor(new Location("l1"), new Location("l2"),
+                200);
+        Assert.assertFalse(model.canUndo());
+        Assert.assertFalse(model.undo());
+        Assert.assertFalse(model.canRedo());
+
+        model.addEvent("Concert", "100", "The Gabba");
+        model.addEvent("Match", "50", "Suncorp Stadium");
+        Assert.assertEquals(75 + 35, model.getTraffic(shared));
+        Assert.assertEquals(2, model.getEvents().size());
+
+        Assert.assertTrue(model.undo());
+        Assert.assertEquals(75, model.getTraffic(shared));
+        Assert.assertEquals(1, model.getEvents().size());
+        Assert.assertTrue(model.canRedo());
+
+        Assert.assertTrue(model.redo());
+        Assert.assertEquals(75 + 35, model.getTraffic(shared));
+        Assert.assertEquals(2, model.getEvents().size());
+        Assert.assertFalse(model.canRedo());
+
+        Assert.assertTrue(model.undo());
+        Assert.assertTrue(model.undo());
+        Assert.assertEquals(0, model.getTraffic(shared));
+        Assert.assertTrue(model.getEvents().isEmpty());
+        Assert.assertFalse(model.canUndo());
+
+        // a new change discards the undone changes
+        model.addEvent("Fair", "20", "Tivoli");
+        Assert.assertFalse(model.canRedo());
+        Assert.assertFalse(model.redo());
+        Assert.assertTrue(model.canUndo());
+        Assert.assertEquals(Collections.singletonList(new Event("Fair", 20)),
+                model.getEvents());
+        Assert.assertEquals(0, model.getTraffic(shared));
+    }
+
+    /**
+     * Test that events are added and removed with the same traffic when it
+     * is read from a traffic matrix, and that an unsafe event is refused.
+     */
+    @Test
+    public void testOffHeapTraffic() {
+        Corridor shared = new Corridor(new Location("l1"), new Location("l2"),
+                200);
+        model.setOffHeapTraffic(true);
+        Assert.assertTrue(model.isOffHeapTraffic());
+
+        model.addEvent("Concert", "200", "The Gabba");
+        Assert.assertEquals(150, model.getTraffic(shared));
+        Assert.assertTrue(model.takeChangedCorridors().contains(shared));
+        Assert.assertFalse(model.addEvent(new Event("Match", 100),
+                model.getVenues().get(2)));
+        Assert.assertEquals(150, model.getTraffic(shared));
+
+        model.removeEvent(new Event("Concert", 200));
+        Assert.assertEquals(0, model.getTraffic(shared));
+        Assert.assertTrue(model.addEvent(new Event("Match", 100),
+                model.getVenues().get(2)));
+        Assert.assertEquals(70, model.getTraffic(shared));
+
+        model.setOffHeapTraffic(false);
+        Assert.assertFalse(model.isOffHeapTraffic());
+        Assert.assertTrue(model.undo());
+        Assert.assertEquals(0, model.getTraffic(shared));
+    }
+
+}
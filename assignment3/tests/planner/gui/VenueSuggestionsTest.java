@@ -0,0 +1,97 @@
+package planner.gui;
+
+import org.junit.Assert;
+import org.junit.Test;
+import planner.*;
+
+import java.util.*;
+
+/**
+ * Tests for the {@link VenueSuggestions} class.
+ */
+public class VenueSuggestionsTest {
+
+    /**
+     * Test that suggestions are exactly the free venues that could safely
+     * host an event, closest fit first, and stay so when the traffic on some
+     * corridors changes and they are invalidated.
+     */
+    @Test
+    public void testSuggestions() {
+        Random random = new Random(27);
+        List<Corridor> corridors = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            corridors.add(new Corridor(new Location("start" + i),
+                    new Location("end" + i), 20 + random.nextInt(60)));
+        }
+        List<Venue> venues = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            int capacity = 5 + random.nextInt(60);
+            Traffic traffic = new Traffic();
+            for (Corridor corridor : corridors) {
+                if (random.nextInt(2) == 0) {
+                    traffic.updateTraffic(corridor, 1 + random.nextInt(Math
+                            .min(capacity, corridor.getCapacity())));
+                }
+            }
+            venues.add(new Venue("v" + i, capacity, traffic));
+        }
+        VenueSuggestions suggestions = new VenueSuggestions(
+                new VenueNetwork(venues));
+        Map<Corridor, Integer> traffic = new HashMap<>();
+        Set<Venue> used = new HashSet<>(venues.subList(0, 3));
+
+        checkSuggestions(suggestions, venues, traffic, used);
+        for (int round = 0; round < 10; round++) {
+            Corridor corridor = corridors.get(random.nextInt(corridors
+                    .size()));
+            traffic.put(corridor, random.nextInt(corridor.getCapacity()
+                    + 1));
+            suggestions.invalidate(Collections.singleton(corridor));
+            checkSuggestions(suggestions, venues, traffic, used);
+        }
+    }
+
+    /**
+     * Checks the suggestions for events of every size against the traffic
+     * each venue would generate.
+     */
+    private static void checkSuggestions(VenueSuggestions suggestions,
+            List<Venue> venues, Map<Corridor, Integer> traffic,
+            Set<Venue> used) {
+        for (int size = 1; size <= 70; size++) {
+            Event event = new Event("e", size);
+            Set<Venue> expected = new HashSet<>();
+            for (Venue venue : venues) {
+                if (!used.contains(venue) && venue.canHost(event)
+                        && safe(traffic, venue.getTraffic(event))) {
+                    expected.add(venue);
+                }
+            }
+            List<Venue> suggested = suggestions.suggest(size, traffic, used);
+            Assert.assertEquals("size " + size, expected, new HashSet<>(
+                    suggested));
+            Assert.assertEquals(expected.size(), suggested.size());
+            for (int i = 1; i < suggested.size(); i++) {
+                Assert.assertTrue(suggested.get(i - 1).getCapacity()
+                        <= suggested.get(i).getCapacity());
+            }
+        }
+    }
+
+    /**
+     * Returns true iff the extra traffic fits on top of the given traffic.
+     */
+    private static boolean safe(Map<Corridor, Integer> traffic,
+            Traffic extra) {
+        for (Corridor corridor : extra.getCorridorsWithTraffic()) {
+            Integer load = traffic.get(corridor);
+            if ((load == null ? 0 : load) + extra.getTraffic(corridor)
+                    > corridor.getCapacity()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,85 @@
+package planner.service;
+
+import org.junit.Assert;
+import org.junit.Test;
+import planner.*;
+import planner.cli.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Tests for the {@link AllocationBatcher} class.
+ */
+public class AllocationBatcherTest {
+
+    /**
+     * Test that results which settle a request are reused, and that a search
+     * which stopped early is run again rather than cached as having no
+     * allocation.
+     */
+    @Test(timeout = 20000)
+    public void testOnlySettledResultsCached() throws Exception {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setVenues(20);
+        generator.setEvents(10);
+        generator.setSeed(34);
+        Workload workload = generator.generate();
+        VenueNetwork network = new VenueNetwork(workload.getVenues());
+        List<Event> events = workload.getEvents();
+
+        AllocationBatcher batcher = new AllocationBatcher(network,
+                new AllocationOptions(), 2, 8);
+        try {
+            AllocationResult first = batcher.allocate(events).get();
+            Assert.assertEquals(AllocationStatus.FOUND, first.getStatus());
+            Assert.assertSame(first, batcher.allocate(events).get());
+            Assert.assertEquals(1, batcher.getSearches());
+        } finally {
+            batcher.shutdown();
+        }
+
+        AllocationOptions cancelled = new AllocationOptions();
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        cancelled.setCancellationToken(token);
+        batcher = new AllocationBatcher(network, cancelled, 2, 8);
+        try {
+            for (int i = 1; i <= 2; i++) {
+                AllocationResult result = batcher.allocate(events).get();
+                Assert.assertEquals(AllocationStatus.BUDGET_EXHAUSTED, result
+                        .getStatus());
+                Assert.assertNull(result.getAllocation());
+                Assert.assertEquals(i, batcher.getSearches());
+            }
+        } finally {
+            batcher.shutdown();
+        }
+    }
+
+    /**
+     * Test that a search which cannot be started fails its request, and
+     * does not leave later identical requests waiting on it.
+     */
+    @Test(timeout = 20000)
+    public void testRejectedSearch() throws Exception {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setVenues(10);
+        generator.setEvents(5);
+        generator.setSeed(30);
+        Workload workload = generator.generate();
+        AllocationBatcher batcher = new AllocationBatcher(new VenueNetwork(
+                workload.getVenues()), new AllocationOptions(), 1, 8);
+        batcher.shutdown();
+        for (int i = 0; i < 2; i++) {
+            try {
+                batcher.allocate(workload.getEvents()).get();
+                Assert.fail("A search ran after the batcher was shut down");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause()
+                        instanceof RejectedExecutionException);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package planner.service;
+
+import org.junit.Assert;
+import org.junit.Test;
+import planner.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Tests for the {@link AllocationServer} class.
+ */
+public class AllocationServerTest {
+
+    /**
+     * Test that a request is answered with its allocation, and that deeply
+     * nested, oversized and malformed requests are answered with an error
+     * rather than left hanging.
+     */
+    @Test(timeout = 20000)
+    public void testAllocate() throws IOException {
+        Corridor corridor = new Corridor(new Location("l1"), new Location(
+                "l2"), 200);
+        Traffic traffic = new Traffic();
+        traffic.updateTraffic(corridor, 150);
+        VenueNetwork network = new VenueNetwork(Arrays.asList(new Venue(
+                "The Gabba", 200, traffic), new Venue("Tivoli", 50,
+                        new Traffic())));
+        AllocationServer server = new AllocationServer(new AllocationBatcher(
+                network, new AllocationOptions(), 1, 8), 0);
+        server.start();
+        try {
+            URL url = new URL("http://localhost:" + server.getPort()
+                    + "/allocate");
+            Assert.assertEquals("{\"status\": \"FOUND\", \"allocated\": 2, "
+                    + "\"allocation\": [{\"event\": \"Concert\", \"size\": "
+                    + "120, \"venue\": \"The Gabba\"}, {\"event\": \"Fair\", "
+                    + "\"size\": 40, \"venue\": \"Tivoli\"}], \"traffic\": "
+                    + "[{\"corridor\": " + Json.quote(corridor.toString())
+                    + ", \"traffic\": 90}]}", post(url, 200,
+                            "[{\"name\": \"Concert\", \"size\": 120}, "
+                                    + "{\"name\": \"Fair\", \"size\": 40}]"));
+
+            StringBuilder deep = new StringBuilder();
+            for (int i = 0; i < 200000; i++) {
+                deep.append('[');
+            }
+            Assert.assertTrue(post(url, 400, deep.toString()).contains(
+                    "nested"));
+            char[] large = new char[AllocationServer.MAX_BODY + 1];
+            Arrays.fill(large, ' ');
+            post(url, 413, new String(large));
+            post(url, 400, "[{\"name\": \"Concert\"}]");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Posts the given body to the given URL, checks that the response has the
+     * given status, and returns the body of the response.
+     */
+    private static String post(URL url, int status, String body)
+            throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url
+                .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setReadTimeout(10000);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // the server may answer before reading all of a large body
+        }
+        Assert.assertEquals(status, connection.getResponseCode());
+        InputStream in = status < 400 ? connection.getInputStream()
+                : connection.getErrorStream();
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            response.write(buffer, 0, read);
+        }
+        in.close();
+        return new String(response.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,109 @@
+package planner.service;
+
+import org.junit.Assert;
+import org.junit.Test;
+import planner.*;
+
+import java.util.*;
+
+/**
+ * Tests for the {@link Json} class.
+ */
+public class JsonTest {
+
+    /**
+     * Test that events are read from an array, or from the "events" member
+     * of an object, with escapes in their names.
+     */
+    @Test
+    public void testReadEvents() throws FormatException {
+        List<Event> expected = Arrays.asList(new Event("Concert", 120),
+                new Event("Mark\"et\né", 40));
+        String array = " [ {\"name\": \"Concert\", \"size\": 120},"
+                + "{\"size\":40,\"name\":\"Mark\\\"et\\n\\u00e9\"} ] ";
+        Assert.assertEquals(expected, Json.readEvents(array));
+        Assert.assertEquals(expected, Json.readEvents("{\"events\": " + array
+                + ", \"other\": [true, false, null, -3]}"));
+        Assert.assertTrue(Json.readEvents("[]").isEmpty());
+    }
+
+    /**
+     * Test that malformed text and invalid events are rejected.
+     */
+    @Test
+    public void testMalformed() {
+        String[] texts = { "", "[", "[{\"name\": \"a\", \"size\": 1}",
+                "[{\"name\": \"a\" \"size\": 1}]", "[{name: \"a\"}]",
+                "[{\"name\": \"a\", \"size\": 1}] x", "{\"events\": 1}",
+                "[1]", "[{\"name\": \"\", \"size\": 1}]",
+                "[{\"name\": \"a\"}]", "[{\"name\": \"a\", \"size\": tru}]",
+                "[{\"name\": \"a\\u12\", \"size\": 1}]",
+                "[{\"name\": \"a\", \"size\": 1}, {\"name\": \"a\", "
+                        + "\"size\": 1}]" };
+        for (String text : texts) {
+            checkRejected(text);
+        }
+    }
+
+    /**
+     * Test the limits of the numbers read as sizes.
+     */
+    @Test
+    public void testNumbers() throws FormatException {
+        Assert.assertEquals(Integer.MAX_VALUE, Json.readEvents(
+                "[{\"name\": \"a\", \"size\": " + Integer.MAX_VALUE + "}]")
+                .get(0).getSize());
+        String[] sizes = { "0", "-1", "-", "+1", "01", "1.5", "1e3", "2E1",
+                String.valueOf(Integer.MAX_VALUE + 1L),
+                "99999999999999999999", "\"1\"" };
+        for (String size : sizes) {
+            checkRejected("[{\"name\": \"a\", \"size\": " + size + "}]");
+        }
+    }
+
+    /**
+     * Test that nesting is allowed up to the limit, and that text nested far
+     * deeper is rejected rather than overflowing the stack.
+     */
+    @Test
+    public void testDeeplyNested() throws FormatException {
+        // MAX_DEPTH - 3 arrays, to go inside an object and two arrays
+        StringBuilder nested = new StringBuilder();
+        for (int i = 3; i < Json.MAX_DEPTH; i++) {
+            nested.append('[');
+        }
+        for (int i = 3; i < Json.MAX_DEPTH; i++) {
+            nested.append(']');
+        }
+        Assert.assertTrue(Json.readEvents("{\"events\": [], \"other\": [["
+                + nested + "]]}").isEmpty());
+        checkRejected("{\"events\": [], \"other\": [[[" + nested + "]]]}");
+
+        StringBuilder deep = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            deep.append('[');
+        }
+        checkRejected(deep.toString());
+    }
+
+    /**
+     * Test that strings are quoted with their special characters escaped.
+     */
+    @Test
+    public void testQuote() {
+        Assert.assertEquals("\"a\\\"b\\\\c\\u000a\"", Json.quote("a\"b\\c\n"));
+    }
+
+    /**
+     * Checks that reading events from the given text throws a
+     * FormatException.
+     */
+    private static void checkRejected(String text) {
+        try {
+            Json.readEvents(text);
+            Assert.fail("Malformed JSON was read: " + text);
+        } catch (FormatException expected) {
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package planner.service;
+
+import org.junit.Assert;
+import org.junit.Test;
+import planner.*;
+import planner.cli.*;
+
+import java.util.*;
+import java.util.concurrent.Future;
+
+/**
+ * Tests for the {@link WhatIfQueries} class.
+ */
+public class WhatIfQueriesTest {
+
+    /**
+     * Test that what-if queries agree with the venues' own checks, and are
+     * answered from the allocation published when they were asked.
+     */
+    @Test(timeout = 20000)
+    public void testWhatIfQueries() throws Exception {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setVenues(20);
+        generator.setEvents(4);
+        generator.setSeed(50);
+        Workload workload = generator.generate();
+        List<Venue> venues = workload.getVenues();
+        List<Event> events = workload.getEvents();
+        Map<Event, Venue> allocation = Allocator.allocate(events.subList(0,
+                2), venues, new AllocationOptions());
+        Assert.assertNotNull(allocation);
+        WhatIfQueries queries = new WhatIfQueries(new VenueNetwork(venues));
+        try {
+            Event event = events.get(2);
+            Future<List<Venue>> before = queries.suggest(event);
+            queries.publish(allocation);
+            Assert.assertEquals(allocation, queries.getAllocation());
+
+            List<Venue> expected = new ArrayList<>();
+            for (Venue venue : venues) {
+                if (venue.canHost(event)) {
+                    expected.add(venue);
+                }
+            }
+            Assert.assertEquals(new HashSet<>(expected), new HashSet<>(
+                    before.get()));
+
+            List<Future<Boolean>> answers = new ArrayList<>();
+            for (Venue venue : venues) {
+                answers.add(queries.canAdd(event, venue));
+            }
+            List<Venue> suggested = queries.suggest(event).get();
+            for (int i = 1; i < suggested.size(); i++) {
+                Assert.assertTrue(suggested.get(i - 1).getCapacity()
+                        <= suggested.get(i).getCapacity());
+            }
+            for (int v = 0; v < venues.size(); v++) {
+                Venue venue = venues.get(v);
+                boolean safe = !allocation.containsValue(venue) && venue
+                        .canHost(event);
+                if (safe) {
+                    Map<Event, Venue> added = new HashMap<>(allocation);
+                    added.put(event, venue);
+                    Traffic traffic = new Traffic();
+                    for (Map.Entry<Event, Venue> entry : added.entrySet()) {
+                        traffic.addTraffic(entry.getValue().getTraffic(entry
+                                .getKey()));
+                    }
+                    safe = traffic.isSafe();
+                }
+                Assert.assertEquals(safe, answers.get(v).get());
+                Assert.assertEquals(safe, suggested.contains(venue));
+            }
+            Assert.assertFalse(queries.canAdd(events.get(0), venues.get(0))
+                    .get());
+            Assert.assertEquals(venues.size() + 3, queries.getQueries());
+        } finally {
+            queries.shutdown();
+        }
+    }
+
+}